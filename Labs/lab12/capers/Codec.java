@@ -0,0 +1,121 @@
+package capers;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+
+/** A compact binary encoding of saved objects, used in place of Java
+ *  serialization.  An object's encoding is a sequence of fields, each put
+ *  by a Writer method and taken back by the Reader method of the same name,
+ *  in the same order; nothing is found by reflection.  Non-negative
+ *  integers are varints: seven bits a byte, least significant first, with
+ *  the high bit set on all but the last byte.  Strings are in UTF-8,
+ *  preceded by their lengths as varints.  By convention, each type's
+ *  encoding begins with a version number.
+ *  @author Brian Faun
+ */
+class Codec {
+
+    /** An object that can be encoded. */
+    interface Encodable {
+        /** Put my fields on OUT. */
+        void encode(Writer out);
+    }
+
+    /** A reconstructor of objects of type T from their encodings. */
+    interface Decoder<T> {
+        /** Return the object whose fields are next on IN. */
+        T decode(Reader in);
+    }
+
+    /** Return the encoding of OBJ. */
+    static byte[] encode(Encodable obj) {
+        Writer out = new Writer();
+        obj.encode(out);
+        return out.toByteArray();
+    }
+
+    /** Return the object encoded by DATA, as reconstructed by DECODER. */
+    static <T> T decode(byte[] data, Decoder<T> decoder) {
+        return decoder.decode(new Reader(data));
+    }
+
+    /** A destination for the fields of an encoding. */
+    static class Writer {
+
+        /** Put N >= 0 as a varint. */
+        void writeVarint(int n) {
+            if (n < 0) {
+                throw new IllegalArgumentException("negative varint");
+            }
+            while (n >= 0x80) {
+                _out.write((n & 0x7f) | 0x80);
+                n >>>= 7;
+            }
+            _out.write(n);
+        }
+
+        /** Put S, preceded by its length in bytes. */
+        void writeString(String s) {
+            byte[] bytes = s.getBytes(StandardCharsets.UTF_8);
+            writeVarint(bytes.length);
+            _out.write(bytes, 0, bytes.length);
+        }
+
+        /** Return the encoding so far. */
+        byte[] toByteArray() {
+            return _out.toByteArray();
+        }
+
+        /** The encoding so far. */
+        private final ByteArrayOutputStream _out =
+            new ByteArrayOutputStream();
+    }
+
+    /** A source of the fields of an encoding.  Reading past the end throws
+     *  IllegalArgumentException. */
+    static class Reader {
+
+        /** A reader of the fields in DATA. */
+        Reader(byte[] data) {
+            _data = data;
+        }
+
+        /** Return the next field, a varint. */
+        int readVarint() {
+            int n = 0;
+            for (int shift = 0; shift < Integer.SIZE; shift += 7) {
+                int b = next();
+                n |= (b & 0x7f) << shift;
+                if ((b & 0x80) == 0) {
+                    return n;
+                }
+            }
+            throw new IllegalArgumentException("bad encoding: varint");
+        }
+
+        /** Return the next field, a string. */
+        String readString() {
+            int len = readVarint();
+            if (len < 0 || len > _data.length - _pos) {
+                throw new IllegalArgumentException("bad encoding: length");
+            }
+            String result =
+                new String(_data, _pos, len, StandardCharsets.UTF_8);
+            _pos += len;
+            return result;
+        }
+
+        /** Return the next byte, as an unsigned value. */
+        private int next() {
+            if (_pos >= _data.length) {
+                throw new IllegalArgumentException("bad encoding: truncated");
+            }
+            return _data[_pos++] & 0xff;
+        }
+
+        /** The encoding being read. */
+        private final byte[] _data;
+        /** Position of the next field in _data. */
+        private int _pos;
+    }
+}
@@ -2,16 +2,18 @@ package capers;
 
 import java.io.File;
 import java.io.IOException;
-import java.io.Serializable;
 
-/** Represents a dog that can be serialized.
+/** Represents a dog that can be saved, encoded as by Codec.
  * @author Sean Dooher
 */
-public class Dog implements Serializable{ // FIXME
+public class Dog implements Codec.Encodable {
 
     /** Folder that dogs live in. */
     static final File DOG_FOLDER = new File(".capers/dogs");
 
+    /** Version of the encoding of dogs. */
+    static final int VERSION = 1;
+
     /**
      * Creates a dog object with the specified parameters.
      * @param name Name of dog
@@ -25,14 +27,42 @@ public class Dog implements Serializable{ // FIXME
     }
 
     /**
-     * Reads in and deserializes a dog from a file with name NAME in DOG_FOLDER.
+     * Reads in and decodes a dog from a file with name NAME in DOG_FOLDER.
      *
      * @param name Name of dog to load
      * @return Dog read from file
      */
     public static Dog fromFile(String name) {
         File dog = Utils.join(DOG_FOLDER, name);
-        return Utils.readObject(dog, Dog.class);
+        return Utils.readObject(dog, Dog::decode);
+    }
+
+    /**
+     * Returns the dog whose fields are next on IN.
+     * @param in Source of the encoded dog
+     * @return Dog decoded from IN
+     */
+    static Dog decode(Codec.Reader in) {
+        int version = in.readVarint();
+        if (version != VERSION) {
+            throw new IllegalArgumentException("unknown dog version "
+                                               + version);
+        }
+        String name = in.readString();
+        String breed = in.readString();
+        return new Dog(name, breed, in.readVarint());
+    }
+
+    /**
+     * Puts this dog's version, name, breed, and age on OUT.
+     * @param out Destination of the encoding
+     */
+    @Override
+    public void encode(Codec.Writer out) {
+        out.writeVarint(VERSION);
+        out.writeString(_name);
+        out.writeString(_breed);
+        out.writeVarint(_age);
     }
 
     /**
@@ -1,14 +1,9 @@
 package capers;
 
 import java.io.BufferedOutputStream;
-import java.io.ByteArrayOutputStream;
 import java.io.File;
-import java.io.FileInputStream;
 import java.io.FilenameFilter;
 import java.io.IOException;
-import java.io.ObjectInputStream;
-import java.io.ObjectOutputStream;
-import java.io.Serializable;
 import java.nio.file.Files;
 import java.nio.file.Paths;
 import java.nio.charset.StandardCharsets;
@@ -72,24 +67,15 @@ class Utils {
         }
     }
 
-    /** Return an object of type T read from FILE, casting it to EXPECTEDCLASS.
-     *  Throws IllegalArgumentException in case of problems. */
-    static <T extends Serializable> T readObject(File file,
-                                                 Class<T> expectedClass) {
-        try {
-            ObjectInputStream in =
-                new ObjectInputStream(new FileInputStream(file));
-            T result = expectedClass.cast(in.readObject());
-            in.close();
-            return result;
-        } catch (IOException | ClassCastException
-                 | ClassNotFoundException excp) {
-            throw new IllegalArgumentException(excp.getMessage());
-        }
+    /** Return an object of type T read from FILE, as reconstructed from its
+     *  encoding by DECODER (see Codec).  Throws IllegalArgumentException
+     *  in case of problems. */
+    static <T> T readObject(File file, Codec.Decoder<T> decoder) {
+        return Codec.decode(readContents(file), decoder);
     }
 
     /** Write OBJ to FILE. */
-    static void writeObject(File file, Serializable obj) {
+    static void writeObject(File file, Codec.Encodable obj) {
         writeContents(file, serialize(obj));
     }
 
@@ -113,17 +99,9 @@ class Utils {
 
     /* SERIALIZATION UTILITIES */
 
-    /** Returns a byte array containing the serialized contents of OBJ. */
-    static byte[] serialize(Serializable obj) {
-        try {
-            ByteArrayOutputStream stream = new ByteArrayOutputStream();
-            ObjectOutputStream objectStream = new ObjectOutputStream(stream);
-            objectStream.writeObject(obj);
-            objectStream.close();
-            return stream.toByteArray();
-        } catch (IOException excp) {
-            throw error("Internal error serializing commit.");
-        }
+    /** Returns a byte array containing the encoded contents of OBJ. */
+    static byte[] serialize(Codec.Encodable obj) {
+        return Codec.encode(obj);
     }
 
 
@@ -1,5 +1,7 @@
 package enigma;
 
+import static enigma.EnigmaException.*;
+
 /** An alphabet of encodable characters.  Provides a mapping from characters
  *  to and from indices into the alphabet.
  *  @author Brian Faun
@@ -7,13 +9,24 @@ package enigma;
 class Alphabet {
     /** String array representing the mapping of characters. */
     private char[] alpha;
+    /** _index[c] is 1 + the index of character C, or 0 if C is not in
+     *  this alphabet.  Covers characters up to the largest one in ALPHA. */
+    private int[] _index;
 
     /** A new alphabet containing CHARS.  Character number #k has index
      *  K (numbering from 0). No character may be duplicated. */
     Alphabet(String chars) {
-        alpha = new char[chars.length()];
-        for (int i = 0; i < chars.length(); i++) {
-            alpha[i] = chars.charAt(i);
+        alpha = chars.toCharArray();
+        int max = 0;
+        for (char c : alpha) {
+            max = Math.max(max, c);
+        }
+        _index = new int[max + 1];
+        for (int i = 0; i < alpha.length; i++) {
+            if (_index[alpha[i]] != 0) {
+                throw error("duplicate character '%c' in alphabet", alpha[i]);
+            }
+            _index[alpha[i]] = i + 1;
         }
     }
 
@@ -29,12 +42,7 @@ class Alphabet {
 
     /** Returns true if CH is in this alphabet. */
     boolean contains(char ch) {
-        for (int i = 0; i < alpha.length; i++) {
-            if (alpha[i] == ch) {
-                return true;
-            }
-        }
-        return false;
+        return ch < _index.length && _index[ch] != 0;
     }
 
     /** Returns character number INDEX in the alphabet, where
@@ -46,11 +54,9 @@ class Alphabet {
     /** Returns the index of character CH which must be in
      *  the alphabet. This is the inverse of toChar(). */
     int toInt(char ch) {
-        for (int i = 0; i < alpha.length; i++) {
-            if (alpha[i] == ch) {
-                return i;
-            }
+        if (ch >= _index.length) {
+            return -1;
         }
-        return -1;
+        return _index[ch] - 1;
     }
 }
@@ -0,0 +1,126 @@
+package enigma;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.Scanner;
+
+import static enigma.EnigmaException.*;
+
+/** A parsed Enigma configuration file: an alphabet, the numbers of rotor
+ *  slots and pawls, and the available rotors.  A Configuration is never
+ *  modified after it is read, so one may be shared among threads, each
+ *  of which builds its own Machines from it.
+ *  @author Brian Faun
+ */
+class Configuration {
+
+    /** A configuration with alphabet ALPHABET, NUMROTORS slots, PAWLS
+     *  pawls, and available rotors ROTORS, which are never modified. */
+    private Configuration(Alphabet alphabet, int numRotors, int pawls,
+                          List<Rotor> rotors) {
+        _alphabet = alphabet;
+        _numRotors = numRotors;
+        _pawls = pawls;
+        _rotors = Collections.unmodifiableList(rotors);
+        for (Rotor r : _rotors) {
+            r.forwardTable();
+            r.backwardTable();
+            _byName.put(r.name(), r);
+        }
+    }
+
+    /** Return the configuration described by the contents of CONFIG,
+     *  which must have the format specified in the assignment. */
+    static Configuration read(Scanner config) {
+        try {
+            String a = config.next();
+            if (a.contains("(") || a.contains(")") || a.contains("*")) {
+                throw new EnigmaException("Wrong config format");
+            }
+            Alphabet alphabet = new Alphabet(a);
+            int numRotors = config.nextInt();
+            int pawls = config.nextInt();
+            ArrayList<Rotor> rotors = new ArrayList<>();
+            while (config.hasNext()) {
+                rotors.add(readRotor(config, alphabet));
+            }
+            return new Configuration(alphabet, numRotors, pawls, rotors);
+        } catch (NoSuchElementException excp) {
+            throw error("configuration file truncated");
+        }
+    }
+
+    /** Return a rotor over ALPHABET, reading its description from
+     *  CONFIG. */
+    private static Rotor readRotor(Scanner config, Alphabet alphabet) {
+        try {
+            String rname = config.next();
+            String type = config.next();
+            String cycles = "";
+            while (config.hasNext("\\(.*\\)")) {
+                cycles += config.next();
+            }
+            Permutation perm = new Permutation(cycles, alphabet);
+            if (type.charAt(0) == 'M') {
+                return new MovingRotor(rname, perm, type.substring(1));
+            } else if (type.charAt(0) == 'N') {
+                return new FixedRotor(rname, perm);
+            } else if (type.charAt(0) == 'R') {
+                return new Reflector(rname, perm);
+            } else {
+                throw new EnigmaException("no rotor");
+            }
+        } catch (NoSuchElementException excp) {
+            throw error("bad rotor description");
+        }
+    }
+
+    /** Return a new Machine for this configuration, with rotors of its
+     *  own.  The rotors share their permutations and tables with mine. */
+    Machine newMachine() {
+        ArrayList<Rotor> rotors = new ArrayList<>();
+        for (Rotor r : _rotors) {
+            rotors.add(r.copy());
+        }
+        return new Machine(_alphabet, _numRotors, _pawls, rotors);
+    }
+
+    /** Return my alphabet. */
+    Alphabet alphabet() {
+        return _alphabet;
+    }
+
+    /** Return the number of rotor slots. */
+    int numRotors() {
+        return _numRotors;
+    }
+
+    /** Return the number of pawls. */
+    int numPawls() {
+        return _pawls;
+    }
+
+    /** Return true iff I have a reflector named NAME. */
+    boolean isReflector(String name) {
+        Rotor r = _byName.get(name);
+        return r != null && r.reflecting();
+    }
+
+    /** The common alphabet. */
+    private final Alphabet _alphabet;
+
+    /** Number of rotor slots. */
+    private final int _numRotors;
+
+    /** Number of pawls. */
+    private final int _pawls;
+
+    /** Prototypes of the available rotors, all at setting 0. */
+    private final List<Rotor> _rotors;
+
+    /** The available rotors, by name. */
+    private final HashMap<String, Rotor> _byName = new HashMap<>();
+}
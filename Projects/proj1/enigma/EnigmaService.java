@@ -0,0 +1,172 @@
+package enigma;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static enigma.EnigmaException.*;
+
+/** A service that converts many independent messages concurrently on a
+ *  fixed pool of worker threads, for use by programs that would
+ *  otherwise start one enigma.Main per message.  Each job names a shared,
+ *  immutable Configuration; each worker converts with Machines of its
+ *  own, built from that Configuration and reused across jobs.
+ *  @author Brian Faun
+ */
+class EnigmaService implements AutoCloseable {
+
+    /** A service with THREADS worker threads. */
+    EnigmaService(int threads) {
+        _pool = Executors.newFixedThreadPool(threads);
+    }
+
+    /** A service with one worker thread per available processor. */
+    EnigmaService() {
+        this(Runtime.getRuntime().availableProcessors());
+    }
+
+    /** Return a future for the conversion of JOB.  The result is the
+     *  converted message, without grouping into blocks. */
+    Future<String> submit(Job job) {
+        return _pool.submit(() -> run(job));
+    }
+
+    /** Return a future for the conversion of MESSAGE by a machine of
+     *  configuration CONF set up according to the setting line SETTING. */
+    Future<String> submit(Configuration conf, String setting,
+                          String message) {
+        return submit(new Job(conf, setting, message));
+    }
+
+    /** Convert all of JOBS concurrently, wait for them to finish, and
+     *  return their results together with throughput figures.  The first
+     *  job to fail causes an EnigmaException. */
+    Batch runBatch(List<Job> jobs) {
+        long start = System.nanoTime();
+        ArrayList<Future<String>> futures = new ArrayList<>();
+        for (Job job : jobs) {
+            futures.add(submit(job));
+        }
+        ArrayList<String> results = new ArrayList<>();
+        long chars = 0;
+        try {
+            for (Future<String> f : futures) {
+                results.add(f.get());
+                chars += results.get(results.size() - 1).length();
+            }
+        } catch (ExecutionException excp) {
+            if (excp.getCause() instanceof EnigmaException) {
+                throw (EnigmaException) excp.getCause();
+            }
+            throw error("job failed: %s", excp.getCause());
+        } catch (InterruptedException excp) {
+            Thread.currentThread().interrupt();
+            throw error("batch interrupted");
+        }
+        return new Batch(results, chars, System.nanoTime() - start);
+    }
+
+    /** Stop accepting jobs.  Jobs already submitted still complete. */
+    @Override
+    public void close() {
+        _pool.shutdown();
+    }
+
+    /** Convert JOB on the current worker thread. */
+    private String run(Job job) {
+        HashMap<Configuration, Machine> machines = MACHINES.get();
+        Machine mach = machines.get(job.conf);
+        if (mach == null) {
+            mach = job.conf.newMachine();
+            machines.put(job.conf, mach);
+        }
+        Setting.parse(job.setting, job.conf, null).apply(mach);
+        char[] msg = new char[job.message.length()];
+        int n = 0;
+        for (int i = 0; i < msg.length; i++) {
+            char c = job.message.charAt(i);
+            if (!Character.isWhitespace(c)) {
+                msg[n] = c;
+                n += 1;
+            }
+        }
+        mach.convert(msg, 0, n);
+        return new String(msg, 0, n);
+    }
+
+    /** A message to be converted. */
+    static class Job {
+        /** A job converting MESSAGE with a machine of configuration CONF
+         *  set up by the setting line SETTING.  Whitespace in MESSAGE is
+         *  ignored. */
+        Job(Configuration conf, String setting, String message) {
+            this.conf = conf;
+            this.setting = setting;
+            this.message = message;
+        }
+
+        /** The machine configuration. */
+        private final Configuration conf;
+        /** The setting line. */
+        private final String setting;
+        /** The message to convert. */
+        private final String message;
+    }
+
+    /** The results of runBatch. */
+    static class Batch {
+        /** Results RESULTS, totalling CHARS characters, of a batch that
+         *  took NANOS nanoseconds. */
+        Batch(List<String> results, long chars, long nanos) {
+            _results = results;
+            _chars = chars;
+            _nanos = nanos;
+        }
+
+        /** Return the converted messages, in the order of the jobs. */
+        List<String> results() {
+            return _results;
+        }
+
+        /** Return the elapsed time in seconds. */
+        double seconds() {
+            return _nanos * 1e-9;
+        }
+
+        /** Return the number of jobs completed per second. */
+        double jobsPerSecond() {
+            return _results.size() / seconds();
+        }
+
+        /** Return the number of characters converted per second. */
+        double charsPerSecond() {
+            return _chars / seconds();
+        }
+
+        @Override
+        public String toString() {
+            return String.format("%d jobs, %d chars in %.3f sec: "
+                                 + "%.1f jobs/sec, %.3e chars/sec",
+                                 _results.size(), _chars, seconds(),
+                                 jobsPerSecond(), charsPerSecond());
+        }
+
+        /** The converted messages. */
+        private final List<String> _results;
+        /** Total number of characters converted. */
+        private final long _chars;
+        /** Elapsed time. */
+        private final long _nanos;
+    }
+
+    /** The machines of the current worker thread, by configuration. */
+    private static final ThreadLocal<HashMap<Configuration, Machine>>
+        MACHINES = ThreadLocal.withInitial(HashMap::new);
+
+    /** The worker threads. */
+    private final ExecutorService _pool;
+}
@@ -0,0 +1,87 @@
+package enigma;
+
+import org.junit.Test;
+import org.junit.Rule;
+import org.junit.rules.Timeout;
+import static org.junit.Assert.*;
+
+import java.util.ArrayList;
+import java.util.Scanner;
+import java.util.concurrent.Future;
+
+import static enigma.TestUtils.*;
+
+/** The suite of all JUnit tests for the EnigmaService class.
+ *  @author Brian Faun
+ */
+public class EnigmaServiceTest {
+
+    /** Testing time limit. */
+    @Rule
+    public Timeout globalTimeout = Timeout.seconds(5);
+
+    /* ***** TESTING UTILITIES ***** */
+
+    /** A configuration with the naval rotors. */
+    private static final String NAVAL_CONFIG =
+        UPPER_STRING + " 5 3\n"
+        + "I MQ " + NAVALA.get("I") + "\n"
+        + "II ME " + NAVALA.get("II") + "\n"
+        + "III MV " + NAVALA.get("III") + "\n"
+        + "IV MJ " + NAVALA.get("IV") + "\n"
+        + "Beta N " + NAVALA.get("Beta") + "\n"
+        + "B R " + NAVALA.get("B") + "\n";
+
+    /** The setting used in the assignment's example. */
+    private static final String SETTING =
+        "* B Beta III IV I AXLE (HQ) (EX) (IP) (TR) (BY)";
+
+    /* ***** TESTS ***** */
+
+    @Test
+    public void checkSubmit() throws Exception {
+        Configuration conf = Configuration.read(new Scanner(NAVAL_CONFIG));
+        try (EnigmaService service = new EnigmaService(2)) {
+            Future<String> result =
+                service.submit(conf, SETTING, "FROM HIS SHOULDER HIAWATHA");
+            assertEquals("QVPQSOKOILPUBKJZPISFXDW", result.get());
+        }
+    }
+
+    @Test
+    public void checkBatch() {
+        Configuration conf = Configuration.read(new Scanner(NAVAL_CONFIG));
+        ArrayList<EnigmaService.Job> jobs = new ArrayList<>();
+        for (int i = 0; i < 200; i += 1) {
+            String setting = SETTING.replace("AXLE",
+                                             "AX" + UPPER.toChar(i % 26)
+                                             + "E");
+            jobs.add(new EnigmaService.Job(conf, setting,
+                                           "FROMHISSHOULDERHIAWATHA"));
+        }
+        try (EnigmaService service = new EnigmaService(4)) {
+            EnigmaService.Batch batch = service.runBatch(jobs);
+            assertEquals(jobs.size(), batch.results().size());
+            for (int i = 0; i < jobs.size(); i += 1) {
+                Machine mach = conf.newMachine();
+                Setting.parse(SETTING.replace("AXLE",
+                                              "AX" + UPPER.toChar(i % 26)
+                                              + "E"), conf, null)
+                    .apply(mach);
+                assertEquals(mach.convert("FROMHISSHOULDERHIAWATHA"),
+                             batch.results().get(i));
+            }
+        }
+    }
+
+    @Test(expected = EnigmaException.class)
+    public void checkBadSetting() {
+        Configuration conf = Configuration.read(new Scanner(NAVAL_CONFIG));
+        ArrayList<EnigmaService.Job> jobs = new ArrayList<>();
+        jobs.add(new EnigmaService.Job(conf, "* Beta B III IV I AXLE", "A"));
+        try (EnigmaService service = new EnigmaService(1)) {
+            service.runBatch(jobs);
+        }
+    }
+
+}
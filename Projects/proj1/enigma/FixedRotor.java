@@ -12,4 +12,9 @@ class FixedRotor extends Rotor {
     FixedRotor(String name, Permutation perm) {
         super(name, perm);
     }
+
+    @Override
+    FixedRotor copy() {
+        return copyState(new FixedRotor(name(), permutation()));
+    }
 }
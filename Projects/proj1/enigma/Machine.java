@@ -1,5 +1,10 @@
 package enigma;
+import java.util.Arrays;
 import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
 
 import static enigma.EnigmaException.*;
 
@@ -15,8 +20,12 @@ class Machine {
         _alphabet = a;
         _numRotors = numRotors;
         _pawls = pawls;
-        _allRotors = allRotors.toArray();
+        _allRotors = new HashMap<>();
+        for (Rotor r : allRotors) {
+            _allRotors.put(r.name(), r);
+        }
         _rotors = new Rotor[_numRotors];
+        _offsets = new int[_numRotors];
     }
 
     /** Return the number of rotor slots I have. */
@@ -33,16 +42,34 @@ class Machine {
      *  available rotors (ROTORS[0] names the reflector).
      *  Initially, all rotors are set at their 0 setting. */
     void insertRotors(String[] rotors) {
+        if (_rotors.length != rotors.length) {
+            throw new EnigmaException("Misnamed rotors");
+        }
         for (int i = 0; i < rotors.length; i++) {
-            for (int j = 0; j < _allRotors.length; j++) {
-                if ((rotors[i].toString()).equals((
-                        ((Rotor) _allRotors[j]).name()))) {
-                    _rotors[i] = (Rotor) _allRotors[j];
+            Rotor r = _allRotors.get(rotors[i]);
+            if (r == null) {
+                throw error("no rotor named %s", rotors[i]);
+            }
+            for (int j = 0; j < i; j++) {
+                if (_rotors[j] == r) {
+                    throw error("rotor %s used twice", rotors[i]);
                 }
             }
+            _rotors[i] = r;
         }
-        if (_rotors.length != rotors.length) {
-            throw new EnigmaException("Misnamed rotors");
+        _schedule = null;
+        refreshTables();
+    }
+
+    /** Fetch the offset tables of my current rotors.  Since the tables are
+     *  indexed by setting, they need rebuilding only when the choice of
+     *  rotors changes, not when the rotors are set or advanced. */
+    private void refreshTables() {
+        _forward = new int[_rotors.length][];
+        _backward = new int[_rotors.length][];
+        for (int i = 0; i < _rotors.length; i++) {
+            _forward[i] = _rotors[i].forwardTable();
+            _backward[i] = _rotors[i].backwardTable();
         }
     }
 
@@ -50,6 +77,7 @@ class Machine {
      *  numRotors()-1 characters in my alphabet. The first letter refers
      *  to the leftmost rotor setting (not counting the reflector).  */
     void setRotors(String setting) {
+        _schedule = null;
         if (setting.length() != _numRotors - 1) {
             throw new EnigmaException("mismatched string length.");
         }
@@ -64,54 +92,286 @@ class Machine {
     /** Set the plugboard to PLUGBOARD. */
     void setPlugboard(Permutation plugboard) {
         _plugboard = plugboard;
+        _plug = new int[_alphabet.size()];
+        for (int i = 0; i < _plug.length; i++) {
+            _plug[i] = plugboard.permute(i);
+        }
     }
 
     /** Returns the result of converting the input character C (as an
      *  index in the range 0..alphabet size - 1), after first advancing
      *  the machine. */
     int convert(int c) {
-        boolean[] a = new boolean[numRotors()];
-        for (int i = 0; i < numRotors(); i++) {
-            if (i == numRotors() - 1) {
-                a[i] = true;
-            } else if (!_rotors[i].rotates()) {
-                a[i] = false;
-            } else if (_rotors[i + 1].atNotch()) {
-                a[i] = true;
-                a[i + 1] = true;
-            }
-        }
-        for (int i = 0; i < numRotors(); i++) {
-            if (a[i]) {
+        int n = _alphabet.size();
+        int[] offsets;
+        int base;
+        if (_schedule != null) {
+            _schedulePos += 1;
+            if (_schedulePos == _scheduleLength) {
+                _schedulePos = _scheduleLoop;
+            }
+            offsets = _schedule;
+            base = _schedulePos * _numRotors;
+        } else {
+            advanceRotors();
+            for (int i = 0; i < _numRotors; i++) {
+                _offsets[i] = _rotors[i].setting() * n;
+            }
+            offsets = _offsets;
+            base = 0;
+        }
+        int result = _plug[c];
+        for (int i = _numRotors - 1; i >= 0; i--) {
+            result = _forward[i][offsets[base + i] + result];
+        }
+        for (int i = 1; i < _numRotors; i++) {
+            result = _backward[i][offsets[base + i] + result];
+        }
+        return _plug[result];
+    }
+
+    /** Advance my rotors one step, as on a keypress.  A rotor advances if
+     *  it is the rightmost, if it has a pawl and the rotor to its right is
+     *  at a notch, or if it is at a notch and the rotor to its left has a
+     *  pawl.  Rotors are examined left to right, so each notch test sees
+     *  the position from before the keypress. */
+    private void advanceRotors() {
+        int last = _numRotors - 1;
+        for (int i = 0; i < last; i++) {
+            boolean carry = _rotors[i].rotates() && _rotors[i + 1].atNotch();
+            boolean pushed = i > 0 && _rotors[i - 1].rotates()
+                && _rotors[i].atNotch();
+            if (carry || pushed) {
                 _rotors[i].advance();
             }
         }
-        int result = _plugboard.permute(c);
-        for (int i = _rotors.length - 1; i >= 0; i--) {
-            result = _rotors[i].convertForward(result);
+        _rotors[last].advance();
+    }
+
+    /** Precompute the sequence of rotor positions that convert will step
+     *  through from the current state, so that stepping becomes a table
+     *  lookup.  The sequence ends in a cycle, which is found by recording
+     *  every state visited; this is refused, returning false, if the
+     *  rotating rotors have more than MAX_SCHEDULE_STATES combined
+     *  positions.  The schedule is discarded by insertRotors and
+     *  setRotors.  Returns true if the schedule was built. */
+    boolean precomputeSchedule() {
+        syncRotors();
+        int n = _alphabet.size();
+        long states = 1;
+        for (Rotor r : _rotors) {
+            if (r.rotates()) {
+                states *= n;
+                if (states > MAX_SCHEDULE_STATES) {
+                    return false;
+                }
+            }
+        }
+        int[] start = new int[_numRotors];
+        for (int i = 0; i < _numRotors; i++) {
+            start[i] = _rotors[i].setting();
         }
-        for (int i = 1; i < _rotors.length; i++) {
-            result = _rotors[i].convertBackward(result);
+        int[] seen = new int[(int) states];
+        Arrays.fill(seen, -1);
+        int[] schedule = new int[_numRotors * n];
+        int length;
+        for (length = 0; true; length++) {
+            advanceRotors();
+            int code = 0;
+            for (Rotor r : _rotors) {
+                if (r.rotates()) {
+                    code = code * n + r.setting();
+                }
+            }
+            if (seen[code] >= 0) {
+                _scheduleLoop = seen[code];
+                break;
+            }
+            seen[code] = length;
+            if ((length + 1) * _numRotors > schedule.length) {
+                schedule = Arrays.copyOf(schedule, 2 * schedule.length);
+            }
+            for (int i = 0; i < _numRotors; i++) {
+                schedule[length * _numRotors + i] = _rotors[i].setting() * n;
+            }
         }
-        result = _plugboard.permute(result);
-        return result;
+        for (int i = 0; i < _numRotors; i++) {
+            if (_rotors[i].rotates()) {
+                _rotors[i].set(start[i]);
+            }
+        }
+        _schedule = Arrays.copyOf(schedule, length * _numRotors);
+        _scheduleLength = length;
+        _schedulePos = -1;
+        return true;
     }
+
+    /** If I am following a schedule, bring the settings of my rotors up
+     *  to date with it. */
+    private void syncRotors() {
+        if (_schedule == null || _schedulePos < 0) {
+            return;
+        }
+        int n = _alphabet.size();
+        for (int i = 0; i < _numRotors; i++) {
+            if (_rotors[i].rotates()) {
+                _rotors[i].set(_schedule[_schedulePos * _numRotors + i] / n);
+            }
+        }
+    }
+
+    /** Advance my rotors as if STEPS characters had been converted,
+     *  with the same double-stepping behavior as convert(int).  Only
+     *  keystrokes that move a rotor other than the rightmost are
+     *  simulated; runs in between are skipped arithmetically, so this
+     *  takes about STEPS / alphabet size iterations. */
+    void fastForward(long steps) {
+        if (_schedule != null && steps > 0) {
+            long pos = _schedulePos + steps;
+            if (pos >= _scheduleLength) {
+                int cycle = _scheduleLength - _scheduleLoop;
+                pos = _scheduleLoop + (pos - _scheduleLoop) % cycle;
+            }
+            _schedulePos = (int) pos;
+            syncRotors();
+            return;
+        }
+        Rotor fast = _rotors[_numRotors - 1];
+        int n = _alphabet.size();
+        while (steps > 0) {
+            long k = stepsToCarry();
+            if (k < 0 || k >= steps) {
+                k = steps;
+            }
+            if (fast.rotates()) {
+                fast.set((int) ((fast.setting() + k) % n));
+            }
+            steps -= k;
+            if (steps > 0) {
+                advanceRotors();
+                steps -= 1;
+            }
+        }
+    }
+
+    /** Return the number of keystrokes before the next one that advances
+     *  a rotor other than the rightmost, or -1 if there is none. */
+    private long stepsToCarry() {
+        int last = _numRotors - 1;
+        for (int i = 0; i < last - 1; i++) {
+            if (_rotors[i].rotates() && _rotors[i + 1].atNotch()) {
+                return 0;
+            }
+        }
+        if (last > 0 && _rotors[last - 1].rotates()) {
+            return _rotors[last].stepsToNotch();
+        }
+        return -1;
+    }
+
+    /** Return a new machine in my current state whose rotors are copies
+     *  of mine, so that it may be advanced independently. */
+    Machine copy() {
+        syncRotors();
+        Machine m = new Machine(_alphabet, _numRotors, _pawls,
+                                Collections.emptyList());
+        for (int i = 0; i < _rotors.length; i++) {
+            m._rotors[i] = _rotors[i].copy();
+        }
+        m._plugboard = _plugboard;
+        m._plug = _plug;
+        m._forward = _forward;
+        m._backward = _backward;
+        m._schedule = _schedule;
+        m._scheduleLength = _scheduleLength;
+        m._scheduleLoop = _scheduleLoop;
+        m._schedulePos = _schedulePos;
+        return m;
+    }
+
+    /** Convert BUF[OFF .. OFF+LEN-1] in place exactly as
+     *  convert(BUF, OFF, LEN) would, but split into chunks that are
+     *  converted concurrently on the common fork/join pool.  Each chunk
+     *  runs on a copy of this machine fast-forwarded to the chunk's
+     *  start.  Afterwards my rotors are in the same state as after a
+     *  sequential conversion. */
+    void convertParallel(char[] buf, int off, int len) {
+        if (len <= MIN_PARALLEL_CHUNK) {
+            convert(buf, off, len);
+            return;
+        }
+        Machine start = copy();
+        fastForward(len);
+        ForkJoinPool.commonPool().invoke(
+            new ConvertTask(start, buf, off, off + len));
+    }
+
+    /** Converts part of a buffer, splitting the work among subtasks. */
+    private static class ConvertTask extends RecursiveAction {
+        /** A task converting BUF[LO .. HI-1] using MACHINE, which is set
+         *  to the state in which BUF[LO] is converted. */
+        ConvertTask(Machine machine, char[] buf, int lo, int hi) {
+            _machine = machine;
+            _buf = buf;
+            _lo = lo;
+            _hi = hi;
+        }
+
+        @Override
+        protected void compute() {
+            if (_hi - _lo <= MIN_PARALLEL_CHUNK) {
+                _machine.convert(_buf, _lo, _hi - _lo);
+                return;
+            }
+            int mid = (_lo + _hi) >>> 1;
+            Machine right = _machine.copy();
+            right.fastForward(mid - _lo);
+            invokeAll(new ConvertTask(_machine, _buf, _lo, mid),
+                      new ConvertTask(right, _buf, mid, _hi));
+        }
+
+        /** Machine for converting _buf[_lo]. */
+        private final Machine _machine;
+        /** The buffer being converted. */
+        private final char[] _buf;
+        /** Bounds of my part of _buf. */
+        private final int _lo, _hi;
+    }
+
     /** return rotor array. */
     public Rotor[] getRotors() {
+        syncRotors();
         return _rotors;
     }
 
     /** Returns the encoding/decoding of MSG, updating the state of
      *  the rotors accordingly. */
     String convert(String msg) {
-        String result = "";
-        for (int i = 0; i < msg.length(); i++) {
-            char c = _alphabet.toChar(convert(_alphabet.toInt(msg.charAt(i))));
-            result += c;
+        char[] result = msg.toCharArray();
+        convert(result, 0, result.length);
+        return new String(result);
+    }
+
+    /** Replace the LEN characters of BUF starting at OFF with their
+     *  encodings/decodings, updating the state of the rotors
+     *  accordingly. */
+    void convert(char[] buf, int off, int len) {
+        for (int i = off; i < off + len; i++) {
+            if (!_alphabet.contains(buf[i])) {
+                throw error("'%c' not in alphabet", buf[i]);
+            }
+            buf[i] = _alphabet.toChar(convert(_alphabet.toInt(buf[i])));
         }
-        return result;
     }
 
+    /** Size of the pieces of a message that convertParallel converts
+     *  sequentially. */
+    static final int MIN_PARALLEL_CHUNK = 1 << 13;
+
+    /** Largest number of combined rotor positions for which
+     *  precomputeSchedule will build a schedule. */
+    static final long MAX_SCHEDULE_STATES = 1 << 21;
+
     /** Common alphabet of my rotors. */
     private final Alphabet _alphabet;
 
@@ -121,12 +381,38 @@ class Machine {
     /** Number of pawls. */
     private int _pawls;
 
-    /** All available rotors. */
-    private Object[] _allRotors;
+    /** All available rotors, indexed by name. */
+    private HashMap<String, Rotor> _allRotors;
 
     /** List of currently used rotors. */
     private Rotor[] _rotors;
 
     /** Plugboard permutation. */
     private Permutation _plugboard;
+
+    /** The plugboard permutation as a table indexed by input. */
+    private int[] _plug;
+
+    /** _forward[i] is the forwardTable() of _rotors[i]. */
+    private int[][] _forward;
+
+    /** _backward[i] is the backwardTable() of _rotors[i]. */
+    private int[][] _backward;
+
+    /** Work area for the row offsets of my rotors' tables in convert. */
+    private int[] _offsets;
+
+    /** The precomputed stepping schedule, or null if there is none.
+     *  Entry K * numRotors() + I is the setting of rotor I times the
+     *  alphabet size during the K-th keystroke. */
+    private int[] _schedule;
+
+    /** Number of keystrokes in _schedule. */
+    private int _scheduleLength;
+
+    /** Keystroke in _schedule that follows the last one. */
+    private int _scheduleLoop;
+
+    /** Keystroke in _schedule last converted, or -1 if none yet. */
+    private int _schedulePos;
 }
@@ -0,0 +1,147 @@
+package enigma;
+
+import org.junit.Test;
+import org.junit.Rule;
+import org.junit.rules.Timeout;
+import static org.junit.Assert.*;
+
+import java.util.ArrayList;
+import java.util.Random;
+
+import static enigma.TestUtils.*;
+
+/** The suite of all JUnit tests for the Machine class.
+ *  @author Brian Faun
+ */
+public class MachineTest {
+
+    /** Testing time limit. */
+    @Rule
+    public Timeout globalTimeout = Timeout.seconds(5);
+
+    /* ***** TESTING UTILITIES ***** */
+
+    /** Notches of the naval moving rotors. */
+    private static final String[][] NOTCHES = {
+        { "I", "Q" }, { "II", "E" }, { "III", "V" }, { "IV", "J" },
+        { "V", "Z" }, { "VI", "ZM" }, { "VII", "ZM" }, { "VIII", "ZM" },
+    };
+
+    /** Return a 5-rotor, 3-pawl machine with the naval rotors, set up
+     *  with rotors ROTORS at SETTING and an identity plugboard. */
+    private Machine navalMachine(String[] rotors, String setting) {
+        ArrayList<Rotor> all = new ArrayList<>();
+        for (String[] m : NOTCHES) {
+            all.add(new MovingRotor(m[0], new Permutation(NAVALA.get(m[0]),
+                                                          UPPER), m[1]));
+        }
+        all.add(new FixedRotor("Beta", new Permutation(NAVALA.get("Beta"),
+                                                       UPPER)));
+        all.add(new FixedRotor("Gamma", new Permutation(NAVALA.get("Gamma"),
+                                                        UPPER)));
+        all.add(new Reflector("B", new Permutation(NAVALA.get("B"), UPPER)));
+        all.add(new Reflector("C", new Permutation(NAVALA.get("C"), UPPER)));
+        Machine mach = new Machine(UPPER, 5, 3, all);
+        mach.insertRotors(rotors);
+        mach.setRotors(setting);
+        mach.setPlugboard(new Permutation("", UPPER));
+        return mach;
+    }
+
+    /** Return the settings of the rotors of MACH as a string. */
+    private String settings(Machine mach) {
+        String result = "";
+        for (Rotor r : mach.getRotors()) {
+            result += UPPER.toChar(r.setting());
+        }
+        return result;
+    }
+
+    /** Return a random message of length N. */
+    private String randomMessage(int n) {
+        Random rand = new Random(n);
+        char[] msg = new char[n];
+        for (int i = 0; i < n; i += 1) {
+            msg[i] = UPPER.toChar(rand.nextInt(UPPER.size()));
+        }
+        return new String(msg);
+    }
+
+    /* ***** TESTS ***** */
+
+    @Test
+    public void checkConvert() {
+        Machine mach = navalMachine(new String[] {"B", "Beta", "III",
+                                                  "IV", "I"}, "AXLE");
+        mach.setPlugboard(new Permutation("(HQ) (EX) (IP) (TR) (BY)",
+                                          UPPER));
+        assertEquals("QVPQSOKOILPUBKJZPISFXDW",
+                     mach.convert("FROMHISSHOULDERHIAWATHA"));
+    }
+
+    @Test
+    public void checkDoubleStep() {
+        Machine mach = navalMachine(new String[] {"B", "Beta", "III",
+                                                  "II", "I"}, "AADQ");
+        mach.convert("A");
+        assertEquals("AAER", settings(mach).substring(1));
+        mach.convert("A");
+        assertEquals("ABFS", settings(mach).substring(1));
+        mach.convert("A");
+        assertEquals("ABFT", settings(mach).substring(1));
+    }
+
+    @Test
+    public void checkFastForward() {
+        String[] rotors = {"B", "Gamma", "VI", "II", "VIII"};
+        for (int steps : new int[] {0, 1, 25, 26, 27, 700, 17577, 40000}) {
+            Machine slow = navalMachine(rotors, "AZDY");
+            Machine fast = navalMachine(rotors, "AZDY");
+            for (int i = 0; i < steps; i += 1) {
+                slow.convert(0);
+            }
+            fast.fastForward(steps);
+            assertEquals("after " + steps, settings(slow), settings(fast));
+        }
+    }
+
+    @Test
+    public void checkConvertParallel() {
+        String[] rotors = {"C", "Beta", "V", "II", "VII"};
+        String msg = randomMessage(10 * Machine.MIN_PARALLEL_CHUNK + 17);
+        Machine seq = navalMachine(rotors, "QDEZ");
+        Machine par = navalMachine(rotors, "QDEZ");
+        char[] buf = msg.toCharArray();
+        par.convertParallel(buf, 0, buf.length);
+        assertEquals(seq.convert(msg), new String(buf));
+        assertEquals(settings(seq), settings(par));
+    }
+
+    @Test
+    public void checkSchedule() {
+        String[] rotors = {"B", "Beta", "III", "II", "I"};
+        String msg = randomMessage(20000);
+        Machine plain = navalMachine(rotors, "AADQ");
+        Machine sched = navalMachine(rotors, "AADQ");
+        assertTrue(sched.precomputeSchedule());
+        assertEquals(plain.convert(msg), sched.convert(msg));
+        assertEquals(settings(plain), settings(sched));
+        plain.fastForward(123456);
+        sched.fastForward(123456);
+        assertEquals(settings(plain), settings(sched));
+        assertEquals(plain.convert(msg), sched.convert(msg));
+    }
+
+    @Test
+    public void checkStepsToNotch() {
+        Rotor r = new MovingRotor("VI", new Permutation(NAVALA.get("VI"),
+                                                        UPPER), "ZM");
+        r.set('A');
+        assertEquals(12, r.stepsToNotch());
+        r.set('M');
+        assertEquals(0, r.stepsToNotch());
+        r.set('N');
+        assertEquals(12, r.stepsToNotch());
+    }
+
+}
@@ -1,11 +1,25 @@
 package enigma;
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
 import java.io.File;
+import java.io.FileReader;
+import java.io.FileWriter;
 import java.io.IOException;
-import java.io.PrintStream;
-import java.util.ArrayList;
-import java.util.NoSuchElementException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Reader;
+import java.io.Writer;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
 import java.util.Scanner;
 import static enigma.EnigmaException.*;
+import static java.nio.file.StandardOpenOption.*;
 
 /** Enigma simulator.
  *  @author Brian Faun
@@ -20,7 +34,15 @@ public final class Main {
      *  input.  ARGS[2] is optional; when present, it names an output
      *  file for processed messages.  Otherwise, output goes to the
      *  standard output. Exits normally if there are no errors in the input;
-     *  otherwise with code 1. */
+     *  otherwise with code 1.
+     *
+     *  The file arguments may be preceded by options.  With --mapped,
+     *  there must be exactly three file arguments, and the input is
+     *  memory-mapped and processed as bytes in a single-byte encoding
+     *  rather than read through a Reader.  With --parallel, each block
+     *  of message text is converted on all available cores.  With
+     *  --schedule, the full cycle of rotor positions is precomputed after
+     *  each setting line, so that stepping is a table lookup.  */
     public static void main(String... args) {
         try {
             new Main(args).process();
@@ -33,21 +55,50 @@ public final class Main {
 
     /** Check ARGS and open the necessary files (see comment on main). */
     Main(String[] args) {
+        int k;
+        for (k = 0; k < args.length && args[k].startsWith("--"); k += 1) {
+            switch (args[k]) {
+            case "--mapped":
+                _mapped = true;
+                break;
+            case "--parallel":
+                _parallel = true;
+                break;
+            case "--schedule":
+                _schedule = true;
+                break;
+            default:
+                throw error("unknown option: %s", args[k]);
+            }
+        }
+        args = Arrays.copyOfRange(args, k, args.length);
+        if (_mapped) {
+            if (args.length != 3) {
+                throw error("--mapped requires configuration, input, and "
+                            + "output files");
+            }
+            _config = getInput(args[0]);
+            _mappedInput = Paths.get(args[1]);
+            _mappedOutput = Paths.get(args[2]);
+            return;
+        }
         if (args.length < 1 || args.length > 3) {
             throw error("Only 1, 2, or 3 command-line arguments allowed");
         }
 
         _config = getInput(args[0]);
         if (args.length > 1) {
-            _input = getInput(args[1]);
+            _input = getReader(args[1]);
         } else {
-            _input = new Scanner(System.in);
+            _input = new BufferedReader(new InputStreamReader(System.in),
+                                        BUFFER_SIZE);
         }
 
         if (args.length > 2) {
             _output = getOutput(args[2]);
         } else {
-            _output = System.out;
+            _output = new BufferedWriter(new OutputStreamWriter(System.out),
+                                         BUFFER_SIZE);
         }
     }
 
@@ -60,10 +111,19 @@ public final class Main {
         }
     }
 
-    /** Return a PrintStream writing to the file named KNAME. */
-    private PrintStream getOutput(String kname) {
+    /** Return a buffered Reader reading from the file named JNAME. */
+    private Reader getReader(String jname) {
         try {
-            return new PrintStream(new File(kname));
+            return new BufferedReader(new FileReader(jname), BUFFER_SIZE);
+        } catch (IOException excp) {
+            throw error("could not open %s", jname);
+        }
+    }
+
+    /** Return a buffered Writer writing to the file named KNAME. */
+    private Writer getOutput(String kname) {
+        try {
+            return new BufferedWriter(new FileWriter(kname), BUFFER_SIZE);
         } catch (IOException excp) {
             throw error("could not open %s", kname);
         }
@@ -71,146 +131,270 @@ public final class Main {
 
     /** Configure an Enigma machine from the contents of configuration
      *  file _config and apply it to the messages in _input, sending the
-     *  results to _output. */
+     *  results to _output.  Input is read a block at a time into one
+     *  reusable buffer, so memory use does not depend on the length of
+     *  the input or of any message line. */
     private void process() {
         Machine mach = readConfig();
-        String setting = _input.nextLine();
-        String message = "";
-        setUp(mach, setting);
-        while (_input.hasNextLine()) {
-            String next = _input.nextLine();
-            if (next.contains("*")) {
-                setUp(mach, next);
-            } else {
-                message = mach.convert(next.replaceAll(" ", ""));
-                printMessageLine(message);
+        char[] in = new char[BUFFER_SIZE];
+        char[] out = new char[2 * BUFFER_SIZE];
+        try {
+            if (_mapped) {
+                processMapped(mach, in, out);
+                return;
+            }
+            try {
+                int n;
+                while ((n = _input.read(in)) > 0) {
+                    _output.write(out, 0, processBlock(mach, in, n, out));
+                }
+                _output.write(out, 0, finishInput(mach, out));
+            } finally {
+                _output.flush();
             }
+        } catch (IOException excp) {
+            throw error("I/O error: %s", excp.getMessage());
         }
     }
 
-    /** Return an Enigma machine configured from the contents of configuration
-     *  file _config. */
-    private Machine readConfig() {
-        try {
-            String a = _config.next();
-            if (a.contains("(") || a.contains(")") || a.contains("*")) {
-                throw new EnigmaException("Wrong config format");
+    /** Apply machine M to the memory-mapped file _mappedInput, writing the
+     *  results to _mappedOutput through a direct buffer.  Each byte is
+     *  taken as one character, so the alphabet must consist of characters
+     *  below 256.  IN and OUT are work buffers as for processBlock. */
+    private void processMapped(Machine M, char[] in, char[] out)
+        throws IOException {
+        for (int i = 0; i < _alphabet.size(); i += 1) {
+            if (_alphabet.toChar(i) > MAX_BYTE_CHAR) {
+                throw error("--mapped requires a single-byte alphabet");
             }
-            _alphabet = new Alphabet(a);
-            int numRotors = _config.nextInt();
-            int pawls = _config.nextInt();
-            _allRotors = new ArrayList<>();
-            while (_config.hasNext()) {
-                _allRotors.add(readRotor());
+        }
+        try (FileChannel src = FileChannel.open(_mappedInput, READ);
+             FileChannel dst = FileChannel.open(_mappedOutput, WRITE,
+                                                CREATE, TRUNCATE_EXISTING)) {
+            ByteBuffer outBytes = ByteBuffer.allocateDirect(out.length);
+            long size = src.size();
+            for (long pos = 0; pos < size; pos += MAP_SIZE) {
+                MappedByteBuffer map =
+                    src.map(FileChannel.MapMode.READ_ONLY, pos,
+                            Math.min(MAP_SIZE, size - pos));
+                while (map.hasRemaining()) {
+                    int n = Math.min(in.length, map.remaining());
+                    for (int i = 0; i < n; i += 1) {
+                        in[i] = (char) (map.get() & MAX_BYTE_CHAR);
+                    }
+                    writeBytes(dst, outBytes, out,
+                               processBlock(M, in, n, out));
+                }
             }
-            return new Machine(_alphabet, numRotors, pawls, _allRotors);
-        } catch (NoSuchElementException excp) {
-            throw error("configuration file truncated");
+            writeBytes(dst, outBytes, out, finishInput(M, out));
         }
     }
 
-    /** Return a rotor, reading its description from _config. */
-    private Rotor readRotor() {
-        try {
-            String rname = _config.next();
-            String type = _config.next();
-            String cycles = "";
-            while (_config.hasNext("\\(.*\\)")) {
-                cycles += _config.next();
+    /** Write OUT[0 .. N-1] to DST as single bytes, staging them in BYTES. */
+    private void writeBytes(FileChannel dst, ByteBuffer bytes, char[] out,
+                            int n) throws IOException {
+        bytes.clear();
+        for (int i = 0; i < n; i += 1) {
+            bytes.put((byte) out[i]);
+        }
+        bytes.flip();
+        while (bytes.hasRemaining()) {
+            dst.write(bytes);
+        }
+    }
+
+    /** Complete processing at the end of the input using machine M:
+     *  apply any unterminated setting line, or end an unterminated
+     *  message line.  Place any output in OUT and return its length. */
+    private int finishInput(Machine M, char[] out) {
+        if (_setting != null) {
+            setUp(M, _setting.toString().trim());
+            _setting = null;
+        } else if (!_lineStart) {
+            out[0] = '\n';
+            _lineStart = true;
+            return 1;
+        }
+        return 0;
+    }
+
+    /** Process the N characters in IN, which continue wherever the
+     *  previous block left off, using machine M.  Message characters are
+     *  converted in place in IN.  Place the formatted output in OUT,
+     *  which must have room for 2 * N characters, and return the number
+     *  of output characters. */
+    private int processBlock(Machine M, char[] in, int n, char[] out) {
+        int o = 0;
+        int i = 0;
+        while (i < n) {
+            if (_setting != null || (_lineStart && in[i] == '*')) {
+                if (_setting == null) {
+                    _setting = new StringBuilder();
+                }
+                while (i < n && in[i] != '\n') {
+                    _setting.append(in[i]);
+                    i += 1;
+                }
+                if (i < n) {
+                    setUp(M, _setting.toString().trim());
+                    _configured = true;
+                    _setting = null;
+                    i += 1;
+                }
+                continue;
             }
-            Permutation perm = new Permutation(cycles, _alphabet);
-            if (type.charAt(0) == 'M') {
-                String notches = "";
-                for (int i = 1; i < type.length(); i++) {
-                    notches += type.charAt(i);
+            int start = i, k = i;
+            while (i < n && in[i] != '\n') {
+                if (!Character.isWhitespace(in[i])) {
+                    in[k] = in[i];
+                    k += 1;
                 }
-                return new MovingRotor(rname, perm, notches);
-            } else if (type.charAt(0) == 'N') {
-                return new FixedRotor(rname, perm);
-            } else if (type.charAt(0) == 'R') {
-                return new Reflector(rname, perm);
+                i += 1;
+            }
+            if (k > start && !_configured) {
+                throw error("message without a configuration");
+            }
+            if (_parallel) {
+                M.convertParallel(in, start, k - start);
             } else {
-                throw new EnigmaException("no rotor");
+                M.convert(in, start, k - start);
+            }
+            o = formatGroups(in, start, k, out, o);
+            if (i < n) {
+                out[o] = '\n';
+                o += 1;
+                _column = 0;
+                _lineStart = true;
+                i += 1;
+            } else if (i > start) {
+                _lineStart = false;
             }
-        } catch (NoSuchElementException excp) {
-            throw error("bad rotor description");
         }
+        return o;
     }
 
-    /** Set M according to the specification given on SETTINGS,
-     *  which must have the format specified in the assignment. */
-    private void setUp(Machine M, String settings) {
-        String[] setArr = settings.split(" ");
-        boolean reflects = false;
-        if (!setArr[0].equals("*")) {
-            throw new EnigmaException("illegal symbol start");
-        }
-        for (int i = 0; i < _allRotors.size(); i++) {
-            if (_allRotors.get(i).reflecting()) {
-                if (_allRotors.get(i).name().equals(setArr[1])) {
-                    reflects = true;
-                    break;
-                }
+    /** Copy the converted characters MSG[START .. END-1] into OUT
+     *  starting at O, in groups of five separated by blanks, continuing
+     *  any group begun earlier on the current line.  Return the
+     *  position in OUT following the last character copied. */
+    private int formatGroups(char[] msg, int start, int end, char[] out,
+                             int o) {
+        for (int i = start; i < end; i += 1) {
+            if (_column > 0 && _column % GROUP_SIZE == 0) {
+                out[o] = ' ';
+                o += 1;
             }
+            out[o] = msg[i];
+            o += 1;
+            _column += 1;
         }
-        if (M.numRotors() + 2 > setArr.length) {
-            throw new EnigmaException("wrong number of rotors");
-        }
-        if (!reflects) {
-            throw new EnigmaException("wrong, reflector");
+        return o;
+    }
+
+    /** Return an Enigma machine configured from the contents of configuration
+     *  file _config. */
+    private Machine readConfig() {
+        _configuration = Configuration.read(_config);
+        _alphabet = _configuration.alphabet();
+        return _configuration.newMachine();
+    }
+
+    /** Set M according to the specification given on SETTINGS,
+     *  which must have the format specified in the assignment.  Parsed
+     *  setting lines are kept in an LRU cache, so that a repeated line is
+     *  applied without being reparsed. */
+    private void setUp(Machine M, String settings) {
+        Setting setting = _settings.get(settings);
+        if (setting == null) {
+            setting = Setting.parse(settings, _configuration, _plugboards);
+            _settings.put(settings, setting);
         }
-        String set = setArr[M.numRotors() + 1];
-        if (set.length() != M.numRotors() - 1) {
-            throw new EnigmaException("wrong setting format 1");
+        setting.apply(M);
+        if (_schedule) {
+            M.precomputeSchedule();
         }
-        for (int i = 0; i < set.length(); i++) {
-            if (!_alphabet.contains(set.charAt(i))) {
-                throw new EnigmaException("wrong setting format 2");
-            }
+    }
+
+    /** A map that holds at most CAPACITY entries, discarding the least
+     *  recently used entry when full. */
+    private static class LruCache<K, V> extends LinkedHashMap<K, V> {
+        /** An empty cache holding at most CAPACITY entries. */
+        LruCache(int capacity) {
+            super(16, 0.75f, true);
+            _capacity = capacity;
         }
-        String[] rotors = new String[M.numRotors()];
-        String cycles = "";
-        if (setArr[0].equals("*")) {
-            for (int i = 0; i < rotors.length; i++) {
-                rotors[i] = setArr[i + 1];
-            }
-            for (int i = M.numRotors() + 2; i < setArr.length; i++) {
-                cycles += setArr[i];
-            }
-            Permutation perm = new Permutation(cycles, _alphabet);
-            M.setPlugboard(perm);
-            M.insertRotors(rotors);
-            M.setRotors(set);
-        } else {
-            throw new EnigmaException("wrong setting format 3");
+
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<K, V> eldest) {
+            return size() > _capacity;
         }
-    }
 
-    /** Print MSG in groups of five (except that the last group may
-     *  have fewer letters). */
-    private void printMessageLine(String msg) {
-        msg = msg.replace(" ", "");
-        String result = "";
-        while (msg.length() >= 6) {
-            result += msg.substring(0, 5) + " ";
-            msg = msg.substring(5);
-        }
-        result += msg;
-        _output.println(result);
+        /** Maximum number of entries. */
+        private final int _capacity;
     }
 
+    /** Maximum number of parsed setting lines and plugboards cached. */
+    static final int SETTING_CACHE_SIZE = 256;
+
+    /** Size of the input and output buffers, in characters. */
+    static final int BUFFER_SIZE = 1 << 16;
+
+    /** Number of characters in each output group. */
+    static final int GROUP_SIZE = 5;
+
+    /** Maximum number of bytes of input mapped at once in --mapped mode. */
+    static final long MAP_SIZE = 1 << 26;
+
+    /** Largest character that fits in one byte in --mapped mode. */
+    static final int MAX_BYTE_CHAR = 0xff;
+
     /** Alphabet used in this machine. */
     private Alphabet _alphabet;
 
     /** Source of input messages. */
-    private Scanner _input;
+    private Reader _input;
 
     /** Source of machine configuration. */
     private Scanner _config;
 
     /** File for encoded/decoded messages. */
-    private PrintStream _output;
+    private Writer _output;
+
+    /** True iff the --mapped option was given. */
+    private boolean _mapped;
+
+    /** True iff the --parallel option was given. */
+    private boolean _parallel;
+
+    /** True iff the --schedule option was given. */
+    private boolean _schedule;
+
+    /** Input file to be memory-mapped in --mapped mode. */
+    private Path _mappedInput;
+
+    /** Output file in --mapped mode. */
+    private Path _mappedOutput;
+
+    /** True iff the next input character begins a line. */
+    private boolean _lineStart = true;
+
+    /** True iff a setting line has been processed. */
+    private boolean _configured;
+
+    /** The setting line read so far, if one is in progress, else null. */
+    private StringBuilder _setting;
+
+    /** Number of message characters output on the current line. */
+    private int _column;
+
+    /** The parsed contents of _config. */
+    private Configuration _configuration;
+
+    /** Recently parsed setting lines. */
+    private LruCache<String, Setting> _settings =
+        new LruCache<>(SETTING_CACHE_SIZE);
 
-    /** An ArrayList containing all rotors that can be used. */
-    private ArrayList<Rotor> _allRotors = new ArrayList<>();
+    /** Recently parsed plugboards, keyed by their cycles. */
+    private LruCache<String, Permutation> _plugboards =
+        new LruCache<>(SETTING_CACHE_SIZE);
 }
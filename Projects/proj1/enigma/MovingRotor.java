@@ -1,13 +1,16 @@
 package enigma;
 
+import java.util.BitSet;
+
 import static enigma.EnigmaException.*;
 
 /** Class that represents a rotating rotor in the enigma machine.
  *  @author Brian Faun
  */
 class MovingRotor extends Rotor {
-    /** Position of notches. */
-    private String _notches;
+    /** Positions of notches: bit K is set iff there is a notch at
+     *  setting K. */
+    private final BitSet _notches;
 
     /** A rotor named NAME whose permutation in its default setting is
      *  PERM, and whose notches are at the positions indicated in NOTCHES.
@@ -15,6 +18,18 @@ class MovingRotor extends Rotor {
      *  alphabet).
      */
     MovingRotor(String name, Permutation perm, String notches) {
+        this(name, perm, new BitSet(perm.size()));
+        for (int i = 0; i < notches.length(); i++) {
+            if (!alphabet().contains(notches.charAt(i))) {
+                throw error("notch '%c' not in alphabet", notches.charAt(i));
+            }
+            _notches.set(alphabet().toInt(notches.charAt(i)));
+        }
+    }
+
+    /** A rotor named NAME with permutation PERM whose notches are at the
+     *  positions set in NOTCHES, which is shared, not copied. */
+    private MovingRotor(String name, Permutation perm, BitSet notches) {
         super(name, perm);
         _notches = notches;
     }
@@ -26,18 +41,27 @@ class MovingRotor extends Rotor {
 
     @Override
     boolean atNotch() {
-        for (int i = 0; i < _notches.length(); i++) {
-            char a = _notches.charAt(i);
-            if (alphabet().toChar(setting()) == a) {
-                return true;
-            }
+        return _notches.get(setting());
+    }
+
+    @Override
+    int stepsToNotch() {
+        int next = _notches.nextSetBit(setting());
+        if (next >= 0) {
+            return next - setting();
         }
-        return false;
+        next = _notches.nextSetBit(0);
+        return next < 0 ? -1 : next + size() - setting();
+    }
+
+    @Override
+    MovingRotor copy() {
+        return copyState(new MovingRotor(name(), permutation(), _notches));
     }
 
     @Override
     void advance() {
-        int next = permutation().wrap(setting() + 1);
-        super.set(next);
+        int next = setting() + 1;
+        super.set(next == size() ? 0 : next);
     }
 }
@@ -71,4 +71,18 @@ public class MovingRotorTest {
         checkRotor("Rotor I set", UPPER_STRING, NAVALZ_MAP.get("I"));
     }
 
+    @Test
+    public void checkOffsetTables() {
+        setRotor("III", NAVALA, "V");
+        int n = rotor.size();
+        int[] fwd = rotor.forwardTable(), bwd = rotor.backwardTable();
+        for (int s = 0; s < n; s += 1) {
+            rotor.set(s);
+            for (int p = 0; p < n; p += 1) {
+                assertEquals(rotor.convertForward(p), fwd[s * n + p]);
+                assertEquals(rotor.convertBackward(p), bwd[s * n + p]);
+            }
+        }
+    }
+
 }
@@ -3,15 +3,19 @@ package enigma;
 import static enigma.EnigmaException.*;
 
 /** Represents a permutation of a range of integers starting at 0 corresponding
- *  to the characters of an alphabet.
+ *  to the characters of an alphabet.  The cycle notation is parsed once, at
+ *  construction, into forward and inverse lookup tables, so that permute and
+ *  invert are single array loads.
  *  @author Brian Faun
  */
 class Permutation {
 
     /** Alphabet of this permutation. */
     private Alphabet _alphabet;
-    /** Cycle of this permutation. */
-    private String _cycles;
+    /** _forward[k] is the result of applying me to index K. */
+    private int[] _forward;
+    /** _inverse[k] is the result of applying my inverse to index K. */
+    private int[] _inverse;
 
     /** Set this Permutation to that specified by CYCLES, a string in the
      *  form "(cccc) (cc) ..." where the c's are characters in ALPHABET, which
@@ -20,26 +24,48 @@ class Permutation {
      *  Whitespace is ignored. */
     Permutation(String cycles, Alphabet alphabet) {
         _alphabet = alphabet;
-        _cycles = cycles;
-        boolean contains = false;
-        for (int i = 0; i < _alphabet.size(); i++) {
-            for (int j = 0; j < _cycles.length(); j++) {
-                if (_alphabet.toChar(i) == _cycles.charAt(j)) {
-                    contains = true;
-                }
+        _forward = new int[size()];
+        _inverse = new int[size()];
+        for (int i = 0; i < size(); i++) {
+            _forward[i] = _inverse[i] = i;
+        }
+        String stripped = cycles.replaceAll("\\s", "");
+        boolean[] seen = new boolean[size()];
+        int i = 0;
+        while (i < stripped.length()) {
+            if (stripped.charAt(i) != '(') {
+                throw error("bad cycle format: %s", cycles);
             }
-            if (!contains) {
-                addCycle(String.valueOf(_alphabet.toChar(i)));
+            int close = stripped.indexOf(')', i);
+            if (close < 0) {
+                throw error("unterminated cycle: %s", cycles);
             }
-            contains = false;
+            addCycle(stripped.substring(i + 1, close), seen);
+            i = close + 1;
         }
     }
 
     /** Add the cycle c0->c1->...->cm->c0 to the permutation, where CYCLE is
-     *  c0c1...cm. */
-    private void addCycle(String cycle) {
-        String adder = "(" + cycle + ")";
-        _cycles += adder;
+     *  c0c1...cm.  SEEN[k] is true iff index K appears in a cycle already
+     *  added, and is updated. */
+    private void addCycle(String cycle, boolean[] seen) {
+        for (int i = 0; i < cycle.length(); i++) {
+            char c = cycle.charAt(i);
+            if (!_alphabet.contains(c)) {
+                throw error("'%c' not in alphabet", c);
+            }
+            int k = _alphabet.toInt(c);
+            if (seen[k]) {
+                throw error("'%c' appears in more than one cycle", c);
+            }
+            seen[k] = true;
+        }
+        for (int i = 0; i < cycle.length(); i++) {
+            int f = _alphabet.toInt(cycle.charAt(i));
+            int t = _alphabet.toInt(cycle.charAt((i + 1) % cycle.length()));
+            _forward[f] = t;
+            _inverse[t] = f;
+        }
     }
 
     /** Return the value of P modulo the size of this permutation. */
@@ -59,41 +85,13 @@ class Permutation {
     /** Return the result of applying this permutation to P modulo the
      *  alphabet size. */
     int permute(int p) {
-        char a = _alphabet.toChar(wrap(p));
-        char perm = '-';
-        for (int i = 0; i < _cycles.length(); i++) {
-            if (_cycles.charAt(i) == a && _cycles.charAt(i + 1) != ')') {
-                perm = _cycles.charAt(i + 1);
-            } else if (_cycles.charAt(i) == a && _cycles.charAt(i + 1) == ')') {
-                for (int j = 0; j < _cycles.length(); j++) {
-                    if (_cycles.charAt(i - j) == '(') {
-                        perm = _cycles.charAt(i - j + 1);
-                        break;
-                    }
-                }
-            }
-        }
-        return _alphabet.toInt(perm);
+        return _forward[wrap(p)];
     }
 
     /** Return the result of applying the inverse of this permutation
      *  to  C modulo the alphabet size. */
     int invert(int c) {
-        char a = _alphabet.toChar(wrap(c));
-        char perm = '-';
-        for (int i = 0; i < _cycles.length(); i++) {
-            if (_cycles.charAt(i) == a && _cycles.charAt(i - 1) != '(') {
-                perm = _cycles.charAt(i - 1);
-            } else if (_cycles.charAt(i) == a && _cycles.charAt(i - 1) == '(') {
-                for (int j = 0; j < _cycles.length(); j++) {
-                    if (_cycles.charAt(i + j) == ')') {
-                        perm = _cycles.charAt(i + j - 1);
-                        break;
-                    }
-                }
-            }
-        }
-        return _alphabet.toInt(perm);
+        return _inverse[wrap(c)];
     }
 
     /** Return the result of applying this permutation to the index of P
@@ -102,9 +100,7 @@ class Permutation {
         if (!_alphabet.contains(p)) {
             throw new EnigmaException("Not in alphabet!");
         }
-        int a = _alphabet.toInt(p);
-        int b = permute(a);
-        return _alphabet.toChar(b);
+        return _alphabet.toChar(_forward[_alphabet.toInt(p)]);
     }
 
     /** Return the result of applying the inverse of this permutation to C. */
@@ -112,9 +108,7 @@ class Permutation {
         if (!_alphabet.contains(c)) {
             throw new EnigmaException("Not in alphabet!");
         }
-        int a = _alphabet.toInt(c);
-        int b = invert(a);
-        return _alphabet.toChar(b);
+        return _alphabet.toChar(_inverse[_alphabet.toInt(c)]);
     }
 
     /** Return the alphabet used to initialize this Permutation. */
@@ -125,8 +119,8 @@ class Permutation {
     /** Return true iff this permutation is a derangement (i.e., a
      *  permutation for which no value maps to itself). */
     boolean derangement() {
-        for (int i = 0; i < _cycles.length(); i++) {
-            if (_cycles.charAt(i) == '(' && _cycles.charAt(i + 2) == ')') {
+        for (int i = 0; i < size(); i++) {
+            if (_forward[i] == i) {
                 return false;
             }
         }
@@ -0,0 +1,125 @@
+package enigma;
+
+import java.util.Random;
+
+import static enigma.TestUtils.*;
+
+/** Timing comparison of table-driven Permutation lookups against the
+ *  original approach of scanning the cycle string on every call.
+ *  @author Brian Faun
+ */
+public class PermutationBenchmark {
+
+    /** Default number of lookups per timed run. */
+    static final int DEFAULT_LOOKUPS = 10_000_000;
+
+    /** Number of untimed warm-up runs before measuring. */
+    static final int WARMUPS = 3;
+
+    /** Time one permute/invert pair for each of INPUTS on the rotors of
+     *  NAVALA, using table-driven Permutations, or the string scanning
+     *  version if SCANNING.  Returns lookups per second. */
+    static double time(boolean scanning, int[] inputs) {
+        String[] names = NAVALA.keySet().toArray(new String[0]);
+        Permutation[] tables = new Permutation[names.length];
+        ScanningPermutation[] scans = new ScanningPermutation[names.length];
+        for (int i = 0; i < names.length; i++) {
+            tables[i] = new Permutation(NAVALA.get(names[i]), UPPER);
+            scans[i] = new ScanningPermutation(NAVALA.get(names[i]), UPPER);
+        }
+        int sink = 0;
+        long start = System.nanoTime();
+        for (int i = 0; i < inputs.length; i++) {
+            int k = i % names.length;
+            if (scanning) {
+                sink += scans[k].invert(scans[k].permute(inputs[i]));
+            } else {
+                sink += tables[k].invert(tables[k].permute(inputs[i]));
+            }
+        }
+        long elapsed = System.nanoTime() - start;
+        if (sink == -1) {
+            System.out.print("");
+        }
+        return 2.0 * inputs.length / (elapsed * 1e-9);
+    }
+
+    /** Run the comparison.  ARGS[0], if present, is the number of
+     *  lookups per run. */
+    public static void main(String[] args) {
+        int n = args.length > 0 ? Integer.parseInt(args[0]) : DEFAULT_LOOKUPS;
+        Random rand = new Random(61);
+        int[] inputs = new int[n];
+        for (int i = 0; i < n; i++) {
+            inputs[i] = rand.nextInt(UPPER.size());
+        }
+        for (int i = 0; i < WARMUPS; i++) {
+            time(true, inputs);
+            time(false, inputs);
+        }
+        double scan = time(true, inputs);
+        double table = time(false, inputs);
+        System.out.printf("string scanning: %.3e lookups/sec%n", scan);
+        System.out.printf("lookup tables:   %.3e lookups/sec%n", table);
+        System.out.printf("speedup:         %.1fx%n", table / scan);
+    }
+
+    /** The original Permutation, which searches its cycle string on
+     *  every lookup.  Kept only as a baseline for comparison. */
+    static class ScanningPermutation {
+
+        /** A permutation of ALPHABET given by CYCLES. */
+        ScanningPermutation(String cycles, Alphabet alphabet) {
+            _alphabet = alphabet;
+            _cycles = cycles.replaceAll("\\s", "");
+            for (int i = 0; i < _alphabet.size(); i++) {
+                if (_cycles.indexOf(_alphabet.toChar(i)) < 0) {
+                    _cycles += "(" + _alphabet.toChar(i) + ")";
+                }
+            }
+        }
+
+        /** Return the result of applying this permutation to P. */
+        int permute(int p) {
+            char a = _alphabet.toChar(p);
+            char perm = '-';
+            for (int i = 0; i < _cycles.length(); i++) {
+                if (_cycles.charAt(i) == a && _cycles.charAt(i + 1) != ')') {
+                    perm = _cycles.charAt(i + 1);
+                } else if (_cycles.charAt(i) == a) {
+                    for (int j = 0; j < _cycles.length(); j++) {
+                        if (_cycles.charAt(i - j) == '(') {
+                            perm = _cycles.charAt(i - j + 1);
+                            break;
+                        }
+                    }
+                }
+            }
+            return _alphabet.toInt(perm);
+        }
+
+        /** Return the result of applying the inverse permutation to C. */
+        int invert(int c) {
+            char a = _alphabet.toChar(c);
+            char perm = '-';
+            for (int i = 0; i < _cycles.length(); i++) {
+                if (_cycles.charAt(i) == a && _cycles.charAt(i - 1) != '(') {
+                    perm = _cycles.charAt(i - 1);
+                } else if (_cycles.charAt(i) == a) {
+                    for (int j = 0; j < _cycles.length(); j++) {
+                        if (_cycles.charAt(i + j) == ')') {
+                            perm = _cycles.charAt(i + j - 1);
+                            break;
+                        }
+                    }
+                }
+            }
+            return _alphabet.toInt(perm);
+        }
+
+        /** Alphabet of this permutation. */
+        private Alphabet _alphabet;
+        /** Cycles of this permutation, including singletons. */
+        private String _cycles;
+    }
+}
@@ -98,4 +98,34 @@ public class PermutationTest {
         p.permute('F');
         p.permute(5);
     }
+
+    @Test
+    public void checkNavalTables() {
+        for (String name : NAVALA_MAP.keySet()) {
+            perm = new Permutation(NAVALA.get(name), UPPER);
+            checkPerm(name, UPPER_STRING, NAVALA_MAP.get(name));
+        }
+    }
+
+    @Test
+    public void checkDerangement() {
+        assertTrue(new Permutation(NAVALA.get("B"), UPPER).derangement());
+        assertFalse(new Permutation(NAVALA.get("I"), UPPER).derangement());
+        assertFalse(new Permutation("(AB)", UPPER).derangement());
+    }
+
+    @Test(expected = EnigmaException.class)
+    public void testDuplicateInCycles() {
+        new Permutation("(ABC)(CD)", UPPER);
+    }
+
+    @Test(expected = EnigmaException.class)
+    public void testDuplicateOfSingleton() {
+        new Permutation("(A)(AB)", UPPER);
+    }
+
+    @Test(expected = EnigmaException.class)
+    public void testCycleTargetNotInAlphabet() {
+        new Permutation("(A1)", UPPER);
+    }
 }
@@ -0,0 +1,126 @@
+package enigma;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.util.Random;
+
+import static enigma.TestUtils.*;
+
+/** Timing of setting-line processing in Main, for input in which the
+ *  setting lines are all distinct and for input that repeats a few of
+ *  them, so that the effect of the setting cache can be seen.
+ *  @author Brian Faun
+ */
+public class ReconfigurationBenchmark {
+
+    /** Default number of setting lines per run. */
+    static final int DEFAULT_LINES = 50_000;
+
+    /** Number of distinct setting lines in the repetitive input. */
+    static final int REPEATED = 16;
+
+    /** Number of plugboard pairs per setting line. */
+    static final int PLUGS = 5;
+
+    /** Notches of the naval moving rotors. */
+    static final String[][] MOVING = {
+        { "I", "Q" }, { "II", "E" }, { "III", "V" }, { "IV", "J" },
+        { "V", "Z" }, { "VI", "ZM" }, { "VII", "ZM" }, { "VIII", "ZM" },
+    };
+
+    /** Write a configuration for the naval machine to CONF. */
+    static void writeConfig(File conf) throws IOException {
+        try (PrintWriter out = new PrintWriter(conf)) {
+            out.println(UPPER_STRING);
+            out.println("5 3");
+            for (String[] m : MOVING) {
+                out.printf("%s M%s %s%n", m[0], m[1], NAVALA.get(m[0]));
+            }
+            out.printf("Beta N %s%n", NAVALA.get("Beta"));
+            out.printf("Gamma N %s%n", NAVALA.get("Gamma"));
+            out.printf("B R %s%n", NAVALA.get("B"));
+            out.printf("C R %s%n", NAVALA.get("C"));
+        }
+    }
+
+    /** Return a random setting line, chosen using RAND. */
+    static String randomSetting(Random rand) {
+        String line = "* " + (rand.nextBoolean() ? "B" : "C")
+            + (rand.nextBoolean() ? " Beta" : " Gamma");
+        int first = rand.nextInt(MOVING.length);
+        for (int i = 0; i < 3; i++) {
+            line += " " + MOVING[(first + i) % MOVING.length][0];
+        }
+        line += " ";
+        for (int i = 0; i < 4; i++) {
+            line += UPPER.toChar(rand.nextInt(UPPER.size()));
+        }
+        char[] letters = UPPER_STRING.toCharArray();
+        for (int i = 0; i < PLUGS; i++) {
+            for (int k = 0; k < 2; k++) {
+                int j = 2 * i + k
+                    + rand.nextInt(letters.length - 2 * i - k);
+                char tmp = letters[2 * i + k];
+                letters[2 * i + k] = letters[j];
+                letters[j] = tmp;
+            }
+            line += String.format(" (%c%c)", letters[2 * i],
+                                  letters[2 * i + 1]);
+        }
+        return line;
+    }
+
+    /** Write LINES setting lines to INPUT, each followed by a short
+     *  message, drawing the lines from a pool of DISTINCT settings. */
+    static void writeInput(File input, int lines, int distinct)
+        throws IOException {
+        Random rand = new Random(61);
+        String[] pool = new String[distinct];
+        for (int i = 0; i < distinct; i++) {
+            pool[i] = randomSetting(rand);
+        }
+        try (PrintWriter out = new PrintWriter(input)) {
+            for (int i = 0; i < lines; i++) {
+                out.println(pool[i % distinct]);
+                out.println("HELLO WORLD");
+            }
+        }
+    }
+
+    /** Return the average time in microseconds per setting line to run
+     *  Main on CONF and INPUT, which has LINES setting lines, writing
+     *  to OUTPUT. */
+    static double time(File conf, File input, File output, int lines) {
+        long start = System.nanoTime();
+        Main.main(conf.getPath(), input.getPath(), output.getPath());
+        return (System.nanoTime() - start) * 1e-3 / lines;
+    }
+
+    /** Run the comparison.  ARGS[0], if present, is the number of
+     *  setting lines per run. */
+    public static void main(String[] args) throws IOException {
+        int lines = args.length > 0 ? Integer.parseInt(args[0])
+            : DEFAULT_LINES;
+        File conf = File.createTempFile("enigma", ".conf");
+        File distinct = File.createTempFile("distinct", ".in");
+        File repeated = File.createTempFile("repeated", ".in");
+        File output = File.createTempFile("enigma", ".out");
+        try {
+            writeConfig(conf);
+            writeInput(distinct, lines, lines);
+            writeInput(repeated, lines, REPEATED);
+            time(conf, distinct, output, lines);
+            time(conf, repeated, output, lines);
+            System.out.printf("distinct settings: %.2f usec/setting%n",
+                              time(conf, distinct, output, lines));
+            System.out.printf("repeated settings: %.2f usec/setting%n",
+                              time(conf, repeated, output, lines));
+        } finally {
+            conf.delete();
+            distinct.delete();
+            repeated.delete();
+            output.delete();
+        }
+    }
+}
@@ -73,16 +73,73 @@ class Rotor {
         return _permutation.wrap(a - _setting);
     }
 
+    /** Return a table of convertForward over all settings: entry
+     *  S * size() + P is the conversion of P when my setting is S.  The
+     *  table depends only on my permutation, so it is built once. */
+    int[] forwardTable() {
+        if (_forwardTable == null) {
+            _forwardTable = offsetTable(false);
+        }
+        return _forwardTable;
+    }
+
+    /** Return a table of convertBackward over all settings, laid out as
+     *  for forwardTable(). */
+    int[] backwardTable() {
+        if (_backwardTable == null) {
+            _backwardTable = offsetTable(true);
+        }
+        return _backwardTable;
+    }
+
+    /** Return a (setting x input -> output) table for my permutation, or
+     *  for its inverse if INVERSE. */
+    private int[] offsetTable(boolean inverse) {
+        int n = size();
+        int[] table = new int[n * n];
+        for (int s = 0; s < n; s++) {
+            for (int p = 0; p < n; p++) {
+                int k = s + p < n ? s + p : s + p - n;
+                int a = inverse ? _permutation.invert(k)
+                    : _permutation.permute(k);
+                table[s * n + p] = _permutation.wrap(a - s);
+            }
+        }
+        return table;
+    }
+
     /** Returns true iff I am positioned to allow the rotor to my left
      *  to advance. */
     boolean atNotch() {
         return false;
     }
 
+    /** Return the smallest K >= 0 such that I will be at a notch after
+     *  advancing K times, or -1 if there is none.  By default, since I do
+     *  not advance, this is 0 if I am at a notch and otherwise -1. */
+    int stepsToNotch() {
+        return atNotch() ? 0 : -1;
+    }
+
     /** Advance me one position, if possible. By default, does nothing. */
     void advance() {
     }
 
+    /** Return a new rotor identical to me, including my current setting,
+     *  that shares my (immutable) permutation and tables. */
+    Rotor copy() {
+        return copyState(new Rotor(_name, _permutation));
+    }
+
+    /** Give COPY my setting and cached tables, and return it. */
+    <T extends Rotor> T copyState(T copy) {
+        Rotor r = copy;
+        r._setting = _setting;
+        r._forwardTable = _forwardTable;
+        r._backwardTable = _backwardTable;
+        return copy;
+    }
+
     @Override
     public String toString() {
         return "Rotor " + _name;
@@ -96,4 +153,10 @@ class Rotor {
 
     /** Rotor's setting, default 0. */
     private int _setting;
+
+    /** Cached result of forwardTable(), or null if not yet built. */
+    private int[] _forwardTable;
+
+    /** Cached result of backwardTable(), or null if not yet built. */
+    private int[] _backwardTable;
 }
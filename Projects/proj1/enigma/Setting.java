@@ -0,0 +1,78 @@
+package enigma;
+
+import java.util.Arrays;
+import java.util.Map;
+
+/** The parsed form of a setting line, which selects a machine's rotors,
+ *  their initial positions, and its plugboard.  Settings are immutable
+ *  and may be applied to any Machine of the Configuration they were
+ *  parsed for.
+ *  @author Brian Faun
+ */
+class Setting {
+
+    /** A setting that inserts the rotors named ROTORS, sets them to
+     *  POSITIONS, and uses PLUGBOARD. */
+    private Setting(String[] rotors, String positions,
+                    Permutation plugboard) {
+        _rotors = rotors;
+        _positions = positions;
+        _plugboard = plugboard;
+    }
+
+    /** Return the Setting described by the setting line LINE, which must
+     *  have the format specified in the assignment, for machines of
+     *  configuration CONF.  If PLUGBOARDS is not null, it is used to look
+     *  up and record plugboard permutations by their cycles. */
+    static Setting parse(String line, Configuration conf,
+                         Map<String, Permutation> plugboards) {
+        int numRotors = conf.numRotors();
+        String[] setArr = line.split(" ");
+        if (!setArr[0].equals("*")) {
+            throw new EnigmaException("illegal symbol start");
+        }
+        if (numRotors + 2 > setArr.length) {
+            throw new EnigmaException("wrong number of rotors");
+        }
+        if (!conf.isReflector(setArr[1])) {
+            throw new EnigmaException("wrong, reflector");
+        }
+        String set = setArr[numRotors + 1];
+        if (set.length() != numRotors - 1) {
+            throw new EnigmaException("wrong setting format 1");
+        }
+        for (int i = 0; i < set.length(); i++) {
+            if (!conf.alphabet().contains(set.charAt(i))) {
+                throw new EnigmaException("wrong setting format 2");
+            }
+        }
+        String[] rotors = Arrays.copyOfRange(setArr, 1, numRotors + 1);
+        StringBuilder cycles = new StringBuilder();
+        for (int i = numRotors + 2; i < setArr.length; i++) {
+            cycles.append(setArr[i]);
+        }
+        Permutation plugboard =
+            plugboards == null ? null : plugboards.get(cycles.toString());
+        if (plugboard == null) {
+            plugboard = new Permutation(cycles.toString(), conf.alphabet());
+            if (plugboards != null) {
+                plugboards.put(cycles.toString(), plugboard);
+            }
+        }
+        return new Setting(rotors, set, plugboard);
+    }
+
+    /** Configure M according to this setting. */
+    void apply(Machine M) {
+        M.setPlugboard(_plugboard);
+        M.insertRotors(_rotors);
+        M.setRotors(_positions);
+    }
+
+    /** Names of the rotors, starting with the reflector. */
+    private final String[] _rotors;
+    /** Initial positions of the non-reflector rotors. */
+    private final String _positions;
+    /** The plugboard permutation. */
+    private final Permutation _plugboard;
+}
@@ -11,6 +11,8 @@ public class UnitTest {
      *  the arguments of runClasses to run other JUnit tests. */
     public static void main(String[] ignored) {
         System.exit(textui.runClasses(PermutationTest.class,
+                                      EnigmaServiceTest.class,
+                                      MachineTest.class,
                                       MovingRotorTest.class));
     }
 
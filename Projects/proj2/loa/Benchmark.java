@@ -0,0 +1,142 @@
+/* Skeleton Copyright (C) 2015, 2020 Paul N. Hilfinger and the Regents of the
+ * University of California.  All rights reserved. */
+package loa;
+
+import java.util.ArrayList;
+import java.util.Random;
+
+import static loa.Piece.*;
+
+/** Benchmark suite for move generation and search.  From the initial
+ *  position and from several mid-game positions, reports perft counts
+ *  (see Perft) to each depth up to a limit, and the statistics of
+ *  single-threaded MachinePlayer searches to each fixed depth up to a
+ *  limit: positions visited, positions per second, the fraction of
+ *  transposition table lookups that found an entry, and the effective
+ *  branching factor (the ratio of positions visited to those visited by
+ *  the search one ply shallower).
+ *
+ *  Output is comma-separated, one record per line after a header line, so
+ *  that results from different builds can be compared mechanically.
+ *  Fields that do not apply to a record are empty.  Perft counts from the
+ *  same positions should not change between builds; search statistics
+ *  change when the search or evaluation does.
+ *  @author Brian Faun
+ */
+public class Benchmark {
+
+    /** Default perft depth. */
+    static final int DEFAULT_PERFT_DEPTH = 4;
+
+    /** Default search depth. */
+    static final int DEFAULT_SEARCH_DEPTH = 5;
+
+    /** Numbers of plies of random play from the initial position that
+     *  produce the mid-game positions. */
+    static final int[] MIDGAME_PLIES = { 8, 16, 24 };
+
+    /** Seed for the random play producing mid-game positions. */
+    static final long SEED = 61;
+
+    /** Output header. */
+    static final String HEADER =
+        "kind,position,depth,nodes,millis,nodes_per_sec,tt_hit_rate,"
+        + "branching";
+
+    /** Run the benchmarks with perft depth ARGS[0] (default
+     *  DEFAULT_PERFT_DEPTH) and search depth ARGS[1] (default
+     *  DEFAULT_SEARCH_DEPTH), printing the results on the standard
+     *  output. */
+    public static void main(String[] args) {
+        int perftDepth = args.length > 0 ? Integer.parseInt(args[0])
+            : DEFAULT_PERFT_DEPTH;
+        int searchDepth = args.length > 1 ? Integer.parseInt(args[1])
+            : DEFAULT_SEARCH_DEPTH;
+        ArrayList<String> names = new ArrayList<>();
+        ArrayList<Board> positions = new ArrayList<>();
+        names.add("initial");
+        positions.add(new Board());
+        Random random = new Random(SEED);
+        for (int plies : MIDGAME_PLIES) {
+            names.add("random" + plies);
+            positions.add(randomPosition(plies, random));
+        }
+
+        Perft.perft(positions.get(0), Math.max(1, perftDepth - 1));
+        MachinePlayer warmup = new MachinePlayer(BP, null);
+        warmup.searchToDepth(positions.get(0), Math.max(1, searchDepth - 1));
+        System.out.println(HEADER);
+        for (int i = 0; i < positions.size(); i += 1) {
+            for (int d = 1; d <= perftDepth; d += 1) {
+                perft(names.get(i), positions.get(i), d);
+            }
+        }
+        for (int i = 0; i < positions.size(); i += 1) {
+            MachinePlayer player =
+                new MachinePlayer(positions.get(i).turn(), null);
+            long prevNodes = 1;
+            for (int d = 1; d <= searchDepth; d += 1) {
+                prevNodes = search(names.get(i), positions.get(i), d,
+                                   player, prevNodes);
+            }
+        }
+    }
+
+    /** Return the position reached by PLIES moves chosen uniformly at
+     *  random using RANDOM from the initial position, stopping early
+     *  (with a position whose game is not over) if the next move would
+     *  end the game. */
+    static Board randomPosition(int plies, Random random) {
+        Board board = new Board();
+        int[] moves = new int[Board.MAX_MOVES];
+        for (int k = 0; k < plies; k += 1) {
+            int n = board.generateMoves(moves);
+            board.makeMove(Move.mv(moves[random.nextInt(n)]));
+            if (board.gameOver()) {
+                board.retract();
+                break;
+            }
+        }
+        return board;
+    }
+
+    /** Print the perft count of BOARD, called NAME, to DEPTH. */
+    private static void perft(String name, Board board, int depth) {
+        long start = System.nanoTime();
+        long nodes = Perft.perft(board, depth);
+        long elapsed = System.nanoTime() - start;
+        report("perft", name, depth, nodes, elapsed, "", "");
+    }
+
+    /** Print the statistics of a search of BOARD, called NAME, to DEPTH
+     *  by PLAYER, starting with an empty transposition table, given that
+     *  the search to DEPTH - 1 visited PREVNODES positions.  Return the
+     *  number of positions visited. */
+    private static long search(String name, Board board, int depth,
+                               MachinePlayer player, long prevNodes) {
+        player.clearTable();
+        long start = System.nanoTime();
+        player.searchToDepth(board, depth);
+        long elapsed = System.nanoTime() - start;
+        long nodes = player.searchNodes();
+        long probes = player.tableProbes();
+        String hitRate = probes == 0 ? ""
+            : String.format("%.4f", (double) player.tableHits() / probes);
+        report("search", name, depth, nodes, elapsed, hitRate,
+               String.format("%.2f", (double) nodes / prevNodes));
+        return nodes;
+    }
+
+    /** Print a record of KIND for the position NAME at DEPTH, which
+     *  visited NODES positions in NANOS nanoseconds, with transposition
+     *  table hit rate HITRATE and branching factor BRANCHING. */
+    private static void report(String kind, String name, int depth,
+                               long nodes, long nanos, String hitRate,
+                               String branching) {
+        double secs = Math.max(nanos, 1) * 1e-9;
+        System.out.printf("%s,%s,%d,%d,%.3f,%.0f,%s,%s%n",
+                          kind, name, depth, nodes, nanos * 1e-6,
+                          nodes / secs, hitRate, branching);
+    }
+
+}
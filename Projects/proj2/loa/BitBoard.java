@@ -0,0 +1,119 @@
+/* Skeleton Copyright (C) 2015, 2020 Paul N. Hilfinger and the Regents of the
+ * University of California.  All rights reserved. */
+package loa;
+
+import static loa.Square.*;
+
+/** Precomputed masks and utilities for representing sets of squares as
+ *  64-bit longs ("bitboards").  Square S corresponds to bit S.index(), so
+ *  that bit 0 is a1, bit 7 is h1, and bit 63 is h8.
+ *  @author Brian Faun
+ */
+final class BitBoard {
+
+    /** Not instantiable. */
+    private BitBoard() {
+    }
+
+    /** Number of directions of movement. */
+    static final int NUM_DIRS = 8;
+
+    /** Return the bitboard containing only square index SQ. */
+    static long bit(int sq) {
+        return 1L << sq;
+    }
+
+    /** Return the bitboard containing only SQ. */
+    static long bit(Square sq) {
+        return 1L << sq.index();
+    }
+
+    /** Return the mask of the line of action (row, column, or diagonal)
+     *  through square index SQ along which direction DIR runs.  Includes
+     *  SQ itself. */
+    static long line(int dir, int sq) {
+        return LINES[dir & 3][sq];
+    }
+
+    /** Return the index of the square STEPS squares from square index
+     *  SQ in direction DIR, or -1 if it is off the board.  Requires
+     *  0 <= STEPS <= BOARD_SIZE. */
+    static int dest(int dir, int sq, int steps) {
+        return DESTS[dir][sq][steps];
+    }
+
+    /** Return the mask of squares strictly between square indices FROM
+     *  and TO, which must be on a common line. */
+    static long between(int from, int to) {
+        return BETWEEN[from][to];
+    }
+
+    /** Return the set of squares adjacent (including diagonally) to some
+     *  square in SQUARES. */
+    static long neighbors(long squares) {
+        long west = (squares >>> 1) & ~FILE_H;
+        long east = (squares << 1) & ~FILE_A;
+        long row = squares | west | east;
+        return (row | (row << BOARD_SIZE) | (row >>> BOARD_SIZE)) & ~squares;
+    }
+
+    /** Return the set of squares in SQUARES that are connected to SEED
+     *  through adjacent squares in SQUARES.  SEED must be a subset of
+     *  SQUARES. */
+    static long flood(long seed, long squares) {
+        long region = seed;
+        while (true) {
+            long grown = (region | neighbors(region)) & squares;
+            if (grown == region) {
+                return region;
+            }
+            region = grown;
+        }
+    }
+
+    /** Return true iff SQUARES is non-empty and forms a single connected
+     *  region.  Does not allocate. */
+    static boolean connected(long squares) {
+        return squares != 0
+            && flood(squares & -squares, squares) == squares;
+    }
+
+    /** Mask of the squares in column a. */
+    static final long FILE_A = 0x0101010101010101L;
+
+    /** Mask of the squares in column h. */
+    static final long FILE_H = FILE_A << (BOARD_SIZE - 1);
+
+    /** LINES[a][s] is the line through square index S along axis A,
+     *  where axis A is that of directions A and A + 4. */
+    private static final long[][] LINES = new long[NUM_DIRS / 2][NUM_SQUARES];
+
+    /** DESTS[d][s][k] is the square K steps from S in direction D, or -1
+     *  if none. */
+    private static final int[][][] DESTS =
+        new int[NUM_DIRS][NUM_SQUARES][BOARD_SIZE + 1];
+
+    /** BETWEEN[f][t] is the set of squares strictly between F and T. */
+    private static final long[][] BETWEEN = new long[NUM_SQUARES][NUM_SQUARES];
+
+    static {
+        for (Square from : ALL_SQUARES) {
+            int f = from.index();
+            for (int dir = 0; dir < NUM_DIRS; dir += 1) {
+                LINES[dir & 3][f] |= bit(f);
+                DESTS[dir][f][0] = f;
+                long path = 0;
+                DESTS[dir][f][BOARD_SIZE] = -1;
+                for (int k = 1; k < BOARD_SIZE; k += 1) {
+                    Square to = from.moveDest(dir, k);
+                    DESTS[dir][f][k] = to == null ? -1 : to.index();
+                    if (to != null) {
+                        LINES[dir & 3][f] |= bit(to);
+                        BETWEEN[f][to.index()] = path;
+                        path |= bit(to);
+                    }
+                }
+            }
+        }
+    }
+}
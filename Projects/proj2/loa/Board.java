@@ -2,10 +2,6 @@
  * University of California.  All rights reserved. */
 package loa;
 
-import afu.org.checkerframework.checker.igj.qual.I;
-import com.sun.tools.internal.xjc.reader.dtd.bindinfo.BindInfo;
-import org.checkerframework.checker.units.qual.A;
-
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
@@ -14,10 +10,14 @@ import java.util.List;
 
 import java.util.regex.Pattern;
 
+import static loa.BitBoard.*;
 import static loa.Piece.*;
 import static loa.Square.*;
 
-/** Represents the state of a game of Lines of Action.
+/** Represents the state of a game of Lines of Action.  The pieces of each
+ *  side are kept as a bitboard (see BitBoard), so that the number of
+ *  pieces on a line is a single population count and legal moves can be
+ *  generated directly from each piece's eight rays.
  *  @author Brian Faun
  */
 class Board {
@@ -61,9 +61,14 @@ class Board {
         _winner = null;
         _winnerKnown = false;
         _moves.clear();
+        _black = _white = 0;
+        _key = Zobrist.turn(side);
+        Arrays.fill(_colSums, 0);
+        Arrays.fill(_rowSums, 0);
+        Arrays.fill(_squareSums, 0);
         for (int x = 0; x < BOARD_SIZE; x++) {
             for (int y = 0; y < BOARD_SIZE; y++) {
-                _board[sq(x, y).index()] = contents[y][x];
+                set(sq(x, y), contents[y][x]);
             }
         }
     }
@@ -78,30 +83,72 @@ class Board {
         if (board == this) {
             return;
         }
-        for (int i = 0; i < BOARD_SIZE * BOARD_SIZE; i++) {
-            _board[i] = board._board[i];
-        }
+        _black = board._black;
+        _white = board._white;
+        _key = board._key;
+        System.arraycopy(board._colSums, 0, _colSums, 0, 2);
+        System.arraycopy(board._rowSums, 0, _rowSums, 0, 2);
+        System.arraycopy(board._squareSums, 0, _squareSums, 0, 2);
         _turn = board.turn();
         _subsetsInitialized = board._subsetsInitialized;
+        _winnerKnown = board._winnerKnown;
+        _winner = board._winner;
         _moveLimit = board._moveLimit;
         _moves.clear();
         _moves.addAll(board._moves);
+        _whiteRegionSizes.clear();
         _whiteRegionSizes.addAll(board._whiteRegionSizes);
+        _blackRegionSizes.clear();
         _blackRegionSizes.addAll(board._blackRegionSizes);
     }
 
     /** Return the contents of the square at SQ. */
     Piece get(Square sq) {
-        return _board[sq.index()];
+        long b = bit(sq);
+        if ((_black & b) != 0) {
+            return BP;
+        } else if ((_white & b) != 0) {
+            return WP;
+        } else {
+            return EMP;
+        }
+    }
+
+    /** Return the set of squares occupied by SIDE's pieces, or the empty
+     *  squares if SIDE is EMP. */
+    long pieces(Piece side) {
+        switch (side) {
+        case BP:
+            return _black;
+        case WP:
+            return _white;
+        default:
+            return ~(_black | _white);
+        }
     }
 
     /** Set the square at SQ to V and set the side that is to move next
      *  to NEXT, if NEXT is not null. */
     void set(Square sq, Piece v, Piece next) {
         if (next != null) {
+            _key ^= Zobrist.turn(_turn) ^ Zobrist.turn(next);
             _turn = next;
         }
-        _board[sq.index()] = v;
+        Piece old = get(sq);
+        _key ^= Zobrist.piece(old, sq.index())
+            ^ Zobrist.piece(v, sq.index());
+        tally(old, sq.index(), -1);
+        tally(v, sq.index(), 1);
+        long b = bit(sq);
+        _black &= ~b;
+        _white &= ~b;
+        if (v == BP) {
+            _black |= b;
+        } else if (v == WP) {
+            _white |= b;
+        }
+        _winnerKnown = false;
+        _subsetsInitialized = false;
     }
 
     /** Set the square at SQ to V, without modifying the side that
@@ -128,13 +175,13 @@ class Board {
         _winner = null;
         _winnerKnown = false;
         _subsetsInitialized = false;
-        Piece p1 = get(move.getTo());
-        Piece p2 = get(move.getFrom()).opposite();
-        if (p1.equals(p2)) {
+        int from = move.getFrom().index(), to = move.getTo().index();
+        boolean capture = (pieces(_turn.opposite()) & bit(to)) != 0;
+        if (capture) {
             move = move.captureMove();
         }
-        set(move.getTo(), get(move.getFrom()), get(move.getFrom()).opposite());
-        set(move.getFrom(), EMP);
+        flip(_turn, from, to, capture);
+        _turn = _turn.opposite();
         _moves.add(move);
     }
 
@@ -146,14 +193,97 @@ class Board {
         _winnerKnown = false;
         _winner = null;
         Move m = _moves.remove(movesMade() - 1);
-        if (!m.isCapture()) {
-            set(m.getFrom(), get(m.getTo()));
-            set(m.getTo(), EMP, turn().opposite());
+        _turn = _turn.opposite();
+        flip(_turn, m.getFrom().index(), m.getTo().index(), m.isCapture());
+    }
+
+    /** Move one of SIDE's pieces between square indices FROM and TO (in
+     *  either direction), toggling an opposing piece at TO iff CAPTURE.
+     *  Updates the position key, including its side-to-move component
+     *  (the caller updates _turn).  Used both to make and to retract
+     *  moves. */
+    private void flip(Piece side, int from, int to, boolean capture) {
+        long moved = bit(from) | bit(to), captured = capture ? bit(to) : 0;
+        if (side == BP) {
+            _black ^= moved;
+            _white ^= captured;
         } else {
+            _white ^= moved;
+            _black ^= captured;
+        }
+        _key ^= Zobrist.piece(side, from) ^ Zobrist.piece(side, to)
+            ^ Zobrist.BLACK_TO_MOVE;
+        int sign = (pieces(side) & bit(to)) != 0 ? 1 : -1;
+        tally(side, to, sign);
+        tally(side, from, -sign);
+        if (capture) {
+            _key ^= Zobrist.piece(side.opposite(), to);
+            tally(side.opposite(), to, -sign);
+        }
+    }
 
-            set(m.getFrom(), get(m.getTo()), turn().opposite());
-            set(m.getTo(), turn().opposite());
+    /** Add SIGN (1 or -1) times the contribution of a SIDE piece on
+     *  square index SQ to the coordinate sums of SIDE, if SIDE is not
+     *  EMP. */
+    private void tally(Piece side, int sq, int sign) {
+        if (side == EMP) {
+            return;
         }
+        int c = sq % BOARD_SIZE, r = sq / BOARD_SIZE, k = side.ordinal();
+        _colSums[k] += sign * c;
+        _rowSums[k] += sign * r;
+        _squareSums[k] += sign * (c * c + r * r);
+    }
+
+    /** Return the number of SIDE's pieces. */
+    int pieceCount(Piece side) {
+        return Long.bitCount(pieces(side));
+    }
+
+    /** Return how spread out SIDE's pieces are: N times the sum of the
+     *  squared (Euclidean) distances of SIDE's pieces from their center
+     *  of mass, where N is the number of pieces.  This is 0 for a single
+     *  piece, and is kept up to date incrementally, so takes constant
+     *  time. */
+    int concentration(Piece side) {
+        int k = side.ordinal(), n = pieceCount(side);
+        return n * _squareSums[k] - _colSums[k] * _colSums[k]
+            - _rowSums[k] * _rowSums[k];
+    }
+
+    /** Return the number of pairs of adjacent (including diagonally)
+     *  SIDE pieces.  Takes constant time. */
+    int links(Piece side) {
+        long p = pieces(side);
+        long east = (p << 1) & ~FILE_A;
+        return Long.bitCount(p & east) + Long.bitCount(p & (p << BOARD_SIZE))
+            + Long.bitCount(p & (east << BOARD_SIZE))
+            + Long.bitCount(p & ((p >>> 1) & ~FILE_H) << BOARD_SIZE);
+    }
+
+    /** Return the number of moves SIDE would have if it were SIDE's turn
+     *  to move.  Walks only the rays from SIDE's pieces. */
+    int mobility(Piece side) {
+        long own = pieces(side), enemy = pieces(side.opposite());
+        long occupied = own | enemy;
+        int n = 0;
+        for (long rest = own; rest != 0; rest &= rest - 1) {
+            int f = Long.numberOfTrailingZeros(rest);
+            for (int dir = 0; dir < NUM_DIRS; dir += 1) {
+                int t = dest(dir, f, Long.bitCount(occupied & line(dir, f)));
+                if (t >= 0 && (own & bit(t)) == 0
+                    && (between(f, t) & enemy) == 0) {
+                    n += 1;
+                }
+            }
+        }
+        return n;
+    }
+
+    /** Return the Zobrist key (see Zobrist) of this position, which
+     *  depends only on the pieces and the side to move. */
+    long key() {
+        return _key;
     }
 
     /** Return the Piece representing who is next to move. */
@@ -164,58 +294,70 @@ class Board {
     /** Return true iff FROM - TO is a legal move for the player currently on
      *  move. */
     boolean isLegal(Square from, Square to) {
-        if (turn() != get(from) || blocked(from, to)) {
+        if (!from.isValidMove(to)) {
             return false;
         }
-        if (!exists(to.col(), to.row()) || !from.isValidMove(to)) {
+        int f = from.index(), t = to.index();
+        long own = pieces(turn()), enemy = pieces(turn().opposite());
+        if ((own & bit(f)) == 0 || (own & bit(t)) != 0
+            || (between(f, t) & enemy) != 0) {
             return false;
         }
-        int moves = 1, index = 0, i2 = 0;
-        int crrMoves = from.distance(to);
-        int dir = from.direction(to);
-        while (from.moveDest(dir, ++index) != null) {
-            Piece p1 = get(from.moveDest(dir, index));
-            if (p1.equals(WP) || p1.equals(BP)) {
-                moves++;
-            }
-        }
-        int fromDir = (BOARD_SIZE + (dir - 4) % BOARD_SIZE) % BOARD_SIZE;
-        while (from.moveDest(fromDir, ++i2) != null) {
-            Piece p = get(from.moveDest(fromDir, i2));
-            if (!p.equals(EMP)) {
-                moves++;
-            }
-        }
-        if (moves == crrMoves) {
-            return true;
-        }
-        return false;
+        long line = line(from.direction(to), f);
+        return Long.bitCount((_black | _white) & line) == from.distance(to);
     }
 
-
     /** Return true iff MOVE is legal for the player currently on move.
      *  The isCapture() property is ignored. */
     boolean isLegal(Move move) {
         return isLegal(move.getFrom(), move.getTo());
     }
 
-    /** Return a sequence of all legal moves from this position. */
+    /** Return a sequence of all legal moves from this position, in the
+     *  order produced by generateMoves. */
     List<Move> legalMoves() {
-        ArrayList<Move> legalmoves = new ArrayList<>();
-        for (Square from : ALL_SQUARES) {
-            if (get(from).equals(turn())) {
-                for (Square to: ALL_SQUARES) {
-                    if (isLegal(from, to)) {
-                        if (get(to).equals(turn().opposite())) {
-                            legalmoves.add(Move.mv(from, to, true));
-                        } else {
-                            legalmoves.add(Move.mv(from, to));
-                        }
-                    }
+        int[] codes = new int[MAX_MOVES];
+        int n = generateMoves(codes);
+        ArrayList<Move> legalmoves = new ArrayList<>(n);
+        for (int i = 0; i < n; i += 1) {
+            legalmoves.add(Move.mv(codes[i]));
+        }
+        return legalmoves;
+    }
+
+    /** Store the codes (see Move.code()) of all legal moves from this
+     *  position in MOVES[0 .. N-1] and return N.  MOVES must have room for
+     *  MAX_MOVES entries.  Moves are generated directly: each piece of the
+     *  side to move can go only to the square along each of its eight rays
+     *  whose distance is the number of pieces on that line.  The result is
+     *  ordered with captures first and then by how far each move brings
+     *  its piece toward the center, which tends to make alpha-beta
+     *  pruning more effective.  Does not allocate. */
+    int generateMoves(int[] moves) {
+        long own = pieces(turn()), enemy = pieces(turn().opposite());
+        long occupied = own | enemy;
+        int n = 0;
+        for (long rest = own; rest != 0; rest &= rest - 1) {
+            int f = Long.numberOfTrailingZeros(rest);
+            for (int dir = 0; dir < NUM_DIRS; dir += 1) {
+                int t = dest(dir, f, Long.bitCount(occupied & line(dir, f)));
+                if (t < 0 || (own & bit(t)) != 0
+                    || (between(f, t) & enemy) != 0) {
+                    continue;
                 }
+                boolean capture = (enemy & bit(t)) != 0;
+                int priority = (capture ? CAPTURE_PRIORITY : 0)
+                    + RING[f] - RING[t];
+                moves[n] = (MAX_PRIORITY - priority) << Move.MOVE_BITS
+                    | Move.code(f, t, capture);
+                n += 1;
             }
         }
-        return legalmoves;
+        Arrays.sort(moves, 0, n);
+        for (int i = 0; i < n; i += 1) {
+            moves[i] &= (1 << Move.MOVE_BITS) - 1;
+        }
+        return n;
     }
 
     /** Return true iff the game is over (either player has all his
@@ -226,7 +368,7 @@ class Board {
 
     /** Return true iff SIDE's pieces are continguous. */
     boolean piecesContiguous(Piece side) {
-        return getRegionSizes(side).size() == 1;
+        return connected(pieces(side));
     }
 
     /** Return the winning side, if any.  If the game is not over, result is
@@ -260,13 +402,16 @@ class Board {
 
     @Override
     public boolean equals(Object obj) {
+        if (!(obj instanceof Board)) {
+            return false;
+        }
         Board b = (Board) obj;
-        return Arrays.deepEquals(_board, b._board) && _turn == b._turn;
+        return _black == b._black && _white == b._white && _turn == b._turn;
     }
 
     @Override
     public int hashCode() {
-        return Arrays.deepHashCode(_board) * 2 + _turn.hashCode();
+        return Long.hashCode(_key);
     }
 
     @Override
@@ -284,62 +429,26 @@ class Board {
         return out.toString();
     }
 
-    /** Return true if a move from FROM to TO is blocked by an opposing
-     *  piece or by a friendly piece on the target square. */
-    private boolean blocked(Square from, Square to) {
-        if (get(from).equals(get(to))) {
-            return true;
-        } else if (!from.isValidMove(to)) {
-            return true;
-        }
-        Piece p = get(from).opposite();
-        int dir = from.direction(to);
-        int dist = from.distance(to);
-        for (int i = 1; i < dist; i++) {
-            if (p.equals(get(from.moveDest(dir, i)))) {
-                return true;
-            }
-        }
-        return false;
-    }
-
-    /** Return the size of the as-yet unvisited cluster of squares
-     *  containing P at and adjacent to SQ.  VISITED indicates squares that
-     *  have already been processed or are in different clusters.  Update
-     *  VISITED to reflect squares counted. */
-    private int numContig(Square sq, boolean[][] visited, Piece p) {
-        int size = 0;
-        if ((visited[sq.row()][sq.col()]) || (get(sq) != p)) {
-            return size;
-        } else {
-            visited[sq.row()][sq.col()] = true;
-            size = 1;
-        }
-        for (Square s : sq.adjacent()) {
-            size += numContig(s, visited, p);
-        }
-        return size;
-    }
-
     /** Set the values of _whiteRegionSizes and _blackRegionSizes. */
     private void computeRegions() {
         if (_subsetsInitialized) {
             return;
         }
         _subsetsInitialized = true;
-        _whiteRegionSizes.clear();
-        _blackRegionSizes.clear();
-        boolean[][] visited = new boolean[BOARD_SIZE][BOARD_SIZE];
-        for (Square sq : ALL_SQUARES) {
-            if (!visited[sq.row()][sq.col()] && get(sq).equals(WP)) {
-                _whiteRegionSizes.add(numContig(sq, visited, WP));
-            }
-            if (!visited[sq.row()][sq.col()] && get(sq).equals(BP)) {
-                _blackRegionSizes.add(numContig(sq, visited, BP));
-            }
+        regionSizes(_white, _whiteRegionSizes);
+        regionSizes(_black, _blackRegionSizes);
+    }
+
+    /** Set SIZES to the sizes of the connected regions of PIECES, largest
+     *  first. */
+    private static void regionSizes(long pieces, ArrayList<Integer> sizes) {
+        sizes.clear();
+        while (pieces != 0) {
+            long region = flood(pieces & -pieces, pieces);
+            sizes.add(Long.bitCount(region));
+            pieces &= ~region;
         }
-        _whiteRegionSizes.sort(Collections.reverseOrder());
-        _blackRegionSizes.sort(Collections.reverseOrder());
+        sizes.sort(Collections.reverseOrder());
     }
 
     /** Return the sizes of all the regions in the current union-find
@@ -366,8 +475,40 @@ class Board {
         { EMP, BP,  BP,  BP,  BP,  BP,  BP,  EMP }
     };
 
-    /** Current contents of the board.  Square S is at _board[S.index()]. */
-    private final Piece[] _board = new Piece[BOARD_SIZE  * BOARD_SIZE];
+    /** An upper bound on the number of legal moves in any position: eight
+     *  directions for each of at most 2 * (BOARD_SIZE - 2) pieces. */
+    static final int MAX_MOVES = NUM_DIRS * 2 * (BOARD_SIZE - 2);
+
+    /** RING[s] is the distance of square index S from the center four
+     *  squares, measured in rings: 0 for the center, BOARD_SIZE / 2 - 1
+     *  for the edge. */
+    private static final int[] RING = new int[NUM_SQUARES];
+
+    /** Ordering bonus given to captures in generateMoves; exceeds any
+     *  difference in RING values. */
+    private static final int CAPTURE_PRIORITY = BOARD_SIZE;
+
+    /** Bound on the move-ordering priority used in generateMoves. */
+    private static final int MAX_PRIORITY = 2 * BOARD_SIZE;
+
+    static {
+        for (Square s : ALL_SQUARES) {
+            RING[s.index()] = Math.max(Math.abs(2 * s.col() - BOARD_SIZE + 1),
+                                       Math.abs(2 * s.row() - BOARD_SIZE + 1))
+                / 2;
+        }
+    }
+
+    /** The squares occupied by black and by white pieces. */
+    private long _black, _white;
+    /** Zobrist key of the current position. */
+    private long _key;
+    /** Sums of the columns, rows, and squared columns plus squared rows
+     *  of the squares occupied by each side, indexed by Piece ordinal. */
+    private final int[]
+        _colSums = new int[2],
+        _rowSums = new int[2],
+        _squareSums = new int[2];
 
     /** List of all unretracted moves on this board, in order. */
     private final ArrayList<Move> _moves = new ArrayList<>();
@@ -2,13 +2,16 @@
  * University of California.  All rights reserved. */
 package loa;
 
-import org.checkerframework.dataflow.qual.TerminatesExecution;
+import java.util.HashSet;
+import java.util.List;
+
 import org.junit.Test;
 
 import static org.junit.Assert.*;
 
 import static loa.Piece.*;
 import static loa.Square.sq;
+import static loa.Square.ALL_SQUARES;
 import static loa.Move.mv;
 
 /** Tests of the Board class API.
@@ -104,6 +107,22 @@ public class BoardTest {
         assertTrue("Board 3 game over", b2.gameOver());
     }
 
+    /** Test region sizes. */
+    @Test
+    public void testRegionSizes() {
+        Board b1 = new Board(BOARD1, BP);
+        assertEquals(List.of(3, 2, 2, 2, 1, 1, 1), b1.getRegionSizes(BP));
+        assertEquals(List.of(5, 2, 2, 2, 1), b1.getRegionSizes(WP));
+        b1.makeMove(mv("f3-d5"));
+        assertEquals(List.of(3, 3, 2, 2, 1, 1), b1.getRegionSizes(BP));
+        assertEquals(List.of(5, 2, 2, 1, 1), b1.getRegionSizes(WP));
+        b1.retract();
+        assertEquals(List.of(3, 2, 2, 2, 1, 1, 1), b1.getRegionSizes(BP));
+        Board b2 = new Board(BOARD2, BP);
+        assertEquals(List.of(9), b2.getRegionSizes(BP));
+        assertEquals(List.of(6, 2, 1), b2.getRegionSizes(WP));
+    }
+
     @Test
     public void testEquals1() {
         Board b1 = new Board(BOARD1, BP);
@@ -112,6 +131,74 @@ public class BoardTest {
         assertEquals("Board 1 equals Board 1", b1, b2);
     }
 
+    @Test
+    public void testKeys() {
+        Board b0 = new Board();
+        Board b1 = new Board();
+        long key0 = b0.key();
+        b0.makeMove(mv("b1-b3"));
+        b0.makeMove(mv("h5-f5"));
+        b0.makeMove(mv("c1-c3"));
+        b1.makeMove(mv("c1-c3"));
+        b1.makeMove(mv("h5-f5"));
+        b1.makeMove(mv("b1-b3"));
+        assertEquals("transposed positions", b0, b1);
+        assertEquals(b0.key(), b1.key());
+        assertEquals(b0.key(), new Board(b0).key());
+        b0.retract();
+        assertNotEquals(b0.key(), b1.key());
+        b0.retract();
+        b0.retract();
+        assertEquals(key0, b0.key());
+        b0.set(sq(3, 3), WP, WP);
+        b0.set(sq(3, 3), EMP, BP);
+        assertEquals(key0, b0.key());
+    }
+
+    /** Check Board's incrementally maintained statistics for SIDE
+     *  against values computed from scratch. */
+    private void checkStatistics(Board b, Piece side) {
+        int n = 0, cols = 0, rows = 0, squares = 0, links = 0;
+        for (Square s : ALL_SQUARES) {
+            if (b.get(s) == side) {
+                n += 1;
+                cols += s.col();
+                rows += s.row();
+                squares += s.col() * s.col() + s.row() * s.row();
+                for (Square t : s.adjacent()) {
+                    if (b.get(t) == side && t.index() > s.index()) {
+                        links += 1;
+                    }
+                }
+            }
+        }
+        assertEquals(n, b.pieceCount(side));
+        assertEquals(n * squares - cols * cols - rows * rows,
+                     b.concentration(side));
+        assertEquals(links, b.links(side));
+        Board c = new Board(b);
+        c.set(ALL_SQUARES[0], c.get(ALL_SQUARES[0]), side);
+        assertEquals(c.legalMoves().size(), b.mobility(side));
+    }
+
+    @Test
+    public void testStatistics() {
+        Board b = new Board(BOARD1, BP);
+        final int plies = 8;
+        for (int i = 0; i < plies; i += 1) {
+            List<Move> moves = b.legalMoves();
+            b.makeMove(moves.get(i * 7 % moves.size()));
+            checkStatistics(b, BP);
+            checkStatistics(b, WP);
+        }
+        for (int i = 0; i < plies; i += 1) {
+            b.retract();
+            checkStatistics(b, BP);
+            checkStatistics(b, WP);
+        }
+        checkStatistics(new Board(BOARD3, WP), WP);
+    }
+
     @Test
     public void testMove1() {
         Board b0 = new Board(BOARD1, BP);
@@ -127,4 +214,59 @@ public class BoardTest {
                      0, b1.movesMade());
     }
 
+    /** Check that the generated moves are exactly those accepted by
+     *  isLegal, with captures marked. */
+    private void checkLegalMoves(Board b) {
+        HashSet<Move> expected = new HashSet<>();
+        for (Square from : ALL_SQUARES) {
+            for (Square to : ALL_SQUARES) {
+                if (b.isLegal(from, to)) {
+                    expected.add(mv(from, to, b.get(to) != EMP));
+                }
+            }
+        }
+        List<Move> moves = b.legalMoves();
+        assertEquals("duplicate moves", moves.size(),
+                     new HashSet<>(moves).size());
+        assertEquals(expected, new HashSet<>(moves));
+    }
+
+    @Test
+    public void testLegalMoves() {
+        checkLegalMoves(new Board());
+        checkLegalMoves(new Board(BOARD1, BP));
+        checkLegalMoves(new Board(BOARD1, WP));
+        checkLegalMoves(new Board(BOARD2, WP));
+        checkLegalMoves(new Board(BOARD3, BP));
+    }
+
+    @Test
+    public void testMoveOrder() {
+        Board b = new Board(BOARD1, BP);
+        int[] moves = new int[Board.MAX_MOVES];
+        int n = b.generateMoves(moves);
+        boolean seenQuiet = false;
+        for (int i = 0; i < n; i += 1) {
+            Move m = Move.mv(moves[i]);
+            assertEquals(moves[i], m.code());
+            assertFalse("capture after non-capture",
+                        seenQuiet && m.isCapture());
+            seenQuiet |= !m.isCapture();
+        }
+        assertTrue(seenQuiet && Move.mv(moves[0]).isCapture());
+    }
+
+    @Test
+    public void testPerft() {
+        Board b0 = new Board();
+        assertEquals(36, Perft.perft(b0, 1));
+        assertEquals(1244, Perft.perft(b0, 2));
+        assertEquals(44952, Perft.perft(b0, 3));
+        assertEquals(new Board(), b0);
+        Board b1 = new Board(BOARD1, BP);
+        assertEquals(37, Perft.perft(b1, 1));
+        assertEquals(1349, Perft.perft(b1, 2));
+        assertEquals(47376, Perft.perft(b1, 3));
+    }
+
 }
@@ -0,0 +1,118 @@
+/* Skeleton Copyright (C) 2015, 2020 Paul N. Hilfinger and the Regents of the
+ * University of California.  All rights reserved. */
+package loa;
+
+import java.io.IOException;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/** Builds an OpeningBook by searching, to a fixed depth, every position
+ *  reachable from the initial position in fewer than a given number of
+ *  moves, and recording the move each search chooses.  Positions are
+ *  searched concurrently, each worker thread with its own MachinePlayers.
+ *  @author Brian Faun
+ */
+public class BookBuilder {
+
+    /** Default number of plies covered by the book. */
+    static final int DEFAULT_PLIES = 2;
+
+    /** Default search depth. */
+    static final int DEFAULT_DEPTH = 6;
+
+    /** Write to ARGS[0] a book covering positions less than ARGS[1]
+     *  (default DEFAULT_PLIES) moves from the start, searched to depth
+     *  ARGS[2] (default DEFAULT_DEPTH). */
+    public static void main(String[] args) {
+        if (args.length == 0) {
+            System.err.println("Usage: java loa.BookBuilder FILE "
+                               + "[ PLIES [ DEPTH ] ]");
+            System.exit(1);
+        }
+        int plies = args.length > 1 ? Integer.parseInt(args[1])
+            : DEFAULT_PLIES;
+        int depth = args.length > 2 ? Integer.parseInt(args[2])
+            : DEFAULT_DEPTH;
+        HashMap<Long, Board> positions = new HashMap<>();
+        collect(new Board(), plies, positions);
+        long[] keys = new long[positions.size()];
+        int n = 0;
+        for (long key : positions.keySet()) {
+            keys[n] = key;
+            n += 1;
+        }
+        Arrays.sort(keys);
+        int[] moves = search(keys, positions, depth);
+        try {
+            OpeningBook.write(Paths.get(args[0]), keys, moves, n);
+        } catch (IOException excp) {
+            System.err.printf("Could not write book: %s%n",
+                              excp.getMessage());
+            System.exit(1);
+        }
+        System.out.printf("%d positions%n", n);
+    }
+
+    /** Add to POSITIONS, by key, copies of BOARD and of every position
+     *  reachable from it in fewer than PLIES moves, omitting those whose
+     *  games are over. */
+    static void collect(Board board, int plies,
+                        HashMap<Long, Board> positions) {
+        if (plies == 0 || board.gameOver()) {
+            return;
+        }
+        positions.putIfAbsent(board.key(), new Board(board));
+        int[] moves = new int[Board.MAX_MOVES];
+        int n = board.generateMoves(moves);
+        for (int i = 0; i < n; i += 1) {
+            board.makeMove(Move.mv(moves[i]));
+            collect(board, plies - 1, positions);
+            board.retract();
+        }
+    }
+
+    /** Return the codes of the moves chosen by searches to DEPTH of
+     *  POSITIONS.get(KEYS[i]), in order, using one worker thread per
+     *  processor. */
+    static int[] search(long[] keys, HashMap<Long, Board> positions,
+                        int depth) {
+        int workers = Runtime.getRuntime().availableProcessors();
+        int[] moves = new int[keys.length];
+        ExecutorService pool = Executors.newFixedThreadPool(workers);
+        try {
+            ArrayList<Future<?>> results = new ArrayList<>();
+            for (int w = 0; w < workers; w += 1) {
+                int first = w;
+                results.add(pool.submit(() -> {
+                    MachinePlayer[] players = {
+                        new MachinePlayer(Piece.BP, null),
+                        new MachinePlayer(Piece.WP, null)
+                    };
+                    for (int i = first; i < keys.length; i += workers) {
+                        Board board = positions.get(keys[i]);
+                        MachinePlayer player =
+                            players[board.turn() == Piece.BP ? 0 : 1];
+                        moves[i] = player.searchToDepth(board, depth).code();
+                    }
+                }));
+            }
+            for (Future<?> result : results) {
+                result.get();
+            }
+        } catch (InterruptedException excp) {
+            Thread.currentThread().interrupt();
+        } catch (ExecutionException excp) {
+            throw new Error("book search failed", excp.getCause());
+        } finally {
+            pool.shutdown();
+        }
+        return moves;
+    }
+
+}
@@ -0,0 +1,81 @@
+/* Skeleton Copyright (C) 2015, 2020 Paul N. Hilfinger and the Regents of the
+ * University of California.  All rights reserved. */
+package loa;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.concurrent.ConcurrentHashMap;
+
+import static loa.Piece.*;
+
+/** Winning moves found by searches of positions with few pieces, by
+ *  position key (see Zobrist).  A MachinePlayer consults the cache before
+ *  searching such a position, and records the move when a search proves
+ *  a win for the side to move.  The cache may be shared by several
+ *  players and threads, and may be loaded from and saved to a file in the
+ *  format of an OpeningBook.
+ *  @author Brian Faun
+ */
+class EndgameCache {
+
+    /** Largest total number of pieces in a position that is cached. */
+    static final int MAX_PIECES = 10;
+
+    /** Maximum number of entries. */
+    static final int CAPACITY = 1 << 16;
+
+    /** Return true iff positions like BOARD belong in the cache. */
+    static boolean applies(Board board) {
+        return board.pieceCount(BP) + board.pieceCount(WP) <= MAX_PIECES;
+    }
+
+    /** Return the code of the winning move recorded for the position with
+     *  key KEY, or 0 if there is none. */
+    int lookup(long key) {
+        Integer move = _moves.get(key);
+        return move == null ? 0 : move;
+    }
+
+    /** Record that MOVE (a move code) wins from the position with key
+     *  KEY, unless the cache is full. */
+    void record(long key, int move) {
+        if (_moves.size() < CAPACITY) {
+            _moves.put(key, move);
+        }
+    }
+
+    /** Return the number of entries. */
+    int size() {
+        return _moves.size();
+    }
+
+    /** Add the entries in FILE, if it exists. */
+    void load(Path file) throws IOException {
+        if (!Files.exists(file)) {
+            return;
+        }
+        OpeningBook saved = new OpeningBook(file);
+        for (int i = 0; i < saved.size(); i += 1) {
+            record(saved.key(i), saved.move(i));
+        }
+    }
+
+    /** Write all entries to FILE. */
+    void save(Path file) throws IOException {
+        Long[] keys = _moves.keySet().toArray(new Long[0]);
+        Arrays.sort(keys);
+        long[] sortedKeys = new long[keys.length];
+        int[] moves = new int[keys.length];
+        for (int i = 0; i < keys.length; i += 1) {
+            sortedKeys[i] = keys[i];
+            moves[i] = _moves.get(keys[i]);
+        }
+        OpeningBook.write(file, sortedKeys, moves, keys.length);
+    }
+
+    /** Winning move codes by position key. */
+    private final ConcurrentHashMap<Long, Integer> _moves =
+        new ConcurrentHashMap<>();
+}
@@ -2,7 +2,9 @@
  * University of California.  All rights reserved. */
 package loa;
 
+import java.io.IOException;
 import java.io.PrintStream;
+import java.nio.file.Path;
 import java.util.Random;
 import java.util.Scanner;
 import java.util.regex.Pattern;
@@ -21,6 +23,11 @@ class Game {
 
     /** Number of milliseconds in 1 second. */
     static final int MILLISEC = 1000;
+    /** Default time allowed to automated players per move, in
+     *  milliseconds. */
+    static final long DEFAULT_MOVE_TIME = 50;
+    /** Default number of threads used by each automated player. */
+    static final int DEFAULT_SEARCH_THREADS = 1;
     /** Name of help text resource. */
     static final String HELP_FILE = "loa/HelpText.txt";
 
@@ -39,7 +46,6 @@ class Game {
         _view = view;
         _playing = false;
         _logFile = logFile;
-        _input = new Scanner(System.in);
         _autoPlayerTemplate = autoPlayerTemplate;
         _manualPlayerTemplate = manualPlayerTemplate;
         _nonplayer = manualPlayerTemplate.create(EMP, this);
@@ -56,6 +62,7 @@ class Game {
 
     /** Quit the game. */
     private void quit() {
+        saveEndgames();
         System.exit(0);
     }
 
@@ -65,6 +72,9 @@ class Game {
         if (prompt) {
             prompt();
         }
+        if (_input == null) {
+            _input = new Scanner(System.in);
+        }
         if (_input.hasNextLine()) {
             return _input.nextLine().trim();
         } else {
@@ -126,7 +136,7 @@ class Game {
                            command.group(4).toLowerCase());
                 break;
             case "limit":
-                limitCommand(command.group(2));
+                limitCommand(command.group(2), command.group(3));
                 break;
             case "?": case "help":
                 help();
@@ -196,7 +206,7 @@ class Game {
     /** Seed random-number generator with SEED (as a long). */
     private void seedCommand(String seed) {
         try {
-            _randomSource.setSeed(Long.parseLong(seed));
+            setSeed(Long.parseLong(seed));
         } catch (NumberFormatException excp) {
             error("Invalid number: %s%n", seed);
         }
@@ -219,17 +229,95 @@ class Game {
         }
     }
 
+    /** Seed my random-number generator with SEED. */
+    void setSeed(long seed) {
+        _randomSource.setSeed(seed);
+    }
+
     /** Set the corrent move limit according to the numeral in LIMIT.  LIMIT
      *  must be a valid numeral that is greater than the current number of
-     *  moves by either player in the current game. */
-    private void limitCommand(String limit) {
+     *  moves by either player in the current game.  If LIMIT is "time",
+     *  instead set the time allowed to automated players per move to
+     *  SECONDS, a positive decimal numeral. */
+    private void limitCommand(String limit, String seconds) {
         try {
-            _board.setMoveLimit(Integer.parseInt(limit));
+            if (limit.equals("time")) {
+                double time = Double.parseDouble(seconds);
+                if (!(time > 0)) {
+                    throw new IllegalArgumentException(
+                        "time limit must be positive");
+                }
+                setMoveTime(Math.max(1, Math.round(time * MILLISEC)));
+            } else {
+                _board.setMoveLimit(Integer.parseInt(limit));
+            }
         } catch (NumberFormatException excp) {
             throw new IllegalArgumentException("badly formed numeral");
         }
     }
 
+    /** Return the time allowed to automated players per move, in
+     *  milliseconds. */
+    long moveTime() {
+        return _moveTime;
+    }
+
+    /** Set the time allowed to automated players per move to MILLIS
+     *  milliseconds, which must be positive. */
+    void setMoveTime(long millis) {
+        assert millis > 0;
+        _moveTime = millis;
+    }
+
+    /** Return the number of threads each automated player uses to
+     *  search. */
+    int searchThreads() {
+        return _searchThreads;
+    }
+
+    /** Set the number of threads each automated player uses to search to
+     *  THREADS, which must be positive. */
+    void setSearchThreads(int threads) {
+        assert threads > 0;
+        _searchThreads = threads;
+    }
+
+    /** Return the opening book consulted by automated players, or null if
+     *  none. */
+    OpeningBook openingBook() {
+        return _book;
+    }
+
+    /** Set the opening book consulted by automated players to BOOK (null
+     *  for none). */
+    void setOpeningBook(OpeningBook book) {
+        _book = book;
+    }
+
+    /** Return the endgame cache used by automated players, or null if
+     *  none. */
+    EndgameCache endgames() {
+        return _endgames;
+    }
+
+    /** Set the endgame cache used by automated players to ENDGAMES (null
+     *  for none), to be saved to FILE, if non-null, when play ends. */
+    void setEndgames(EndgameCache endgames, Path file) {
+        _endgames = endgames;
+        _endgameFile = file;
+    }
+
+    /** Save my endgame cache to the file given to setEndgames, if any. */
+    private void saveEndgames() {
+        if (_endgames != null && _endgameFile != null) {
+            try {
+                _endgames.save(_endgameFile);
+            } catch (IOException excp) {
+                reportError("could not save endgames: %s", excp.getMessage());
+            }
+        }
+    }
+
     /** Perform the move designated by LINE, if a valid move.  Return
      *  true iff LINE has the syntax of a move. */
     private boolean processMove(String line) {
@@ -274,6 +362,7 @@ class Game {
                     next = _nonplayer.getMove();
                 }
                 if (next == null) {
+                    saveEndgames();
                     return;
                 } else {
                     processCommand(next);
@@ -284,6 +373,38 @@ class Game {
         }
     }
 
+    /** Play one game from the initial position between my current white
+     *  and black players, without updating my view or reading commands,
+     *  and return the winner (EMP for a tie).  The first OPENINGPLIES
+     *  moves (fewer if one would end the game) are chosen at random using
+     *  randInt, rather than by the players, so that games between the
+     *  same automated players differ.  Requires that both players be
+     *  automated. */
+    Piece playOut(int openingPlies) {
+        assert !manualWhite() && !manualBlack();
+        if (_board == null) {
+            _board = new Board();
+        } else {
+            _board.clear();
+        }
+        _playing = true;
+        int[] moves = new int[Board.MAX_MOVES];
+        for (int k = 0; k < openingPlies; k += 1) {
+            int n = _board.generateMoves(moves);
+            _board.makeMove(Move.mv(moves[randInt(n)]));
+            if (_board.gameOver()) {
+                _board.retract();
+                break;
+            }
+        }
+        while (!_board.gameOver()) {
+            Player player = _board.turn() == WP ? _white : _black;
+            _board.makeMove(mv(player.getMove()));
+        }
+        _playing = false;
+        return _board.winner();
+    }
+
     /** Print an announcement of the winner.  Requires that the game has been
      *  won. */
     private void announceWinner() {
@@ -314,6 +435,21 @@ class Game {
     /** The official game board. */
     private Board _board;
 
+    /** Time allowed to automated players per move, in milliseconds. */
+    private long _moveTime = DEFAULT_MOVE_TIME;
+
+    /** Number of threads each automated player uses to search. */
+    private int _searchThreads = DEFAULT_SEARCH_THREADS;
+
+    /** Opening book, or null if none. */
+    private OpeningBook _book;
+
+    /** Endgame cache, or null if none. */
+    private EndgameCache _endgames;
+
+    /** File to which _endgames is saved, or null if none. */
+    private Path _endgameFile;
+
     /** The current templates for manual and automated players. */
     private Player _autoPlayerTemplate, _manualPlayerTemplate;
 
@@ -339,7 +475,7 @@ class Game {
     /** Log file, or null if absent. */
     private PrintStream _logFile;
 
-    /** Input source. */
+    /** Input source, created when first needed. */
     private Scanner _input;
 
     /** Reporter for messages and errors. */
@@ -2,11 +2,17 @@
  * University of California.  All rights reserved. */
 package loa;
 
+import java.util.ArrayList;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
 import static java.lang.Math.max;
 import static java.lang.Math.min;
+import static loa.Board.MAX_MOVES;
 import static loa.Piece.*;
-import static loa.Square.ALL_SQUARES;
-import static loa.Square.sq;
+import static loa.Utils.debug;
 
 /** An automated Player.
  *  @author Brian Faun
@@ -25,9 +31,24 @@ class MachinePlayer extends Player {
         this(null, null);
     }
 
+    /** A new MachinePlayer with no piece or controller (intended to produce
+     *  a template) whose players take MOVETIME milliseconds per move
+     *  rather than their game's moveTime(). */
+    MachinePlayer(long moveTime) {
+        this(null, null, moveTime);
+    }
+
     /** A MachinePlayer that plays the SIDE pieces in GAME. */
     MachinePlayer(Piece side, Game game) {
+        this(side, game, 0);
+    }
+
+    /** A MachinePlayer that plays the SIDE pieces in GAME, taking
+     *  MOVETIME milliseconds per move, or GAME.moveTime() if MOVETIME is
+     *  0. */
+    private MachinePlayer(Piece side, Game game, long moveTime) {
         super(side, game);
+        _moveTime = moveTime;
     }
 
     @Override
@@ -35,7 +56,6 @@ class MachinePlayer extends Player {
         Move choice;
 
         assert side() == getGame().getBoard().turn();
-        int depth;
         choice = searchForMove();
         getGame().reportMove(choice);
         return choice.toString();
@@ -43,7 +63,7 @@ class MachinePlayer extends Player {
 
     @Override
     Player create(Piece piece, Game game) {
-        return new MachinePlayer(piece, game);
+        return new MachinePlayer(piece, game, _moveTime);
     }
 
     @Override
@@ -51,109 +71,437 @@ class MachinePlayer extends Player {
         return false;
     }
 
-    /** Return a move after searching the game tree to DEPTH>0 moves
-     *  from the current position. Assumes the game is not over. */
+    /** Return a move after searching the game tree from the current
+     *  position by iterative deepening: successively deeper searches until
+     *  the time allowed by moveTime() runs out, returning the
+     *  move chosen by the deepest search that completed.  Each search
+     *  leaves its best moves in the transposition table, where they order
+     *  the moves of the next.  If getGame().searchThreads() > 1, helper
+     *  threads search the same position at the same time ("Lazy SMP"),
+     *  each on its own copy of the board.  They communicate only through
+     *  the shared transposition table, filling it with results that the
+     *  main search then finds there.  The move returned is always that of
+     *  the main search, which runs in the calling thread, so a
+     *  single-threaded search is exactly the serial search.  Assumes the
+     *  game is not over. */
     private Move searchForMove() {
-        Board work = new Board(getBoard());
-        int value;
-        assert side() == work.turn();
-        _foundMove = null;
-        if (side() == WP) {
-            value = findMove(work, chooseDepth(), true, 1, -INFTY, INFTY);
+        Move known = knownMove(getBoard());
+        if (known != null) {
+            return known;
+        }
+        if (_table == null) {
+            _table = new TranspositionTable(TABLE_BITS);
+        }
+        _table.newSearch();
+        long deadline = System.nanoTime() + moveTime() * 1_000_000L;
+        int threads = getGame().searchThreads();
+        while (_searchers.size() < threads) {
+            _searchers.add(new Searcher(_searchers.size()));
+        }
+        _stop = false;
+        ArrayList<Future<?>> helpers = new ArrayList<>();
+        for (int i = 1; i < threads; i += 1) {
+            Searcher helper = _searchers.get(i);
+            helper.reset(getBoard(), deadline, MAX_DEPTH);
+            helpers.add(HELPERS.submit(helper::search));
+        }
+        Searcher main = _searchers.get(0);
+        main.reset(getBoard(), deadline, MAX_DEPTH);
+        Move best = main.search();
+        _stop = true;
+        long nodes = main.nodes();
+        for (int i = 0; i < helpers.size(); i += 1) {
+            try {
+                helpers.get(i).get();
+            } catch (InterruptedException excp) {
+                Thread.currentThread().interrupt();
+            } catch (ExecutionException excp) {
+                throw new Error("search thread failed", excp.getCause());
+            }
+            nodes += _searchers.get(i + 1).nodes();
+        }
+        debug(1, "%s: depth %d completed, %d nodes, %d threads%n",
+              side().fullName(), main.completedDepth(), nodes, threads);
+        EndgameCache endgames = getGame().endgames();
+        int sense = side() == WP ? 1 : -1;
+        if (endgames != null && EndgameCache.applies(getBoard())
+            && sense * main.value() >= WINNING_VALUE) {
+            endgames.record(getBoard().key(), best.code());
+        }
+        return best;
+    }
+
+    /** Return the move for BOARD recorded in my game's opening book or,
+     *  if BOARD has few enough pieces, its endgame cache, or null if
+     *  there is none.  Recorded moves are checked for legality, since
+     *  different positions may share a key. */
+    private Move knownMove(Board board) {
+        OpeningBook book = getGame().openingBook();
+        EndgameCache endgames = getGame().endgames();
+        int code = 0;
+        if (book != null) {
+            code = book.lookup(board.key());
+        }
+        if (code == 0 && endgames != null && EndgameCache.applies(board)) {
+            code = endgames.lookup(board.key());
+        }
+        if (code == 0 || !board.isLegal(Move.mv(code))) {
+            return null;
+        }
+        debug(1, "%s: known move %s%n", side().fullName(), Move.mv(code));
+        return Move.mv(code);
+    }
+
+    /** Return the time I take per move, in milliseconds. */
+    long moveTime() {
+        return _moveTime > 0 ? _moveTime : getGame().moveTime();
+    }
+
+    /** Return the move chosen by a single-threaded search of BOARD, on
+     *  which it must be my turn, by iterative deepening to exactly DEPTH
+     *  plies, without a time limit.  BOARD is unchanged.  Afterwards,
+     *  searchNodes, tableProbes, and tableHits describe the search.  Used
+     *  for benchmarking (see Benchmark). */
+    Move searchToDepth(Board board, int depth) {
+        assert side() == board.turn() && 0 < depth && depth <= MAX_DEPTH;
+        if (_table == null) {
+            _table = new TranspositionTable(TABLE_BITS);
+        }
+        _table.newSearch();
+        if (_searchers.isEmpty()) {
+            _searchers.add(new Searcher(0));
+        }
+        _stop = false;
+        Searcher main = _searchers.get(0);
+        main.reset(board, Long.MAX_VALUE, depth);
+        return main.search();
+    }
+
+    /** Empty my transposition table, creating it if needed. */
+    void clearTable() {
+        if (_table == null) {
+            _table = new TranspositionTable(TABLE_BITS);
         } else {
-            value = findMove(work, chooseDepth(), true, -1, -INFTY, INFTY);
-        }
-        return _foundMove;
-    }
-
-    /** Find a move from position BOARD and return its value, recording
-     *  the move found in _foundMove iff SAVEMOVE. The move
-     *  should have maximal value or have value > BETA if SENSE==1,
-     *  and minimal value or value < ALPHA if SENSE==-1. Searches up to
-     *  DEPTH levels.  Searching at level 0 simply returns a static estimate
-     *  of the board value and does not set _foundMove. If the game is over
-     *  on BOARD, does not set _foundMove. */
-    private int findMove(Board board, int depth, boolean saveMove,
-                         int sense, int alpha, int beta) {
-        int tact = alpha;
-        if (depth != 0 && !board.gameOver()) {
-            if (sense == 1) {
-                tact = alpha;
+            _table.clear();
+        }
+    }
+
+    /** Return the number of positions visited by the main thread in the
+     *  last search. */
+    long searchNodes() {
+        return _searchers.get(0).nodes();
+    }
+
+    /** Return the number of transposition table lookups made by the main
+     *  thread in the last search. */
+    long tableProbes() {
+        return _searchers.get(0).probes();
+    }
+
+    /** Return the number of those lookups that found an entry. */
+    long tableHits() {
+        return _searchers.get(0).hits();
+    }
+
+    /** One search thread's state: its copy of the board, its move
+     *  buffers, and its progress. */
+    private class Searcher {
+
+        /** A Searcher numbered ID.  Searcher 0 is the main search; the
+         *  others are helpers. */
+        Searcher(int id) {
+            _id = id;
+        }
+
+        /** Prepare to search from BOARD, stopping by time DEADLINE (as
+         *  given by System.nanoTime()) or at depth MAXDEPTH. */
+        void reset(Board board, long deadline, int maxDepth) {
+            _board.copyFrom(board);
+            _deadline = deadline;
+            _maxDepth = maxDepth;
+            _nodes = _probes = _hits = 0;
+            _completed = _value = 0;
+            _aborted = false;
+        }
+
+        /** Search by iterative deepening until the deadline, until a
+         *  forced result is found, or, for helpers, until the main search
+         *  has finished.  Returns the move chosen by the deepest search
+         *  that completed.  Helpers (whose results are not used) search
+         *  one ply deeper at odd-numbered searchers, so that the threads
+         *  do not all work on the same positions in the same order. */
+        Move search() {
+            int sense = side() == WP ? 1 : -1;
+            int offset = _id & 1;
+            Move best = null;
+            for (int depth = 1; depth + offset <= _maxDepth; depth += 1) {
+                _foundMove = null;
+                _mayAbort = best != null || _id != 0;
+                int value = findMove(_board, depth + offset, true, sense,
+                                     -INFTY, INFTY);
+                if (_aborted) {
+                    break;
+                }
+                best = _foundMove;
+                _value = value;
+                _completed = depth + offset;
+                if (Math.abs(value) >= WINNING_VALUE
+                    || System.nanoTime() >= _deadline) {
+                    break;
+                }
             }
-            for (int i = 0; i < board.legalMoves().size(); i++) {
-                Move amove = board.legalMoves().get(i);
-                board.makeMove(amove);
-                int bmove = findMove(board, depth - 1, false,
-                        -1 * sense, alpha, beta);
-                if (tact > bmove && sense != 1 || tact < bmove && sense == 1) {
-                    if (saveMove) {
-                        _foundMove = amove;
-                    }
-                    tact = bmove;
+            return best;
+        }
+
+        /** Return the number of positions visited by the last search. */
+        long nodes() {
+            return _nodes;
+        }
+
+        /** Return the value found by the deepest search completed by the
+         *  last search(). */
+        int value() {
+            return _value;
+        }
+
+        /** Return the number of transposition table lookups made by the
+         *  last search. */
+        long probes() {
+            return _probes;
+        }
+
+        /** Return the number of those lookups that found an entry. */
+        long hits() {
+            return _hits;
+        }
+
+        /** Return the depth of the deepest search completed by the last
+         *  search(). */
+        int completedDepth() {
+            return _completed;
+        }
+
+        /** Find a move from position BOARD and return its value,
+         *  recording the move found in _foundMove iff SAVEMOVE. The move
+         *  should have maximal value or have value > BETA if SENSE==1,
+         *  and minimal value or value < ALPHA if SENSE==-1. Searches up
+         *  to DEPTH levels.  Searching at level 0 simply returns a static
+         *  estimate of the board value and does not set _foundMove. If the
+         *  game is over on BOARD, does not set _foundMove.  Results are
+         *  recorded in, and when deep enough taken from, the
+         *  transposition table; the best move recorded there for BOARD
+         *  is searched first. */
+        private int findMove(Board board, int depth, boolean saveMove,
+                             int sense, int alpha, int beta) {
+            _nodes += 1;
+            if ((_nodes & CLOCK_INTERVAL) == 0 && _mayAbort
+                && (_stop || System.nanoTime() >= _deadline)) {
+                _aborted = true;
+            }
+            if (_aborted) {
+                return 0;
+            }
+            if (depth == 0 || board.gameOver()) {
+                return nextMove(board);
+            }
+            long key = board.key();
+            long entry = _table.probe(key);
+            _probes += 1;
+            if (entry != 0) {
+                _hits += 1;
+            }
+            int hashMove = TranspositionTable.move(entry);
+            if (entry != 0 && !saveMove
+                && TranspositionTable.depth(entry) >= depth) {
+                int score = TranspositionTable.score(entry);
+                switch (TranspositionTable.bound(entry)) {
+                case TranspositionTable.EXACT:
+                    return score;
+                case TranspositionTable.LOWER:
+                    alpha = max(alpha, score);
+                    break;
+                default:
+                    beta = min(beta, score);
+                    break;
                 }
-                if (sense == 1) {
-                    alpha = max(alpha, tact);
-                } else {
-                    beta = min(beta, tact);
+                if (alpha >= beta) {
+                    return score;
                 }
+            }
+            int alpha0 = alpha, beta0 = beta;
+            int[] moves = _moveBuffers[depth];
+            int n = board.generateMoves(moves);
+            promote(moves, n, hashMove);
+            int best = -sense * INFTY, bestMove = 0;
+            for (int i = 0; i < n; i += 1) {
+                Move move = Move.mv(moves[i]);
+                board.makeMove(move);
+                int value = findMove(board, depth - 1, false, -sense,
+                                     alpha, beta);
                 board.retract();
-                if (beta <= alpha) {
-                    break;
+                if (_aborted) {
+                    return 0;
+                }
+                if (sense == 1 ? value > best : value < best) {
+                    best = value;
+                    bestMove = moves[i];
+                    if (saveMove) {
+                        _foundMove = move;
+                    }
+                    if (sense == 1) {
+                        alpha = max(alpha, value);
+                    } else {
+                        beta = min(beta, value);
+                    }
+                    if (alpha >= beta) {
+                        break;
+                    }
                 }
             }
-        } else {
-            return nextMove(board);
+            int bound = best <= alpha0 ? TranspositionTable.UPPER
+                : best >= beta0 ? TranspositionTable.LOWER
+                : TranspositionTable.EXACT;
+            _table.store(key, depth, bound, best, bestMove);
+            return best;
         }
-        return tact;
+
+        /** My number: 0 for the main search. */
+        private final int _id;
+
+        /** The position being searched. */
+        private final Board _board = new Board();
+
+        /** Used to convey moves discovered by findMove. */
+        private Move _foundMove;
+
+        /** Number of positions visited by findMove. */
+        private long _nodes;
+
+        /** Numbers of transposition table lookups by findMove, and of
+         *  those that found an entry. */
+        private long _probes, _hits;
+
+        /** Deepest search to perform. */
+        private int _maxDepth;
+
+        /** Depth of the deepest search completed. */
+        private int _completed;
+
+        /** Value found by the deepest search completed. */
+        private int _value;
+
+        /** Value of System.nanoTime() at which the current search must
+         *  stop. */
+        private long _deadline;
+
+        /** True iff the current search may be abandoned when time runs
+         *  out, which for the main search is once some search has
+         *  completed and chosen a move. */
+        private boolean _mayAbort;
+
+        /** True iff the current search has been abandoned for lack of
+         *  time, in which case the values returned by findMove are
+         *  meaningless. */
+        private boolean _aborted;
+
+        /** _moveBuffers[d] holds the moves being considered by findMove
+         *  at remaining depth D, so that searching allocates no move
+         *  lists. */
+        private final int[][] _moveBuffers =
+            new int[MAX_DEPTH + 1][MAX_MOVES];
     }
 
-    /** Heuristic helper for findMove().
-     * @param b Board
-     * @return total
-     */
+    /** Move MOVE, if it is among MOVES[0 .. N-1], to the front of MOVES,
+     *  keeping the others in order. */
+    private static void promote(int[] moves, int n, int move) {
+        if (move == 0) {
+            return;
+        }
+        for (int i = 0; i < n; i += 1) {
+            if (moves[i] == move) {
+                System.arraycopy(moves, 0, moves, 1, i);
+                moves[0] = move;
+                return;
+            }
+        }
+    }
+
+    /** Return a static estimate of the value of B: positive values favor
+     *  white and negative black, with +/-WINNING_VALUE for won games.  The
+     *  estimate rewards a side for having its pieces close together (as
+     *  measured by Board.concentration, relative to the number of pieces),
+     *  for adjacent pairs of its pieces, and for having more moves
+     *  available.  Each term takes constant time or a walk over the rays
+     *  from each piece; nothing scans the whole board. */
     private int nextMove(Board b) {
-        if (b.gameOver()) {
-            if (b.winner() == EMP) {
+        Piece winner = b.winner();
+        if (winner != null) {
+            if (winner == EMP) {
                 return 0;
-            } else if (b.winner() == WP) {
+            } else if (winner == WP) {
                 return WINNING_VALUE;
             } else {
                 return -1 * WINNING_VALUE;
             }
         }
-        int total = 0, whiterow = 0, blackrow = 0, whitecol = 0, blackcol = 0;
-        int wtotal = 0, btotal = 0;
-        for (int i = 0; i < ALL_SQUARES.length; i++) {
-            Square sq = ALL_SQUARES[i];
-            if (b.get(sq) == BP) {
-                blackcol += sq.col();
-                blackrow += sq.row();
-                wtotal += 1;
-            }
-            if (b.get(sq) == WP) {
-                whitecol += sq.col();
-                whiterow += sq.row();
-                btotal += 1;
-            }
-        }
-        for (int i = 0; i < ALL_SQUARES.length; i++) {
-            Square s = ALL_SQUARES[i];
-            if (b.get(s) == BP) {
-                total += s.distance(sq(blackcol / btotal, blackrow / btotal));
-            }
-            if (b.get(s) == WP) {
-                total -= s.distance(sq(whitecol / wtotal, whiterow / wtotal));
-            }
-        }
-        return total;
+        return CONCENTRATION_WEIGHT * (spread(b, BP) - spread(b, WP))
+            + LINK_WEIGHT * (links(b, WP) - links(b, BP))
+            + MOBILITY_WEIGHT * (b.mobility(WP) - b.mobility(BP));
+    }
+
+    /** Return the mean squared distance of SIDE's pieces on B from their
+     *  center of mass, in units of 1/SCALE squares squared. */
+    private static int spread(Board b, Piece side) {
+        int n = b.pieceCount(side);
+        return SCALE * b.concentration(side) / (n * n);
     }
 
-    /** Return a search depth for the current position. */
-    private int chooseDepth() {
-        return 1;
+    /** Return the number of adjacent pairs of SIDE's pieces on B per piece,
+     *  in units of 1/SCALE. */
+    private static int links(Board b, Piece side) {
+        return SCALE * b.links(side) / b.pieceCount(side);
     }
 
-    /** Used to convey moves discovered by findMove. */
-    private Move _foundMove;
+    /** Fixed-point scale for the fractional terms of nextMove. */
+    private static final int SCALE = 16;
+
+    /** Weights of the terms of nextMove. */
+    private static final int
+        CONCENTRATION_WEIGHT = 4,
+        LINK_WEIGHT = 4,
+        MOBILITY_WEIGHT = 1;
+
+    /** Time per move in milliseconds, or 0 to use my game's. */
+    private final long _moveTime;
+
+    /** Base-2 logarithm of the number of transposition table entries. */
+    static final int TABLE_BITS = 20;
+
+    /** Results of previous searches, shared by successive moves and by
+     *  all search threads.  Created on first use, so that template
+     *  players do not allocate one. */
+    private TranspositionTable _table;
+
+    /** One less than a power of two: findMove checks the clock once every
+     *  CLOCK_INTERVAL + 1 nodes. */
+    private static final int CLOCK_INTERVAL = 0x3ff;
+
+    /** Deepest search findMove will be asked to perform. */
+    static final int MAX_DEPTH = 64;
+
+    /** Searchers used by searchForMove, indexed by number. */
+    private final ArrayList<Searcher> _searchers = new ArrayList<>();
+
+    /** Set when the main search has finished, telling helpers to stop. */
+    private volatile boolean _stop;
+
+    /** Runs helper searches.  Its threads are daemons, so that they do
+     *  not keep the program alive. */
+    private static final ExecutorService HELPERS =
+        Executors.newCachedThreadPool(r -> {
+            Thread thread = new Thread(r, "loa-search");
+            thread.setDaemon(true);
+            return thread;
+        });
 
 }
@@ -9,6 +9,8 @@ import java.io.InputStream;
 import java.io.InputStreamReader;
 import java.io.IOException;
 import java.io.PrintStream;
+import java.nio.file.Path;
+import java.nio.file.Paths;
 
 import ucb.util.CommandArgs;
 
@@ -36,7 +38,9 @@ public class Main {
     public static void main(String... args) {
         CommandArgs options =
             new CommandArgs("--debug=(\\d+){0,1} --display{0,1} --strict{0,1} "
-                            + "--log={0,1} --=(.*){0,2}",
+                            + "--log={0,1} --time=(\\d*\\.?\\d+){0,1} "
+                            + "--threads=(\\d+){0,1} --book={0,1} "
+                            + "--endgames={0,1} --=(.*){0,2}",
                             args);
 
         if (!options.ok()) {
@@ -75,6 +79,34 @@ public class Main {
         }
 
         Game game = getGame(options);
+        if (options.contains("--time")) {
+            double time = Double.parseDouble(options.getFirst("--time"));
+            if (time <= 0) {
+                usage();
+            }
+            game.setMoveTime(Math.max(1, Math.round(time * Game.MILLISEC)));
+        }
+        if (options.contains("--threads")) {
+            int threads = options.getInt("--threads");
+            if (threads <= 0) {
+                usage();
+            }
+            game.setSearchThreads(threads);
+        }
+        try {
+            if (options.contains("--book")) {
+                game.setOpeningBook(
+                    new OpeningBook(Paths.get(options.getFirst("--book"))));
+            }
+            if (options.contains("--endgames")) {
+                Path file = Paths.get(options.getFirst("--endgames"));
+                EndgameCache endgames = new EndgameCache();
+                endgames.load(file);
+                game.setEndgames(endgames, file);
+            }
+        } catch (IOException excp) {
+            error(1, "Could not read %s%n", excp.getMessage());
+        }
         if (!options.contains("--display")) {
             System.out.printf("Lines of Action.  Version %s.%n"
                               + "Type ? for help.%n", VERSION);
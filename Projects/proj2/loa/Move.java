@@ -32,6 +32,12 @@ final class Move {
         }
     }
 
+    /** Return the move whose code() is CODE.  Only the low MOVE_BITS bits
+     *  of CODE are significant. */
+    static Move mv(int code) {
+        return _moves[code & 0x3f][(code >>> 6) & 0x3f][(code >>> 12) & 1];
+    }
+
     /** Return a move denoted MOVE with isCapture() false. */
     static Move mv(String move) {
         return mv(move, false);
@@ -71,6 +77,22 @@ final class Move {
         return _captureMove;
     }
 
+    /** Return a compact encoding of this Move: bits 0-5 are the index of
+     *  its starting square, bits 6-11 that of its destination, and bit 12
+     *  is 1 iff it is a capture.  Inverse of mv(int). */
+    int code() {
+        return code(_from.index(), _to.index(), _capture);
+    }
+
+    /** Return the code() of the move from square index FROM to square
+     *  index TO, capturing iff CAPTURE. */
+    static int code(int from, int to, boolean capture) {
+        return from | to << 6 | (capture ? 1 << 12 : 0);
+    }
+
+    /** Number of significant bits in a move code. */
+    static final int MOVE_BITS = 13;
+
     /** Return the length of this move (number of squares moved). */
     int length() {
         return _from.distance(_to);
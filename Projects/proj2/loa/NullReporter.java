@@ -0,0 +1,21 @@
+/* Skeleton Copyright (C) 2015, 2020 Paul N. Hilfinger and the Regents of the
+ * University of California.  All rights reserved. */
+package loa;
+
+/** A Reporter that discards all messages.
+ *  @author Brian Faun
+ */
+class NullReporter implements Reporter {
+
+    @Override
+    public void reportError(String fmt, Object... args) {
+    }
+
+    @Override
+    public void reportNote(String fmt, Object... args) {
+    }
+
+    @Override
+    public void reportMove(Move move) {
+    }
+}
@@ -0,0 +1,117 @@
+/* Skeleton Copyright (C) 2015, 2020 Paul N. Hilfinger and the Regents of the
+ * University of California.  All rights reserved. */
+package loa;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+
+import static java.nio.file.StandardOpenOption.*;
+
+/** A read-only table of moves indexed by position key (see Zobrist),
+ *  kept in a file that is memory-mapped when opened, so that opening a
+ *  book costs nothing but a map and each lookup reads only the pages it
+ *  touches.
+ *
+ *  The file consists of a header of four ints (MAGIC, VERSION, the number
+ *  of entries N, and 0), followed by the N keys as longs in increasing
+ *  order, followed by the N corresponding move codes (see Move.code) as
+ *  ints, all big-endian.  Lookups are binary searches over the keys.
+ *  @author Brian Faun
+ */
+class OpeningBook {
+
+    /** First int of a book file. */
+    static final int MAGIC = 0x4c4f4142;
+
+    /** Current file format version. */
+    static final int VERSION = 1;
+
+    /** Size of the header in bytes. */
+    private static final int HEADER_SIZE = 4 * Integer.BYTES;
+
+    /** The book in FILE. */
+    OpeningBook(Path file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, READ)) {
+            _data = channel.map(FileChannel.MapMode.READ_ONLY, 0,
+                                channel.size());
+        }
+        if (_data.limit() < HEADER_SIZE || _data.getInt(0) != MAGIC
+            || _data.getInt(Integer.BYTES) != VERSION) {
+            throw new IOException("not a version " + VERSION
+                                  + " opening book: " + file);
+        }
+        _size = _data.getInt(2 * Integer.BYTES);
+        if (_size < 0 || _data.limit() != HEADER_SIZE
+            + (long) _size * (Long.BYTES + Integer.BYTES)) {
+            throw new IOException("corrupted opening book: " + file);
+        }
+        _moves = HEADER_SIZE + _size * Long.BYTES;
+    }
+
+    /** Return the number of entries. */
+    int size() {
+        return _size;
+    }
+
+    /** Return the key of entry I, 0 <= I < size(). */
+    long key(int i) {
+        return _data.getLong(HEADER_SIZE + i * Long.BYTES);
+    }
+
+    /** Return the move code of entry I, 0 <= I < size(). */
+    int move(int i) {
+        return _data.getInt(_moves + i * Integer.BYTES);
+    }
+
+    /** Return the code of the move recorded for the position with key
+     *  KEY, or 0 if there is none. */
+    int lookup(long key) {
+        int lo = 0, hi = _size - 1;
+        while (lo <= hi) {
+            int mid = (lo + hi) >>> 1;
+            long k = key(mid);
+            if (k < key) {
+                lo = mid + 1;
+            } else if (k > key) {
+                hi = mid - 1;
+            } else {
+                return move(mid);
+            }
+        }
+        return 0;
+    }
+
+    /** Write a book to FILE recording move code MOVES[i] for the position
+     *  with key KEYS[i], for 0 <= i < N.  KEYS[0 .. N-1] must be in
+     *  increasing order. */
+    static void write(Path file, long[] keys, int[] moves, int n)
+        throws IOException {
+        ByteBuffer buf = ByteBuffer.allocate(HEADER_SIZE
+                                             + n * (Long.BYTES
+                                                    + Integer.BYTES));
+        buf.putInt(MAGIC).putInt(VERSION).putInt(n).putInt(0);
+        for (int i = 0; i < n; i += 1) {
+            assert i == 0 || keys[i - 1] < keys[i];
+            buf.putLong(keys[i]);
+        }
+        for (int i = 0; i < n; i += 1) {
+            buf.putInt(moves[i]);
+        }
+        buf.flip();
+        try (FileChannel channel = FileChannel.open(file, WRITE, CREATE,
+                                                    TRUNCATE_EXISTING)) {
+            while (buf.hasRemaining()) {
+                channel.write(buf);
+            }
+        }
+    }
+
+    /** The mapped contents of the book file. */
+    private final ByteBuffer _data;
+    /** Number of entries. */
+    private final int _size;
+    /** Offset of the first move code in _data. */
+    private final int _moves;
+}
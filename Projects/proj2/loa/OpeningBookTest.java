@@ -0,0 +1,56 @@
+/* Skeleton Copyright (C) 2015, 2020 Paul N. Hilfinger and the Regents of the
+ * University of California.  All rights reserved. */
+package loa;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/** Tests of the OpeningBook and EndgameCache classes.
+ *  @author Brian Faun
+ */
+public class OpeningBookTest {
+
+    @Test
+    public void testWriteLookup() throws IOException {
+        Path file = Files.createTempFile("loa", ".book");
+        try {
+            long[] keys = { -5, 3, 17, 1L << 40 };
+            int[] moves = { 11, 12, 13, 14 };
+            OpeningBook.write(file, keys, moves, keys.length);
+            OpeningBook book = new OpeningBook(file);
+            assertEquals(4, book.size());
+            for (int i = 0; i < keys.length; i += 1) {
+                assertEquals(moves[i], book.lookup(keys[i]));
+            }
+            assertEquals(0, book.lookup(4));
+            assertEquals(0, book.lookup(Long.MAX_VALUE));
+        } finally {
+            Files.delete(file);
+        }
+    }
+
+    @Test
+    public void testEndgameSaveLoad() throws IOException {
+        Path file = Files.createTempFile("loa", ".endgames");
+        try {
+            EndgameCache cache = new EndgameCache();
+            cache.record(42, 7);
+            cache.record(-42, 8);
+            cache.save(file);
+            EndgameCache loaded = new EndgameCache();
+            loaded.load(file);
+            assertEquals(2, loaded.size());
+            assertEquals(7, loaded.lookup(42));
+            assertEquals(8, loaded.lookup(-42));
+            assertEquals(0, loaded.lookup(0));
+        } finally {
+            Files.delete(file);
+        }
+    }
+
+}
@@ -0,0 +1,62 @@
+/* Skeleton Copyright (C) 2015, 2020 Paul N. Hilfinger and the Regents of the
+ * University of California.  All rights reserved. */
+package loa;
+
+/** Move-generation benchmark: counts the leaf positions reachable in a
+ *  fixed number of moves ("perft"), exercising generateMoves, makeMove, and
+ *  retract, and reports the rate.  Counts also serve as a check that
+ *  changes to Board leave move generation unchanged.
+ *  @author Brian Faun
+ */
+public class Perft {
+
+    /** Default search depth. */
+    static final int DEFAULT_DEPTH = 4;
+
+    /** Number of untimed warm-up runs before measuring. */
+    static final int WARMUPS = 2;
+
+    /** Return the number of positions reachable from BOARD in exactly
+     *  DEPTH moves, leaving BOARD unchanged. */
+    static long perft(Board board, int depth) {
+        return perft(board, depth, new int[depth + 1][Board.MAX_MOVES]);
+    }
+
+    /** Return the number of positions reachable from BOARD in exactly
+     *  DEPTH moves, leaving BOARD unchanged, using MOVES[DEPTH] to hold
+     *  the moves at remaining depth DEPTH. */
+    private static long perft(Board board, int depth, int[][] moves) {
+        if (depth == 0) {
+            return 1;
+        }
+        int n = board.generateMoves(moves[depth]);
+        if (depth == 1) {
+            return n;
+        }
+        long count = 0;
+        for (int i = 0; i < n; i += 1) {
+            board.makeMove(Move.mv(moves[depth][i]));
+            count += perft(board, depth - 1, moves);
+            board.retract();
+        }
+        return count;
+    }
+
+    /** Run perft to depths 1 .. ARGS[0] (default DEFAULT_DEPTH) from the
+     *  initial position, printing counts and nodes per second. */
+    public static void main(String[] args) {
+        int depth = args.length > 0 ? Integer.parseInt(args[0])
+            : DEFAULT_DEPTH;
+        Board board = new Board();
+        for (int i = 0; i < WARMUPS; i++) {
+            perft(board, depth - 1);
+        }
+        for (int d = 1; d <= depth; d += 1) {
+            long start = System.nanoTime();
+            long nodes = perft(board, d);
+            double secs = (System.nanoTime() - start) * 1e-9;
+            System.out.printf("depth %d: %d nodes, %.3f sec, %.3e nodes/sec%n",
+                              d, nodes, secs, nodes / secs);
+        }
+    }
+}
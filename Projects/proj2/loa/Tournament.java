@@ -0,0 +1,186 @@
+/* Skeleton Copyright (C) 2015, 2020 Paul N. Hilfinger and the Regents of the
+ * University of California.  All rights reserved. */
+package loa;
+
+import java.util.ArrayList;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static loa.Piece.*;
+
+/** Headless self-play between two automated players, A and B, which
+ *  differ in the time they take per move.  Games run concurrently on a
+ *  fixed pool of worker threads, with no view, no console input, and a
+ *  Reporter that discards everything.  Each worker reuses two Games (one
+ *  with A playing black, one with A playing white) for all of its games,
+ *  so that nothing but the boards' move histories is allocated per game.
+ *
+ *  Games are played in pairs: games 2k and 2k+1 start with the same
+ *  random opening (see Game.playOut), seeded with SEED + k, with A
+ *  playing black in the first and white in the second.  Aggregate results
+ *  and timings are printed at the end as NAME=VALUE lines.
+ *  @author Brian Faun
+ */
+public class Tournament {
+
+    /** Default number of games. */
+    static final int DEFAULT_GAMES = 100;
+
+    /** Default time per move for both players, in milliseconds. */
+    static final long DEFAULT_MOVE_TIME = 20;
+
+    /** Number of random moves opening each game. */
+    static final int OPENING_PLIES = 4;
+
+    /** Base random seed for the openings. */
+    static final long SEED = 61;
+
+    /** A tournament of GAMES games between players taking MOVETIMEA and
+     *  MOVETIMEB milliseconds per move, played by WORKERS threads. */
+    Tournament(int games, int workers, long moveTimeA, long moveTimeB) {
+        _games = games;
+        _workers = workers;
+        _playerA = new MachinePlayer(moveTimeA);
+        _playerB = new MachinePlayer(moveTimeB);
+    }
+
+    /** Run a tournament as specified by ARGS: the number of games
+     *  (default DEFAULT_GAMES), the number of worker threads (default,
+     *  the number of processors), and the times per move of players A and
+     *  B in milliseconds (default DEFAULT_MOVE_TIME), all optional.
+     *  Prints the results on the standard output. */
+    public static void main(String[] args) {
+        int games = args.length > 0 ? Integer.parseInt(args[0])
+            : DEFAULT_GAMES;
+        int workers = args.length > 1 ? Integer.parseInt(args[1])
+            : Runtime.getRuntime().availableProcessors();
+        long timeA = args.length > 2 ? Long.parseLong(args[2])
+            : DEFAULT_MOVE_TIME;
+        long timeB = args.length > 3 ? Long.parseLong(args[3]) : timeA;
+        if (games <= 0 || workers <= 0 || timeA <= 0 || timeB <= 0) {
+            System.err.println("Usage: java loa.Tournament [GAMES "
+                               + "[WORKERS [MILLIS_A [MILLIS_B]]]]");
+            System.exit(1);
+        }
+        Tournament tournament =
+            new Tournament(games, workers, timeA, timeB);
+        tournament.run();
+        tournament.report();
+    }
+
+    /** Play all games. */
+    void run() {
+        ExecutorService pool = Executors.newFixedThreadPool(_workers);
+        long start = System.nanoTime();
+        try {
+            ArrayList<Future<?>> results = new ArrayList<>();
+            for (int i = 0; i < _workers; i += 1) {
+                results.add(pool.submit(this::work));
+            }
+            for (Future<?> result : results) {
+                result.get();
+            }
+        } catch (InterruptedException excp) {
+            Thread.currentThread().interrupt();
+        } catch (ExecutionException excp) {
+            throw new Error("tournament game failed", excp.getCause());
+        } finally {
+            pool.shutdown();
+        }
+        _wallNanos = System.nanoTime() - start;
+    }
+
+    /** Play games, taking the next unplayed game number each time, until
+     *  all have been claimed. */
+    private void work() {
+        Reporter reporter = new NullReporter();
+        View view = new NullView();
+        Game aBlack = new Game(view, null, reporter, _playerA, _playerB,
+                               false);
+        Game aWhite = new Game(view, null, reporter, _playerB, _playerA,
+                               false);
+        for (int g = _next.getAndIncrement(); g < _games;
+             g = _next.getAndIncrement()) {
+            boolean aIsBlack = g % 2 == 0;
+            Game game = aIsBlack ? aBlack : aWhite;
+            game.setSeed(SEED + g / 2);
+            long start = System.nanoTime();
+            Piece winner = game.playOut(OPENING_PLIES);
+            long elapsed = System.nanoTime() - start;
+            record(winner == EMP ? null
+                   : winner == BP ? aIsBlack : !aIsBlack,
+                   aIsBlack, game.getBoard().movesMade(), elapsed);
+        }
+    }
+
+    /** Record the result of one game, which lasted MOVES moves and took
+     *  NANOS nanoseconds, and in which A played black iff AISBLACK.
+     *  AWON is true if A won, false if B won, and null for a tie. */
+    private synchronized void record(Boolean aWon, boolean aIsBlack,
+                                     int moves, long nanos) {
+        if (aWon == null) {
+            _draws += 1;
+        } else if (aWon) {
+            _winsA += 1;
+            if (aIsBlack) {
+                _winsABlack += 1;
+            }
+        } else {
+            _winsB += 1;
+            if (!aIsBlack) {
+                _winsBBlack += 1;
+            }
+        }
+        _played += 1;
+        _totalMoves += moves;
+        _gameNanos += nanos;
+        _maxGameNanos = Math.max(_maxGameNanos, nanos);
+    }
+
+    /** Print aggregate results on the standard output. */
+    synchronized void report() {
+        double wallSecs = _wallNanos * 1e-9;
+        System.out.printf("games=%d%n", _played);
+        System.out.printf("workers=%d%n", _workers);
+        System.out.printf("wins_a=%d%n", _winsA);
+        System.out.printf("wins_b=%d%n", _winsB);
+        System.out.printf("draws=%d%n", _draws);
+        System.out.printf("wins_a_as_black=%d%n", _winsABlack);
+        System.out.printf("wins_b_as_black=%d%n", _winsBBlack);
+        System.out.printf("score_a=%.4f%n",
+                          _played == 0 ? 0.0
+                          : (_winsA + 0.5 * _draws) / _played);
+        System.out.printf("mean_moves=%.2f%n",
+                          _played == 0 ? 0.0
+                          : (double) _totalMoves / _played);
+        System.out.printf("mean_game_millis=%.3f%n",
+                          _played == 0 ? 0.0
+                          : _gameNanos * 1e-6 / _played);
+        System.out.printf("max_game_millis=%.3f%n", _maxGameNanos * 1e-6);
+        System.out.printf("wall_secs=%.3f%n", wallSecs);
+        System.out.printf("games_per_sec=%.3f%n", _played / wallSecs);
+    }
+
+    /** Number of games to play. */
+    private final int _games;
+    /** Number of worker threads. */
+    private final int _workers;
+    /** Templates for players A and B. */
+    private final Player _playerA, _playerB;
+    /** Number of the next game to be claimed by a worker. */
+    private final AtomicInteger _next = new AtomicInteger();
+
+    /** Games completed, won by A, won by B, and tied. */
+    private int _played, _winsA, _winsB, _draws;
+    /** Games won by A playing black and by B playing black. */
+    private int _winsABlack, _winsBBlack;
+    /** Total moves in completed games. */
+    private long _totalMoves;
+    /** Total and maximum time taken by single games, in nanoseconds. */
+    private long _gameNanos, _maxGameNanos;
+    /** Elapsed time of run(), in nanoseconds. */
+    private long _wallNanos;
+}
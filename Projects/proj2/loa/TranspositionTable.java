@@ -0,0 +1,116 @@
+/* Skeleton Copyright (C) 2015, 2020 Paul N. Hilfinger and the Regents of the
+ * University of California.  All rights reserved. */
+package loa;
+
+import java.util.Arrays;
+
+/** A fixed-size table of search results indexed by position key (see
+ *  Zobrist).  Each entry records the depth searched, a score, whether the
+ *  score is exact or a bound, and the best move found.  A new entry
+ *  replaces the one in its slot unless that one comes from the current
+ *  search and was searched deeper.
+ *
+ *  Entries are packed into a single long (see probe), which is stored
+ *  exclusive-or'ed with its key, so that a lookup never returns data that
+ *  belongs to a different position.  This also makes the table safe to
+ *  share between search threads without locking: an entry whose key and
+ *  data were written by different threads, or only half written, fails
+ *  the key check and reads as absent.  newSearch, however, must not run
+ *  concurrently with other operations.
+ *  @author Brian Faun
+ */
+class TranspositionTable {
+
+    /** Bound types.  EXACT scores are exact; LOWER scores are lower bounds
+     *  and UPPER scores upper bounds on the true value. */
+    static final int EXACT = 1, LOWER = 2, UPPER = 3;
+
+    /** A table with 2**LOGSIZE entries. */
+    TranspositionTable(int logSize) {
+        _keys = new long[1 << logSize];
+        _data = new long[1 << logSize];
+        _mask = (1 << logSize) - 1;
+    }
+
+    /** Return the entry for the position with key KEY, or 0 if there is
+     *  none.  Use score, depth, bound, and move to unpack it. */
+    long probe(long key) {
+        int i = (int) key & _mask;
+        long data = _data[i];
+        return (_keys[i] ^ data) == key ? data : 0;
+    }
+
+    /** Record that the position with key KEY, searched to DEPTH, has
+     *  value SCORE, which is of type BOUND (EXACT, LOWER, or UPPER), and
+     *  that MOVE (a move code, or 0 for none) is the best move from it. */
+    void store(long key, int depth, int bound, int score, int move) {
+        int i = (int) key & _mask;
+        long old = _data[i];
+        if (old != 0 && generation(old) == _generation
+            && depth(old) > depth && (_keys[i] ^ old) != key) {
+            return;
+        }
+        long data = (score & 0xffffffffL)
+            | (long) depth << DEPTH_SHIFT
+            | (long) bound << BOUND_SHIFT
+            | (long) move << MOVE_SHIFT
+            | (long) _generation << GENERATION_SHIFT;
+        _keys[i] = key ^ data;
+        _data[i] = data;
+    }
+
+    /** Start a new search: existing entries remain usable, but may be
+     *  replaced by any new entry. */
+    void newSearch() {
+        _generation = (_generation + 1) & GENERATION_MASK;
+    }
+
+    /** Remove all entries. */
+    void clear() {
+        Arrays.fill(_keys, 0);
+        Arrays.fill(_data, 0);
+    }
+
+    /** Return the score recorded in ENTRY. */
+    static int score(long entry) {
+        return (int) entry;
+    }
+
+    /** Return the depth recorded in ENTRY. */
+    static int depth(long entry) {
+        return (int) (entry >>> DEPTH_SHIFT) & DEPTH_MASK;
+    }
+
+    /** Return the bound type recorded in ENTRY. */
+    static int bound(long entry) {
+        return (int) (entry >>> BOUND_SHIFT) & BOUND_MASK;
+    }
+
+    /** Return the move code recorded in ENTRY (0 if none). */
+    static int move(long entry) {
+        return (int) (entry >>> MOVE_SHIFT) & MOVE_MASK;
+    }
+
+    /** Return the search generation recorded in ENTRY. */
+    private static int generation(long entry) {
+        return (int) (entry >>> GENERATION_SHIFT) & GENERATION_MASK;
+    }
+
+    /** Positions and widths of the fields of an entry.  The score occupies
+     *  the low 32 bits. */
+    private static final int
+        DEPTH_SHIFT = 32, DEPTH_MASK = 0xff,
+        BOUND_SHIFT = 40, BOUND_MASK = 0x3,
+        MOVE_SHIFT = 42, MOVE_MASK = (1 << Move.MOVE_BITS) - 1,
+        GENERATION_SHIFT = MOVE_SHIFT + Move.MOVE_BITS,
+        GENERATION_MASK = 0x3f;
+
+    /** Entry keys, exclusive-or'ed with the corresponding _data. */
+    private final long[] _keys;
+    /** Packed entries. */
+    private final long[] _data;
+    /** Mask selecting the slot index from a key. */
+    private final int _mask;
+    /** Current search generation. */
+    private int _generation;
+}
@@ -0,0 +1,47 @@
+/* Skeleton Copyright (C) 2015, 2020 Paul N. Hilfinger and the Regents of the
+ * University of California.  All rights reserved. */
+package loa;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+import static loa.TranspositionTable.*;
+
+/** Tests of the TranspositionTable class.
+ *  @author Brian Faun
+ */
+public class TranspositionTableTest {
+
+    @Test
+    public void testStoreProbe() {
+        TranspositionTable table = new TranspositionTable(4);
+        int move = Move.mv("c1-c3").code();
+        assertEquals(0, table.probe(17));
+        table.store(17, 3, LOWER, -1234, move);
+        long entry = table.probe(17);
+        assertEquals(3, depth(entry));
+        assertEquals(LOWER, bound(entry));
+        assertEquals(-1234, score(entry));
+        assertEquals(move, move(entry));
+        assertEquals("different key, same slot", 0, table.probe(17 + 16));
+    }
+
+    @Test
+    public void testReplaceByDepth() {
+        TranspositionTable table = new TranspositionTable(4);
+        table.store(5, 4, EXACT, 10, 0);
+        table.store(5 + 16, 2, EXACT, 20, 0);
+        assertEquals("shallower entry kept out", 10, score(table.probe(5)));
+        table.store(5, 1, UPPER, 30, 0);
+        assertEquals("same position replaced", 30, score(table.probe(5)));
+        table.store(5 + 16, 2, EXACT, 20, 0);
+        assertEquals("deeper entry replaces", 20,
+                     score(table.probe(5 + 16)));
+        table.store(5, 4, EXACT, 10, 0);
+        table.newSearch();
+        table.store(5 + 16, 1, EXACT, 40, 0);
+        assertEquals("old search replaced", 40, score(table.probe(5 + 16)));
+    }
+
+}
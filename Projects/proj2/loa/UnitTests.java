@@ -15,6 +15,8 @@ public class UnitTests {
     public static void main(String[] ignored) {
         textui.runClasses(UnitTests.class);
         textui.runClasses(BoardTest.class);
+        textui.runClasses(TranspositionTableTest.class);
+        textui.runClasses(OpeningBookTest.class);
     }
 
     /** Test 1. */
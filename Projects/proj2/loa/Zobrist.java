@@ -0,0 +1,72 @@
+/* Skeleton Copyright (C) 2015, 2020 Paul N. Hilfinger and the Regents of the
+ * University of California.  All rights reserved. */
+package loa;
+
+import java.util.Random;
+
+import static loa.Piece.*;
+import static loa.Square.*;
+
+/** Random keys for Zobrist hashing of positions.  The key of a position is
+ *  the exclusive or of piece(P, S) for each piece P on square index S,
+ *  together with turn(T) for the side T to move, so that making a move
+ *  changes it by a few exclusive ors.  The keys are fixed (seeded), so
+ *  that a position has the same key in every run.
+ *  @author Brian Faun
+ */
+final class Zobrist {
+
+    /** Not instantiable. */
+    private Zobrist() {
+    }
+
+    /** Return the key for a piece P on square index SQ (0 if P is EMP). */
+    static long piece(Piece p, int sq) {
+        switch (p) {
+        case BP:
+            return BLACK[sq];
+        case WP:
+            return WHITE[sq];
+        default:
+            return 0;
+        }
+    }
+
+    /** Return the key contribution of SIDE being on move. */
+    static long turn(Piece side) {
+        return side == BP ? BLACK_TO_MOVE : 0;
+    }
+
+    /** Return the key of a position with black pieces on the squares in
+     *  BLACKS, white pieces on those in WHITES, and SIDE to move. */
+    static long key(long blacks, long whites, Piece side) {
+        long key = turn(side);
+        for (long rest = blacks; rest != 0; rest &= rest - 1) {
+            key ^= BLACK[Long.numberOfTrailingZeros(rest)];
+        }
+        for (long rest = whites; rest != 0; rest &= rest - 1) {
+            key ^= WHITE[Long.numberOfTrailingZeros(rest)];
+        }
+        return key;
+    }
+
+    /** Seed for the key generator. */
+    private static final long SEED = 0x6c6f61L;
+
+    /** Keys for black and white pieces, indexed by square index. */
+    private static final long[]
+        BLACK = new long[NUM_SQUARES],
+        WHITE = new long[NUM_SQUARES];
+
+    /** Key contribution when black is on move. */
+    static final long BLACK_TO_MOVE;
+
+    static {
+        Random gen = new Random(SEED);
+        for (int s = 0; s < NUM_SQUARES; s += 1) {
+            BLACK[s] = gen.nextLong();
+            WHITE[s] = gen.nextLong();
+        }
+        BLACK_TO_MOVE = gen.nextLong();
+    }
+}
@@ -0,0 +1,177 @@
+package gitlet;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Arrays;
+import java.util.HashMap;
+
+/** The division of a file's contents into content-defined chunks, with a
+ *  fingerprint of each.  A Rabin-Karp hash of the last WINDOW bytes is
+ *  rolled over the contents, and a chunk ends at the first line end after
+ *  a point where the low bits of the hash are zero (so about every
+ *  2 ** BOUNDARY_BITS bytes), but not before MIN_CHUNK bytes, and in any
+ *  case after MAX_CHUNK bytes.  Since boundaries depend only on nearby
+ *  contents, an edit changes only the chunks around it: two versions of a
+ *  file share all the chunks away from their differences, which can then
+ *  be found by comparing the sequences of fingerprints.
+ *
+ *  Contents are read once, as a stream, and only the fingerprints and
+ *  lengths of the chunks are kept, so the memory used is a small fraction
+ *  of the file's size.
+ *  @author Brian Faun
+ */
+class Chunks {
+
+    /** Length of the window of the rolling hash. */
+    static final int WINDOW = 32;
+
+    /** Number of low bits of the rolling hash that must be zero for a
+     *  chunk boundary. */
+    static final int BOUNDARY_BITS = 8;
+
+    /** Shortest and longest chunks, in bytes. */
+    static final int MIN_CHUNK = 64, MAX_CHUNK = 8192;
+
+    /** Multiplier of the rolling hash. */
+    private static final int PRIME = 31;
+
+    /** PRIME ** WINDOW, the weight of the byte leaving the window. */
+    private static final int OUT_WEIGHT;
+
+    static {
+        int w = 1;
+        for (int i = 0; i < WINDOW; i += 1) {
+            w *= PRIME;
+        }
+        OUT_WEIGHT = w;
+    }
+
+    /** Mask selecting the bits of the rolling hash that mark a boundary. */
+    private static final int BOUNDARY_MASK = (1 << BOUNDARY_BITS) - 1;
+
+    /** Parameters of the 64-bit FNV-1a fingerprint of a chunk. */
+    private static final long FNV_BASIS = 0xcbf29ce484222325L,
+        FNV_PRIME = 0x100000001b3L;
+
+    /** Size of the buffer used to read contents. */
+    private static final int BUFFER_SIZE = 1 << 16;
+
+    /** Return the chunks of the remaining contents of IN, which is not
+     *  closed. */
+    static Chunks of(InputStream in) {
+        Chunks result = new Chunks();
+        byte[] window = new byte[WINDOW];
+        byte[] buf = new byte[BUFFER_SIZE];
+        int roll = 0, len = 0, pos = 0;
+        long fingerprint = FNV_BASIS;
+        boolean cut = false;
+        try {
+            for (int n = in.read(buf); n >= 0; n = in.read(buf)) {
+                for (int i = 0; i < n; i += 1) {
+                    byte b = buf[i];
+                    roll = roll * PRIME + b - window[pos] * OUT_WEIGHT;
+                    window[pos] = b;
+                    pos = (pos + 1) % WINDOW;
+                    fingerprint = (fingerprint ^ (b & 0xff)) * FNV_PRIME;
+                    len += 1;
+                    if (b == 0) {
+                        result._binary = true;
+                    }
+                    cut |= len >= MIN_CHUNK && (roll & BOUNDARY_MASK) == 0;
+                    if ((cut && b == '\n') || len == MAX_CHUNK) {
+                        result.add(fingerprint, len);
+                        len = 0;
+                        fingerprint = FNV_BASIS;
+                        cut = false;
+                    }
+                }
+            }
+        } catch (IOException excp) {
+            throw new IllegalArgumentException(excp.getMessage());
+        }
+        if (len > 0) {
+            result.add(fingerprint, len);
+        }
+        return result;
+    }
+
+    /** Return the number of chunks. */
+    int count() {
+        return _count;
+    }
+
+    /** Return the fingerprint of chunk K. */
+    long fingerprint(int k) {
+        return _fingerprints[k];
+    }
+
+    /** Return the length of chunk K in bytes. */
+    int length(int k) {
+        return _lengths[k];
+    }
+
+    /** Return the total length of the contents. */
+    long size() {
+        return _size;
+    }
+
+    /** Return true iff the contents contain a zero byte, and so are
+     *  assumed not to be text. */
+    boolean binary() {
+        return _binary;
+    }
+
+    /** Return the number of bytes in my chunks that also appear as chunks
+     *  of OTHER (counting repeated chunks no more often than OTHER has
+     *  them). */
+    long common(Chunks other) {
+        HashMap<Long, Integer> counts = new HashMap<>();
+        for (int k = 0; k < other._count; k += 1) {
+            counts.merge(other._fingerprints[k], 1, Integer::sum);
+        }
+        long result = 0;
+        for (int k = 0; k < _count; k += 1) {
+            Integer n = counts.get(_fingerprints[k]);
+            if (n != null && n > 0) {
+                counts.put(_fingerprints[k], n - 1);
+                result += _lengths[k];
+            }
+        }
+        return result;
+    }
+
+    /** Return the similarity of my contents to OTHER's, as the percentage
+     *  of the longer that is in chunks they share. */
+    int similarity(Chunks other) {
+        long longer = Math.max(_size, other._size);
+        return longer == 0 ? 100 : (int) (100 * common(other) / longer);
+    }
+
+    /** Append a chunk with fingerprint FINGERPRINT and LENGTH bytes. */
+    private void add(long fingerprint, int length) {
+        if (_count == _lengths.length) {
+            int cap = 2 * _count;
+            _fingerprints = Arrays.copyOf(_fingerprints, cap);
+            _lengths = Arrays.copyOf(_lengths, cap);
+        }
+        _fingerprints[_count] = fingerprint;
+        _lengths[_count] = length;
+        _count += 1;
+        _size += length;
+    }
+
+    /** Initial capacity of the chunk arrays. */
+    private static final int INITIAL_CHUNKS = 16;
+
+    /** Fingerprints and lengths of the chunks, in elements
+     *  0 .. _count-1. */
+    private long[] _fingerprints = new long[INITIAL_CHUNKS];
+    /** Chunk lengths. */
+    private int[] _lengths = new int[INITIAL_CHUNKS];
+    /** Number of chunks. */
+    private int _count;
+    /** Total length of the chunks. */
+    private long _size;
+    /** True iff the contents contain a zero byte. */
+    private boolean _binary;
+}
@@ -0,0 +1,234 @@
+package gitlet;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/** A compact binary encoding of gitlet's persistent objects, used in place
+ *  of Java serialization.  An object's encoding is a sequence of fields,
+ *  each put by a Writer method and taken back by the Reader method of the
+ *  same name, in the same order; no class names, field names, or types are
+ *  recorded, and nothing is found by reflection.  Non-negative integers
+ *  are varints: seven bits a byte, least significant first, with the high
+ *  bit set on all but the last byte.  Signed longs are zigzag-encoded
+ *  varints, so that small magnitudes stay short.  Strings (in UTF-8) and
+ *  byte arrays are preceded by their lengths as varints, and hashes are
+ *  stored as byte arrays of 20 binary bytes, or empty for null.
+ *
+ *  By convention, each type's encoding begins with a varint version
+ *  number, so that its format can change without making old objects
+ *  unreadable.
+ *  @author Brian Faun
+ */
+class Codec {
+
+    /** An object that can be encoded. */
+    interface Encodable {
+        /** Put my fields on OUT. */
+        void encode(Writer out);
+    }
+
+    /** A reconstructor of objects of type T from their encodings. */
+    interface Decoder<T> {
+        /** Return the object whose fields are next on IN. */
+        T decode(Reader in);
+    }
+
+    /** Return the encoding of OBJ. */
+    static byte[] encode(Encodable obj) {
+        Writer out = new Writer();
+        obj.encode(out);
+        return out.toByteArray();
+    }
+
+    /** Return the object encoded by exactly the bytes of DATA, as
+     *  reconstructed by DECODER. */
+    static <T> T decode(byte[] data, Decoder<T> decoder) {
+        Reader in = new Reader(data);
+        T result = decoder.decode(in);
+        if (!in.atEnd()) {
+            throw new IllegalArgumentException("bad encoding: extra bytes");
+        }
+        return result;
+    }
+
+    /** Check that VERSION, read from an encoding, is EXPECTED. */
+    static void checkVersion(int version, int expected) {
+        if (version != expected) {
+            throw new IllegalArgumentException(
+                String.format("unknown encoding version %d", version));
+        }
+    }
+
+    /** A destination for the fields of an encoding. */
+    static class Writer {
+
+        /** Put N >= 0 as a varint. */
+        void writeVarint(long n) {
+            if (n < 0) {
+                throw new IllegalArgumentException("negative varint");
+            }
+            while (n >= VARINT_HIGH_BIT) {
+                put((int) (n & VARINT_MASK) | VARINT_HIGH_BIT);
+                n >>>= VARINT_SHIFT;
+            }
+            put((int) n);
+        }
+
+        /** Put N as a zigzag-encoded varint. */
+        void writeLong(long n) {
+            long zigzag = (n << 1) ^ (n >> (Long.SIZE - 1));
+            while ((zigzag & ~VARINT_MASK) != 0) {
+                put((int) (zigzag & VARINT_MASK) | VARINT_HIGH_BIT);
+                zigzag >>>= VARINT_SHIFT;
+            }
+            put((int) zigzag);
+        }
+
+        /** Put DATA, preceded by its length. */
+        void writeBytes(byte[] data) {
+            writeVarint(data.length);
+            reserve(data.length);
+            System.arraycopy(data, 0, _data, _size, data.length);
+            _size += data.length;
+        }
+
+        /** Put S in UTF-8, preceded by its length in bytes. */
+        void writeString(String s) {
+            writeBytes(s.getBytes(StandardCharsets.UTF_8));
+        }
+
+        /** Put the hash ID (in hex), or null. */
+        void writeHash(String id) {
+            writeBytes(id == null ? NO_BYTES : Pack.toBytes(id));
+        }
+
+        /** Return the encoding so far. */
+        byte[] toByteArray() {
+            return Arrays.copyOf(_data, _size);
+        }
+
+        /** Append the byte B. */
+        private void put(int b) {
+            reserve(1);
+            _data[_size] = (byte) b;
+            _size += 1;
+        }
+
+        /** Make room for N more bytes. */
+        private void reserve(int n) {
+            if (_size + n > _data.length) {
+                _data = Arrays.copyOf(_data,
+                                      Math.max(2 * _data.length, _size + n));
+            }
+        }
+
+        /** The encoding so far, in _data[0 .. _size-1]. */
+        private byte[] _data = new byte[INITIAL_SIZE];
+        /** Length of the encoding so far. */
+        private int _size;
+    }
+
+    /** A source of the fields of an encoding.  Reading past the end, or a
+     *  malformed field, throws IllegalArgumentException. */
+    static class Reader {
+
+        /** A reader of the fields in DATA. */
+        Reader(byte[] data) {
+            _data = data;
+        }
+
+        /** Return the next field, a varint. */
+        long readVarint() {
+            long n = 0;
+            for (int shift = 0; ; shift += VARINT_SHIFT) {
+                if (shift >= Long.SIZE) {
+                    throw new IllegalArgumentException("bad encoding: varint");
+                }
+                int b = next();
+                n |= (long) (b & VARINT_MASK) << shift;
+                if ((b & VARINT_HIGH_BIT) == 0) {
+                    return n;
+                }
+            }
+        }
+
+        /** Return the next field, a varint that must fit in an int. */
+        int readInt() {
+            long n = readVarint();
+            if (n > Integer.MAX_VALUE) {
+                throw new IllegalArgumentException("bad encoding: int");
+            }
+            return (int) n;
+        }
+
+        /** Return the next field, a zigzag-encoded long. */
+        long readLong() {
+            long zigzag = readVarint();
+            return (zigzag >>> 1) ^ -(zigzag & 1);
+        }
+
+        /** Return the next field, a length-prefixed byte array. */
+        byte[] readBytes() {
+            int len = readInt();
+            if (len > _data.length - _pos) {
+                throw new IllegalArgumentException("bad encoding: length");
+            }
+            byte[] result = new byte[len];
+            System.arraycopy(_data, _pos, result, 0, len);
+            _pos += len;
+            return result;
+        }
+
+        /** Return the next field, a string. */
+        String readString() {
+            int len = readInt();
+            if (len > _data.length - _pos) {
+                throw new IllegalArgumentException("bad encoding: length");
+            }
+            String result =
+                new String(_data, _pos, len, StandardCharsets.UTF_8);
+            _pos += len;
+            return result;
+        }
+
+        /** Return the next field, a hash in hex, or null. */
+        String readHash() {
+            byte[] hash = readBytes();
+            if (hash.length == 0) {
+                return null;
+            } else if (hash.length != Pack.HASH_BYTES) {
+                throw new IllegalArgumentException("bad encoding: hash");
+            }
+            return ObjectStore.hex(hash);
+        }
+
+        /** Return true iff all fields have been read. */
+        boolean atEnd() {
+            return _pos == _data.length;
+        }
+
+        /** Return the next byte, as an unsigned value. */
+        private int next() {
+            if (_pos >= _data.length) {
+                throw new IllegalArgumentException("bad encoding: truncated");
+            }
+            return _data[_pos++] & 0xff;
+        }
+
+        /** The encoding being read. */
+        private final byte[] _data;
+        /** Position of the next field in _data. */
+        private int _pos;
+    }
+
+    /** Bits of a value carried by each byte of a varint. */
+    private static final int VARINT_SHIFT = 7;
+    /** Mask for the value bits of a varint byte. */
+    private static final int VARINT_MASK = (1 << VARINT_SHIFT) - 1;
+    /** Flag marking a varint byte that is not the last. */
+    private static final int VARINT_HIGH_BIT = 1 << VARINT_SHIFT;
+    /** Initial capacity of a Writer. */
+    private static final int INITIAL_SIZE = 128;
+    /** An empty array. */
+    private static final byte[] NO_BYTES = new byte[0];
+}
@@ -0,0 +1,138 @@
+package gitlet;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.Serializable;
+import java.util.TreeMap;
+
+/** Benchmark comparing the Codec encoding of commits with the Java
+ *  serialization that it replaced.  For commits tracking various numbers
+ *  of files, reports for each format the encoded size and the average
+ *  times to encode and to decode.  The serialized form is that of a class
+ *  with the fields of Commit, as Commit itself was before Codec.
+ *
+ *  Output is comma-separated, one record per line after a header line.
+ *  @author Brian Faun
+ */
+public class CodecBenchmark {
+
+    /** Numbers of tracked files in the benchmark commits. */
+    static final int[] FILE_COUNTS = { 0, 10, 1000 };
+
+    /** Default number of encodings and decodings timed per record. */
+    static final int DEFAULT_ITERATIONS = 20000;
+
+    /** Output header. */
+    static final String HEADER = "format,files,bytes,encode_ns,decode_ns";
+
+    /** Run the benchmarks, timing ARGS[0] (default DEFAULT_ITERATIONS)
+     *  encodings and decodings for each record, and print the results on
+     *  the standard output. */
+    public static void main(String[] args) {
+        int iterations = args.length > 0 ? Integer.parseInt(args[0])
+            : DEFAULT_ITERATIONS;
+        System.out.println(HEADER);
+        for (int files : FILE_COUNTS) {
+            Commit commit = commit(files);
+            SerialCommit serial = new SerialCommit(commit);
+            int n = Math.max(1, iterations / Math.max(1, files / 10));
+            codec(commit, n / 10);
+            serialization(serial, n / 10);
+            report("codec", files, codec(commit, n), n);
+            report("serialization", files, serialization(serial, n), n);
+        }
+    }
+
+    /** Print a record for format FORMAT and FILES files from RESULT, the
+     *  size and total encoding and decoding times of N iterations. */
+    static void report(String format, int files, long[] result, int n) {
+        System.out.printf("%s,%d,%d,%d,%d%n", format, files, result[0],
+                          result[1] / n, result[2] / n);
+    }
+
+    /** Return a commit with a merge parent tracking FILES files. */
+    static Commit commit(int files) {
+        TreeMap<String, String> blobs = new TreeMap<>();
+        for (int k = 0; k < files; k += 1) {
+            blobs.put(String.format("src/file%d.txt", k),
+                      Utils.sha1(Integer.toString(k)));
+        }
+        return new Commit("A commit for benchmarking", 1600000000000L,
+                          Utils.sha1("parent"), Utils.sha1("other"), blobs);
+    }
+
+    /** Encode and decode COMMIT N times with Codec, returning its size and
+     *  the total nanoseconds spent encoding and decoding. */
+    static long[] codec(Commit commit, int n) {
+        byte[] data = null;
+        long start = System.nanoTime();
+        for (int i = 0; i < n; i += 1) {
+            data = Codec.encode(commit);
+        }
+        long mid = System.nanoTime();
+        long check = 0;
+        for (int i = 0; i < n; i += 1) {
+            check += Codec.decode(data, Commit::decode).size();
+        }
+        long end = System.nanoTime();
+        if (check != (long) n * commit.size()) {
+            throw new IllegalStateException("codec round trip failed");
+        }
+        return new long[] { data.length, mid - start, end - mid };
+    }
+
+    /** Serialize and deserialize COMMIT N times, returning its size and
+     *  the total nanoseconds spent in each direction. */
+    static long[] serialization(SerialCommit commit, int n) {
+        try {
+            byte[] data = null;
+            long start = System.nanoTime();
+            for (int i = 0; i < n; i += 1) {
+                ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+                try (ObjectOutputStream out = new ObjectOutputStream(bytes)) {
+                    out.writeObject(commit);
+                }
+                data = bytes.toByteArray();
+            }
+            long mid = System.nanoTime();
+            long check = 0;
+            for (int i = 0; i < n; i += 1) {
+                try (ObjectInputStream in =
+                     new ObjectInputStream(new ByteArrayInputStream(data))) {
+                    check += ((SerialCommit) in.readObject())._blobs.size();
+                }
+            }
+            long end = System.nanoTime();
+            if (check != (long) n * commit._blobs.size()) {
+                throw new IllegalStateException("serial round trip failed");
+            }
+            return new long[] { data.length, mid - start, end - mid };
+        } catch (IOException | ClassNotFoundException excp) {
+            throw new IllegalStateException(excp);
+        }
+    }
+
+    /** The fields of a Commit, serialized as Commit used to be. */
+    static class SerialCommit implements Serializable {
+        /** A copy of COMMIT. */
+        SerialCommit(Commit commit) {
+            _message = commit.message();
+            _timestamp = commit.timestamp();
+            _parent = commit.parent();
+            _secondParent = commit.secondParent();
+            _blobs = new TreeMap<>(commit.blobs());
+        }
+
+        /** Log message. */
+        private final String _message;
+        /** Time made. */
+        private final long _timestamp;
+        /** Ids of the parents. */
+        private final String _parent, _secondParent;
+        /** Tracked file names mapped to blob hashes. */
+        private final TreeMap<String, String> _blobs;
+    }
+}
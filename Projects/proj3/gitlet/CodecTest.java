@@ -0,0 +1,132 @@
+package gitlet;
+
+import java.util.TreeMap;
+
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/** Tests of the Codec class and of the encoding of commits.
+ *  @author Brian Faun
+ */
+public class CodecTest {
+
+    /** Varints to round-trip. */
+    static final long[] VARINTS = {
+        0, 1, 127, 128, 300, 16383, 16384, Integer.MAX_VALUE, Long.MAX_VALUE
+    };
+
+    /** Signed longs to round-trip. */
+    static final long[] LONGS = {
+        0, 1, -1, 63, -64, 64, 1600000000000L, Long.MAX_VALUE, Long.MIN_VALUE
+    };
+
+    @Test
+    public void testFields() {
+        Codec.Writer out = new Codec.Writer();
+        for (long n : VARINTS) {
+            out.writeVarint(n);
+        }
+        for (long n : LONGS) {
+            out.writeLong(n);
+        }
+        out.writeString("");
+        out.writeString("w\u00fcg \u2603");
+        out.writeHash(null);
+        out.writeHash(IndexTest.HASH);
+        out.writeBytes(new byte[] { 1, 2, 3 });
+
+        Codec.Reader in = new Codec.Reader(out.toByteArray());
+        for (long n : VARINTS) {
+            assertEquals(n, in.readVarint());
+        }
+        for (long n : LONGS) {
+            assertEquals(n, in.readLong());
+        }
+        assertEquals("", in.readString());
+        assertEquals("w\u00fcg \u2603", in.readString());
+        assertEquals(null, in.readHash());
+        assertEquals(IndexTest.HASH, in.readHash());
+        assertArrayEquals(new byte[] { 1, 2, 3 }, in.readBytes());
+        assertTrue(in.atEnd());
+    }
+
+    @Test
+    public void testShortForms() {
+        Codec.Writer out = new Codec.Writer();
+        out.writeVarint(127);
+        out.writeLong(-64);
+        assertEquals(2, out.toByteArray().length);
+        out.writeVarint(128);
+        assertEquals(4, out.toByteArray().length);
+    }
+
+    @Test
+    public void testCommit() {
+        TreeMap<String, String> blobs = new TreeMap<>();
+        blobs.put("wug.txt", IndexTest.HASH);
+        blobs.put("notwug.txt", Utils.sha1("notwug"));
+        Commit commit = new Commit("msg", 17, Utils.sha1("p"), null, blobs);
+        byte[] data = Codec.encode(commit);
+        Commit copy = Codec.decode(data, Commit::decode);
+        assertEquals("msg", copy.message());
+        assertEquals(17, copy.timestamp());
+        assertEquals(Utils.sha1("p"), copy.parent());
+        assertEquals(null, copy.secondParent());
+        assertEquals(blobs, copy.blobs());
+        assertArrayEquals(data, Codec.encode(copy));
+    }
+
+    @Test
+    public void testCommitSizes() {
+        for (int files : new int[] { 0, 1, 1000 }) {
+            TreeMap<String, String> blobs = new TreeMap<>();
+            for (int k = 0; k < files; k += 1) {
+                blobs.put(String.format("f%d.txt", k),
+                          Utils.sha1(Integer.toString(k)));
+            }
+            Commit commit = new Commit("msg", 0, null, null, blobs);
+            byte[] data = Codec.encode(commit);
+            Commit copy = Codec.decode(data, Commit::decode);
+            assertEquals(files, copy.size());
+            for (String name : blobs.keySet()) {
+                assertEquals(blobs.get(name), copy.blob(name));
+            }
+            assertNull(copy.blob("missing.txt"));
+            assertNull(copy.blob(""));
+            assertEquals(blobs, copy.blobs());
+            assertArrayEquals(data, Codec.encode(copy));
+        }
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testTruncated() {
+        byte[] data = Codec.encode(Commit.initial());
+        byte[] shorter = new byte[data.length - 1];
+        System.arraycopy(data, 0, shorter, 0, shorter.length);
+        Codec.decode(shorter, Commit::decode);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testVersion() {
+        byte[] data = Codec.encode(Commit.initial());
+        data[0] = (byte) (Commit.VERSION + 1);
+        Codec.decode(data, Commit::decode);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testUnsortedFiles() {
+        Codec.Writer out = new Codec.Writer();
+        out.writeVarint(Commit.VERSION);
+        out.writeString("msg");
+        out.writeLong(0);
+        out.writeHash(null);
+        out.writeHash(null);
+        out.writeVarint(2);
+        out.writeString("wug.txt");
+        out.writeHash(IndexTest.HASH);
+        out.writeString("notwug.txt");
+        out.writeHash(IndexTest.HASH);
+        Codec.decode(out.toByteArray(), Commit::decode);
+    }
+
+}
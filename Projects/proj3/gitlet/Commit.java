@@ -0,0 +1,165 @@
+package gitlet;
+
+import java.util.Arrays;
+import java.util.Date;
+import java.util.TreeMap;
+
+/** A snapshot of the tracked files, with its log message, time, and
+ *  parents.  Commits are immutable, and are stored in an ObjectStore under
+ *  the hash of their encoding (see Codec), which is their id.
+ *  @author Brian Faun
+ */
+class Commit implements Codec.Encodable, Dumpable {
+
+    /** Version of the encoding of commits. */
+    static final int VERSION = 1;
+
+    /** A commit with message MESSAGE, made at TIMESTAMP (milliseconds
+     *  since the epoch), with parent PARENT and, for merges, second parent
+     *  SECONDPARENT (each the id of a commit, or null if absent), that
+     *  tracks BLOBS, a mapping of file names to blob hashes. */
+    Commit(String message, long timestamp, String parent,
+           String secondParent, TreeMap<String, String> blobs) {
+        this(message, timestamp, parent, secondParent,
+             blobs.keySet().toArray(new String[0]),
+             blobs.values().toArray(new String[0]));
+        _blobs = new TreeMap<>(blobs);
+    }
+
+    /** A commit as for the public constructor, tracking the files named
+     *  NAMES, which are in increasing order, with blob hashes HASHES. */
+    private Commit(String message, long timestamp, String parent,
+                   String secondParent, String[] names, String[] hashes) {
+        _message = message;
+        _timestamp = timestamp;
+        _parent = parent;
+        _secondParent = secondParent;
+        _names = names;
+        _hashes = hashes;
+    }
+
+    /** Return the initial commit of every repository. */
+    static Commit initial() {
+        return new Commit("initial commit", 0, null, null, new TreeMap<>());
+    }
+
+    /** Return the commit whose fields are next on IN. */
+    static Commit decode(Codec.Reader in) {
+        Codec.checkVersion(in.readInt(), VERSION);
+        String message = in.readString();
+        long timestamp = in.readLong();
+        String parent = in.readHash(), secondParent = in.readHash();
+        int n = in.readInt();
+        String[] names = new String[n], hashes = new String[n];
+        for (int k = 0; k < n; k += 1) {
+            names[k] = in.readString();
+            if (k > 0 && names[k - 1].compareTo(names[k]) >= 0) {
+                throw new IllegalArgumentException("bad encoding: order");
+            }
+            hashes[k] = in.readHash();
+        }
+        return new Commit(message, timestamp, parent, secondParent, names,
+                          hashes);
+    }
+
+    /** Put my version, message, time, parents, and tracked files with
+     *  their blobs on OUT. */
+    @Override
+    public void encode(Codec.Writer out) {
+        out.writeVarint(VERSION);
+        out.writeString(_message);
+        out.writeLong(_timestamp);
+        out.writeHash(_parent);
+        out.writeHash(_secondParent);
+        out.writeVarint(_names.length);
+        for (int k = 0; k < _names.length; k += 1) {
+            out.writeString(_names[k]);
+            out.writeHash(_hashes[k]);
+        }
+    }
+
+    /** Return my log message. */
+    String message() {
+        return _message;
+    }
+
+    /** Return the time I was made, in milliseconds since the epoch. */
+    long timestamp() {
+        return _timestamp;
+    }
+
+    /** Return the id of my first parent, or null if I have none. */
+    String parent() {
+        return _parent;
+    }
+
+    /** Return the id of my second parent, or null if I am not a merge. */
+    String secondParent() {
+        return _secondParent;
+    }
+
+    /** Return the hash of the blob I record for file NAME, or null if I do
+     *  not track NAME. */
+    String blob(String name) {
+        int k = Arrays.binarySearch(_names, name);
+        return k < 0 ? null : _hashes[k];
+    }
+
+    /** Return the number of files I track. */
+    int size() {
+        return _names.length;
+    }
+
+    /** Return the mapping of tracked file names to blob hashes, built on
+     *  first use.  The result must not be modified. */
+    TreeMap<String, String> blobs() {
+        if (_blobs == null) {
+            TreeMap<String, String> blobs = new TreeMap<>();
+            for (int k = 0; k < _names.length; k += 1) {
+                blobs.put(_names[k], _hashes[k]);
+            }
+            _blobs = blobs;
+        }
+        return _blobs;
+    }
+
+    /** Return my log entry, for commit id ID. */
+    String logEntry(String id) {
+        StringBuilder entry = new StringBuilder();
+        entry.append(String.format("===%ncommit %s%n", id));
+        if (_secondParent != null) {
+            entry.append(String.format("Merge: %s %s%n",
+                                       _parent.substring(0, MERGE_ID_LENGTH),
+                                       _secondParent.substring(
+                                           0, MERGE_ID_LENGTH)));
+        }
+        entry.append(String.format("Date: %1$ta %1$tb %1$te %1$tT %1$tY "
+                                   + "%1$tz%n%2$s%n",
+                                   new Date(_timestamp), _message));
+        return entry.toString();
+    }
+
+    @Override
+    public void dump() {
+        System.out.printf("message: %s%ntime: %d%nparents: %s %s%n"
+                          + "blobs: %s%n", _message, _timestamp, _parent,
+                          _secondParent, blobs());
+    }
+
+    /** Number of characters of each parent id shown for merges. */
+    private static final int MERGE_ID_LENGTH = 7;
+
+    /** Log message. */
+    private final String _message;
+    /** Time made, in milliseconds since the epoch. */
+    private final long _timestamp;
+    /** Ids of the parents, or null if absent. */
+    private final String _parent, _secondParent;
+    /** Names of the tracked files, in increasing order. */
+    private final String[] _names;
+    /** Blob hashes of the tracked files, in the order of _names. */
+    private final String[] _hashes;
+    /** Tracked file names mapped to blob hashes, or null if not yet
+     *  built. */
+    private TreeMap<String, String> _blobs;
+}
@@ -0,0 +1,421 @@
+package gitlet;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.PriorityQueue;
+
+import static gitlet.Utils.*;
+
+/** The shape of the commit history: for each commit, its parents, time,
+ *  and generation number (1 for a commit with no parents, otherwise one
+ *  more than the largest generation of its parents), so that ancestry
+ *  questions are answered without reading commit objects.  A commit's
+ *  generation exceeds those of all its ancestors, which lets searches stop
+ *  as soon as they pass below the generation of what they seek.
+ *
+ *  Commits are identified during a search by node numbers.  Most commits
+ *  are in the main graph file, which is memory-mapped when first used and
+ *  holds MAGIC, VERSION, and the number of commits N; a fan-out table of
+ *  256 ints (as in Pack); the N 20-byte ids in increasing order; and for
+ *  each, in the same order, the node numbers of its parents (-1 if absent)
+ *  and its generation as ints and its time as a long.  Node K < N is the
+ *  K-th commit in the main file.  Commits added since the main file was
+ *  written are appended to a tail file, as their ids, the ids of their
+ *  parents (zeros if absent), and their times; these are read whole and
+ *  numbered from N.  When the tail grows past TAIL_LIMIT commits, the two
+ *  are merged into a new main file.
+ *  @author Brian Faun
+ */
+class CommitGraph {
+
+    /** First int of a main graph file. */
+    static final int MAGIC = 0x47435247;
+
+    /** Graph format version. */
+    static final int VERSION = 1;
+
+    /** Maximum number of commits in the tail file. */
+    static final int TAIL_LIMIT = 256;
+
+    /** Length of a binary id. */
+    private static final int HASH_BYTES = Pack.HASH_BYTES;
+
+    /** Size of the fan-out table. */
+    private static final int FANOUT_SIZE = 256;
+
+    /** Offset of the fan-out table in the main file. */
+    private static final int FANOUT_OFFSET = 3 * Integer.BYTES;
+
+    /** Offset of the ids in the main file. */
+    private static final int IDS_OFFSET =
+        FANOUT_OFFSET + FANOUT_SIZE * Integer.BYTES;
+
+    /** Size of the per-commit record in the main file. */
+    private static final int RECORD_SIZE = 3 * Integer.BYTES + Long.BYTES;
+
+    /** Size of a commit in the tail file. */
+    private static final int TAIL_RECORD_SIZE = 3 * HASH_BYTES + Long.BYTES;
+
+    /** The graph kept in main file MAIN and tail file TAIL. */
+    CommitGraph(File main, File tail) {
+        _mainFile = main;
+        _tailFile = tail;
+    }
+
+    /** Return the node number of the commit with id ID, or -1 if it is not
+     *  in the graph. */
+    int node(String id) {
+        Integer k = tailNodes().get(id);
+        if (k != null) {
+            return k;
+        }
+        if (mainSize() == 0 || id.length() != UID_LENGTH) {
+            return -1;
+        }
+        byte[] hash = Pack.toBytes(id);
+        ByteBuffer main = main();
+        int first = hash[0] & 0xff;
+        int lo = first == 0 ? 0
+            : main.getInt(FANOUT_OFFSET + (first - 1) * Integer.BYTES);
+        int hi = main.getInt(FANOUT_OFFSET + first * Integer.BYTES) - 1;
+        while (lo <= hi) {
+            int mid = (lo + hi) >>> 1;
+            int c = compare(main, IDS_OFFSET + mid * HASH_BYTES, hash);
+            if (c < 0) {
+                lo = mid + 1;
+            } else if (c > 0) {
+                hi = mid - 1;
+            } else {
+                return mid;
+            }
+        }
+        return -1;
+    }
+
+    /** Return true iff the commit with id ID is in the graph. */
+    boolean contains(String id) {
+        return node(id) >= 0;
+    }
+
+    /** Return the number of commits in the graph. */
+    int size() {
+        tailNodes();
+        return mainSize() + _tailIds.size();
+    }
+
+    /** Return the id of NODE. */
+    String id(int node) {
+        int n = mainSize();
+        if (node >= n) {
+            return _tailIds.get(node - n);
+        }
+        byte[] hash = new byte[HASH_BYTES];
+        ByteBuffer ids = main().duplicate();
+        ids.position(IDS_OFFSET + node * HASH_BYTES);
+        ids.get(hash);
+        return ObjectStore.hex(hash);
+    }
+
+    /** Return the node of NODE's first parent, or -1 if none. */
+    int parent(int node) {
+        int n = mainSize();
+        return node >= n ? _tailRecords.get(node - n)[0]
+            : main().getInt(record(node));
+    }
+
+    /** Return the node of NODE's second parent, or -1 if none. */
+    int secondParent(int node) {
+        int n = mainSize();
+        return node >= n ? _tailRecords.get(node - n)[1]
+            : main().getInt(record(node) + Integer.BYTES);
+    }
+
+    /** Return the generation of NODE. */
+    int generation(int node) {
+        int n = mainSize();
+        return node >= n ? _tailRecords.get(node - n)[2]
+            : main().getInt(record(node) + 2 * Integer.BYTES);
+    }
+
+    /** Return the time of NODE, in milliseconds since the epoch. */
+    long timestamp(int node) {
+        int n = mainSize();
+        return node >= n ? _tailTimes.get(node - n)
+            : main().getLong(record(node) + 3 * Integer.BYTES);
+    }
+
+    /** Add the commit with id ID, parent ids PARENT and SECONDPARENT (null
+     *  if absent), made at TIMESTAMP, whose parents must already be in the
+     *  graph.  Does nothing if ID is already present. */
+    void add(String id, String parent, String secondParent, long timestamp) {
+        if (contains(id)) {
+            return;
+        }
+        ByteBuffer rec = ByteBuffer.allocate(TAIL_RECORD_SIZE);
+        rec.put(Pack.toBytes(id));
+        rec.put(parent == null ? new byte[HASH_BYTES]
+                : Pack.toBytes(parent));
+        rec.put(secondParent == null ? new byte[HASH_BYTES]
+                : Pack.toBytes(secondParent));
+        rec.putLong(timestamp);
+        try (OutputStream out =
+             Files.newOutputStream(_tailFile.toPath(),
+                                   StandardOpenOption.CREATE,
+                                   StandardOpenOption.APPEND)) {
+            out.write(rec.array());
+        } catch (IOException excp) {
+            throw new IllegalArgumentException(excp.getMessage());
+        }
+        addToTail(id, parent, secondParent, timestamp);
+        if (_tailIds.size() > TAIL_LIMIT) {
+            rewrite();
+        }
+    }
+
+    /** Return true iff the commit ANCESTOR is an ancestor of (or is) the
+     *  commit DESCENDANT (both nodes).  Only commits whose generations are
+     *  at least that of ANCESTOR are visited. */
+    boolean isAncestor(int ancestor, int descendant) {
+        int gen = generation(ancestor);
+        boolean[] seen = new boolean[size()];
+        ArrayList<Integer> stack = new ArrayList<>();
+        stack.add(descendant);
+        while (!stack.isEmpty()) {
+            int node = stack.remove(stack.size() - 1);
+            if (node == ancestor) {
+                return true;
+            }
+            if (node < 0 || seen[node] || generation(node) <= gen) {
+                continue;
+            }
+            seen[node] = true;
+            stack.add(parent(node));
+            stack.add(secondParent(node));
+        }
+        return false;
+    }
+
+    /** Return a latest common ancestor of nodes A and B: a common ancestor
+     *  (possibly A or B itself) that is not an ancestor of any other common
+     *  ancestor, preferring greater generations.  Commits are visited in
+     *  decreasing generation, so that all paths from A and B to a commit
+     *  have been explored when it is reached, and the search stops at the
+     *  first commit reached from both. */
+    int mergeBase(int a, int b) {
+        final int fromA = 1, fromB = 2;
+        byte[] flags = new byte[size()];
+        PriorityQueue<Integer> queue =
+            new PriorityQueue<>((x, y) -> generation(y) - generation(x));
+        flags[a] |= fromA;
+        flags[b] |= fromB;
+        queue.add(a);
+        if (b != a) {
+            queue.add(b);
+        }
+        while (!queue.isEmpty()) {
+            int node = queue.remove();
+            if (flags[node] == (fromA | fromB)) {
+                return node;
+            }
+            for (int p : new int[] { parent(node), secondParent(node) }) {
+                if (p >= 0 && (flags[p] | flags[node]) != flags[p]) {
+                    if (flags[p] == 0) {
+                        queue.add(p);
+                    }
+                    flags[p] |= flags[node];
+                }
+            }
+        }
+        return -1;
+    }
+
+    /** Merge the tail into a new main file, and empty the tail. */
+    void rewrite() {
+        int total = size();
+        String[] ids = new String[total];
+        for (int k = 0; k < total; k += 1) {
+            ids[k] = id(k);
+        }
+        Integer[] order = new Integer[total];
+        for (int k = 0; k < total; k += 1) {
+            order[k] = k;
+        }
+        Arrays.sort(order, (x, y) -> ids[x].compareTo(ids[y]));
+        int[] position = new int[total];
+        for (int k = 0; k < total; k += 1) {
+            position[order[k]] = k;
+        }
+        int[] fanout = new int[FANOUT_SIZE];
+        for (String id : ids) {
+            fanout[Integer.parseInt(id.substring(0, 2), 16)] += 1;
+        }
+        Path temp = null;
+        try {
+            temp = Files.createTempFile(_mainFile.getParentFile().toPath(),
+                                        "graph", null);
+            try (DataOutputStream out = new DataOutputStream(
+                     new BufferedOutputStream(Files.newOutputStream(temp)))) {
+                out.writeInt(MAGIC);
+                out.writeInt(VERSION);
+                out.writeInt(total);
+                int sum = 0;
+                for (int count : fanout) {
+                    sum += count;
+                    out.writeInt(sum);
+                }
+                for (int k : order) {
+                    out.write(Pack.toBytes(ids[k]));
+                }
+                for (int k : order) {
+                    int p = parent(k), q = secondParent(k);
+                    out.writeInt(p < 0 ? -1 : position[p]);
+                    out.writeInt(q < 0 ? -1 : position[q]);
+                    out.writeInt(generation(k));
+                    out.writeLong(timestamp(k));
+                }
+            }
+            Files.move(temp, _mainFile.toPath(),
+                       StandardCopyOption.ATOMIC_MOVE,
+                       StandardCopyOption.REPLACE_EXISTING);
+            temp = null;
+            Files.deleteIfExists(_tailFile.toPath());
+        } catch (IOException excp) {
+            throw new IllegalArgumentException(excp.getMessage());
+        } finally {
+            if (temp != null) {
+                temp.toFile().delete();
+            }
+        }
+        _main = null;
+        _mainSize = -1;
+        _tailIndex = null;
+    }
+
+    /** Return the offset of NODE's record in the main file. */
+    private int record(int node) {
+        return IDS_OFFSET + mainSize() * HASH_BYTES + node * RECORD_SIZE;
+    }
+
+    /** Return the number of commits in the main file. */
+    private int mainSize() {
+        if (_mainSize < 0) {
+            _mainSize = _mainFile.isFile() ? main().getInt(2 * Integer.BYTES)
+                : 0;
+        }
+        return _mainSize;
+    }
+
+    /** Return the main file, mapping it on first use. */
+    private ByteBuffer main() {
+        if (_main == null) {
+            try (FileChannel channel =
+                 FileChannel.open(_mainFile.toPath(),
+                                  StandardOpenOption.READ)) {
+                _main = channel.map(FileChannel.MapMode.READ_ONLY, 0,
+                                    channel.size());
+            } catch (IOException excp) {
+                throw new IllegalArgumentException(excp.getMessage());
+            }
+            if (_main.getInt(0) != MAGIC
+                || _main.getInt(Integer.BYTES) != VERSION) {
+                throw new IllegalArgumentException("bad commit graph");
+            }
+        }
+        return _main;
+    }
+
+    /** Return the mapping of ids of commits in the tail to their nodes,
+     *  reading the tail file on first use.  An incomplete final record,
+     *  and records for commits already in the main file, are ignored. */
+    private HashMap<String, Integer> tailNodes() {
+        if (_tailIndex == null) {
+            _tailIndex = new HashMap<>();
+            _tailIds = new ArrayList<>();
+            _tailRecords = new ArrayList<>();
+            _tailTimes = new ArrayList<>();
+            if (_tailFile.isFile()) {
+                ByteBuffer tail = ByteBuffer.wrap(readContents(_tailFile));
+                byte[] hash = new byte[HASH_BYTES];
+                while (tail.remaining() >= TAIL_RECORD_SIZE) {
+                    String[] ids = new String[3];
+                    for (int i = 0; i < 3; i += 1) {
+                        tail.get(hash);
+                        ids[i] = isZero(hash) ? null : ObjectStore.hex(hash);
+                    }
+                    long time = tail.getLong();
+                    if (node(ids[0]) < 0) {
+                        addToTail(ids[0], ids[1], ids[2], time);
+                    }
+                }
+            }
+        }
+        return _tailIndex;
+    }
+
+    /** Record in memory that the commit ID, with parents PARENT and
+     *  SECONDPARENT (null if absent), was made at TIMESTAMP. */
+    private void addToTail(String id, String parent, String secondParent,
+                           long timestamp) {
+        int p = parent == null ? -1 : node(parent),
+            q = secondParent == null ? -1 : node(secondParent);
+        if ((parent != null && p < 0) || (secondParent != null && q < 0)) {
+            throw new IllegalArgumentException("commit graph missing parent");
+        }
+        int gen = 1 + Math.max(p < 0 ? 0 : generation(p),
+                               q < 0 ? 0 : generation(q));
+        _tailIndex.put(id, mainSize() + _tailIds.size());
+        _tailIds.add(id);
+        _tailRecords.add(new int[] { p, q, gen });
+        _tailTimes.add(timestamp);
+    }
+
+    /** Return true iff HASH is all zeros. */
+    private static boolean isZero(byte[] hash) {
+        for (byte b : hash) {
+            if (b != 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /** Return the result of comparing the id at AT in BUF with HASH, as
+     *  unsigned bytes. */
+    private static int compare(ByteBuffer buf, int at, byte[] hash) {
+        for (int i = 0; i < HASH_BYTES; i += 1) {
+            int c = (buf.get(at + i) & 0xff) - (hash[i] & 0xff);
+            if (c != 0) {
+                return c;
+            }
+        }
+        return 0;
+    }
+
+    /** The main and tail files. */
+    private final File _mainFile, _tailFile;
+    /** The mapped main file, or null if not yet mapped. */
+    private ByteBuffer _main;
+    /** Number of commits in the main file, or -1 if not yet known. */
+    private int _mainSize = -1;
+    /** Nodes of the commits in the tail, by id, or null if the tail has
+     *  not been read. */
+    private HashMap<String, Integer> _tailIndex;
+    /** Ids of the commits in the tail, in node order. */
+    private ArrayList<String> _tailIds;
+    /** Parent nodes and generation of the commits in the tail. */
+    private ArrayList<int[]> _tailRecords;
+    /** Times of the commits in the tail. */
+    private ArrayList<Long> _tailTimes;
+}
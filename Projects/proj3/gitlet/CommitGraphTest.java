@@ -0,0 +1,126 @@
+package gitlet;
+
+import java.io.File;
+import java.io.IOException;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import static org.junit.Assert.*;
+
+/** Tests of the CommitGraph class.
+ *  @author Brian Faun
+ */
+public class CommitGraphTest {
+
+    /** Directory for the files each test makes, deleted after the test. */
+    @Rule
+    public TemporaryFolder temp = new TemporaryFolder();
+
+    /** Return a made-up commit id for commit number K. */
+    static String id(int k) {
+        return Utils.sha1(Integer.toString(k));
+    }
+
+    /** Return a new, empty graph in a fresh directory. */
+    CommitGraph newGraph() throws IOException {
+        File dir = temp.newFolder();
+        return new CommitGraph(new File(dir, "commit-graph"),
+                               new File(dir, "commit-graph-tail"));
+    }
+
+    /** Add to GRAPH the history
+     *
+     *      0 - 1 - 2 - 3 ------ 6
+     *           \            /
+     *            4 - 5 -----
+     *
+     *  in which 6 merges 5 into 3. */
+    static void addHistory(CommitGraph graph) {
+        graph.add(id(0), null, null, 0);
+        graph.add(id(1), id(0), null, 1);
+        graph.add(id(2), id(1), null, 2);
+        graph.add(id(3), id(2), null, 3);
+        graph.add(id(4), id(1), null, 4);
+        graph.add(id(5), id(4), null, 5);
+        graph.add(id(6), id(3), id(5), 6);
+    }
+
+    /** Check the shape of the history from addHistory in GRAPH. */
+    static void checkHistory(CommitGraph graph) {
+        assertEquals(7, graph.size());
+        int[] node = new int[7];
+        for (int k = 0; k < 7; k += 1) {
+            node[k] = graph.node(id(k));
+            assertEquals(id(k), graph.id(node[k]));
+            assertEquals(k, graph.timestamp(node[k]));
+        }
+        assertEquals(-1, graph.node(id(7)));
+        assertEquals(-1, graph.parent(node[0]));
+        assertEquals(node[3], graph.parent(node[6]));
+        assertEquals(node[5], graph.secondParent(node[6]));
+        assertEquals(1, graph.generation(node[0]));
+        assertEquals(4, graph.generation(node[3]));
+        assertEquals(5, graph.generation(node[6]));
+
+        assertTrue(graph.isAncestor(node[4], node[6]));
+        assertTrue(graph.isAncestor(node[6], node[6]));
+        assertFalse(graph.isAncestor(node[4], node[3]));
+        assertFalse(graph.isAncestor(node[6], node[0]));
+
+        assertEquals(node[1], graph.mergeBase(node[3], node[5]));
+        assertEquals(node[1], graph.mergeBase(node[5], node[2]));
+        assertEquals(node[5], graph.mergeBase(node[6], node[5]));
+        assertEquals(node[3], graph.mergeBase(node[3], node[3]));
+        assertEquals(node[0], graph.mergeBase(node[0], node[6]));
+    }
+
+    @Test
+    public void testTail() throws IOException {
+        CommitGraph graph = newGraph();
+        addHistory(graph);
+        checkHistory(graph);
+    }
+
+    @Test
+    public void testRewrite() throws IOException {
+        File dir = temp.newFolder();
+        File main = new File(dir, "commit-graph"),
+            tail = new File(dir, "commit-graph-tail");
+        CommitGraph graph = new CommitGraph(main, tail);
+        addHistory(graph);
+        graph.rewrite();
+        assertFalse(tail.exists());
+        checkHistory(graph);
+        checkHistory(new CommitGraph(main, tail));
+
+        graph.add(id(7), id(6), null, 7);
+        CommitGraph reread = new CommitGraph(main, tail);
+        assertEquals(8, reread.size());
+        assertEquals(6, reread.generation(reread.node(id(7))));
+        assertEquals(reread.node(id(5)),
+                     reread.mergeBase(reread.node(id(7)),
+                                      reread.node(id(5))));
+    }
+
+    @Test
+    public void testLongHistory() throws IOException {
+        CommitGraph graph = newGraph();
+        final int n = 1000, fork = 400;
+        graph.add(id(0), null, null, 0);
+        for (int k = 1; k < n; k += 1) {
+            graph.add(id(k), id(k - 1), null, k);
+        }
+        graph.add(id(n + 1), id(fork), null, n + 1);
+        for (int k = 2; k < n; k += 1) {
+            graph.add(id(n + k), id(n + k - 1), null, n + k);
+        }
+        assertTrue(graph.size() > CommitGraph.TAIL_LIMIT);
+        int a = graph.node(id(n - 1)), b = graph.node(id(2 * n - 1));
+        assertEquals(id(fork), graph.id(graph.mergeBase(a, b)));
+        assertEquals(id(fork), graph.id(graph.mergeBase(b, a)));
+        assertTrue(graph.isAncestor(graph.node(id(fork)), b));
+        assertFalse(graph.isAncestor(graph.node(id(fork + 1)), b));
+    }
+
+}
@@ -0,0 +1,171 @@
+package gitlet;
+
+import java.io.ByteArrayOutputStream;
+import java.util.HashMap;
+
+/** Binary deltas: encodings of a target byte sequence as instructions for
+ *  rebuilding it from a base sequence.  A delta starts with the lengths
+ *  of the base and target as varints (seven bits per byte, least
+ *  significant first, high bit set on all but the last byte), followed by
+ *  instructions, each either COPY OFFSET LENGTH (copy LENGTH bytes of the
+ *  base starting at OFFSET) or INSERT LENGTH BYTES (append the LENGTH bytes
+ *  that follow), with the operands as varints.
+ *
+ *  Deltas are found by indexing the base by a hash of each BLOCK-byte block
+ *  at a multiple of BLOCK, then sliding a BLOCK-byte window over the target
+ *  with a rolling hash, extending each verified match as far as it goes in
+ *  both directions.
+ *  @author Brian Faun
+ */
+class Delta {
+
+    /** Instruction codes. */
+    private static final int COPY = 0, INSERT = 1;
+
+    /** Length of the blocks matched between base and target. */
+    static final int BLOCK = 16;
+
+    /** Multiplier of the rolling hash. */
+    private static final int PRIME = 31;
+
+    /** PRIME ** (BLOCK - 1), the weight of the oldest byte in a window. */
+    private static final int TOP_WEIGHT;
+
+    static {
+        int w = 1;
+        for (int i = 1; i < BLOCK; i += 1) {
+            w *= PRIME;
+        }
+        TOP_WEIGHT = w;
+    }
+
+    /** Return a delta that rebuilds TARGET from BASE. */
+    static byte[] create(byte[] base, byte[] target) {
+        HashMap<Integer, Integer> blocks = new HashMap<>();
+        for (int off = 0; off + BLOCK <= base.length; off += BLOCK) {
+            blocks.putIfAbsent(hash(base, off), off);
+        }
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        writeVarint(out, base.length);
+        writeVarint(out, target.length);
+        int literal = 0;
+        int i = 0;
+        int h = target.length >= BLOCK ? hash(target, 0) : 0;
+        while (i + BLOCK <= target.length) {
+            Integer off = blocks.get(h);
+            if (off != null && matches(base, off, target, i)) {
+                int start = off, end = off + BLOCK, t = i;
+                while (start > 0 && t > literal
+                       && base[start - 1] == target[t - 1]) {
+                    start -= 1;
+                    t -= 1;
+                }
+                int tend = i + BLOCK;
+                while (end < base.length && tend < target.length
+                       && base[end] == target[tend]) {
+                    end += 1;
+                    tend += 1;
+                }
+                insert(out, target, literal, t);
+                out.write(COPY);
+                writeVarint(out, start);
+                writeVarint(out, end - start);
+                i = literal = tend;
+                if (i + BLOCK <= target.length) {
+                    h = hash(target, i);
+                }
+            } else {
+                if (i + BLOCK < target.length) {
+                    h = (h - target[i] * TOP_WEIGHT) * PRIME
+                        + target[i + BLOCK];
+                }
+                i += 1;
+            }
+        }
+        insert(out, target, literal, target.length);
+        return out.toByteArray();
+    }
+
+    /** Return the result of applying DELTA to BASE.  Throws
+     *  IllegalArgumentException if DELTA was not made from BASE. */
+    static byte[] apply(byte[] base, byte[] delta) {
+        int[] pos = { 0 };
+        if (readVarint(delta, pos) != base.length) {
+            throw new IllegalArgumentException("delta base length mismatch");
+        }
+        byte[] result = new byte[readVarint(delta, pos)];
+        int n = 0;
+        while (pos[0] < delta.length) {
+            int op = delta[pos[0]];
+            pos[0] += 1;
+            if (op == COPY) {
+                int off = readVarint(delta, pos), len = readVarint(delta, pos);
+                System.arraycopy(base, off, result, n, len);
+                n += len;
+            } else {
+                int len = readVarint(delta, pos);
+                System.arraycopy(delta, pos[0], result, n, len);
+                pos[0] += len;
+                n += len;
+            }
+        }
+        if (n != result.length) {
+            throw new IllegalArgumentException("delta target length mismatch");
+        }
+        return result;
+    }
+
+    /** Return the hash of the BLOCK bytes of DATA starting at OFF. */
+    private static int hash(byte[] data, int off) {
+        int h = 0;
+        for (int k = 0; k < BLOCK; k += 1) {
+            h = h * PRIME + data[off + k];
+        }
+        return h;
+    }
+
+    /** Return true iff the BLOCK bytes of BASE at BOFF equal those of
+     *  TARGET at TOFF. */
+    private static boolean matches(byte[] base, int boff, byte[] target,
+                                   int toff) {
+        for (int k = 0; k < BLOCK; k += 1) {
+            if (base[boff + k] != target[toff + k]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /** Write to OUT an instruction inserting DATA[START .. END-1], if that
+     *  is not empty. */
+    private static void insert(ByteArrayOutputStream out, byte[] data,
+                               int start, int end) {
+        if (start < end) {
+            out.write(INSERT);
+            writeVarint(out, end - start);
+            out.write(data, start, end - start);
+        }
+    }
+
+    /** Write the non-negative value V to OUT as a varint. */
+    static void writeVarint(ByteArrayOutputStream out, int v) {
+        while ((v & ~0x7f) != 0) {
+            out.write((v & 0x7f) | 0x80);
+            v >>>= 7;
+        }
+        out.write(v);
+    }
+
+    /** Return the varint in DATA at POS[0], advancing POS[0] past it. */
+    static int readVarint(byte[] data, int[] pos) {
+        int v = 0;
+        for (int shift = 0; ; shift += 7) {
+            int b = data[pos[0]];
+            pos[0] += 1;
+            v |= (b & 0x7f) << shift;
+            if ((b & 0x80) == 0) {
+                return v;
+            }
+        }
+    }
+}
@@ -0,0 +1,320 @@
+package gitlet;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+/** Differences between two versions of a file, found from their Chunks.
+ *  The chunk sequences are aligned by fingerprint: first their common
+ *  prefix and suffix are set aside, then what remains is aligned by a
+ *  longest common subsequence, if it is small enough, or else treated as
+ *  one change.  Each stretch of unaligned chunks becomes a Hunk.
+ *
+ *  To print the differences as text, each version is read once more as a
+ *  stream, keeping only the lines that overlap hunks.  Hunks that share a
+ *  line (one longer than a chunk) are joined, and the lines of each hunk
+ *  are then aligned in the same way to find those that actually differ,
+ *  counting a missing line end at the end of the file as a difference.
+ *  Memory use is thus bounded by the size of the change, not of the
+ *  files.
+ *  @author Brian Faun
+ */
+class Diff {
+
+    /** Largest number of cells in the table used to align the changed
+     *  middles of two chunk sequences; larger middles are treated as one
+     *  change. */
+    static final int MAX_ALIGNMENT = 1 << 20;
+
+    /** A source of the contents of one version of a file. */
+    interface Source {
+        /** Return a new stream of the contents. */
+        InputStream open() throws IOException;
+    }
+
+    /** A changed region: bytes [oldStart, oldEnd) of the old version were
+     *  replaced by bytes [newStart, newEnd) of the new. */
+    static class Hunk {
+        /** A hunk replacing bytes [OLDSTART, OLDEND) of the old version by
+         *  bytes [NEWSTART, NEWEND) of the new. */
+        Hunk(long oldStart, long oldEnd, long newStart, long newEnd) {
+            this.oldStart = oldStart;
+            this.oldEnd = oldEnd;
+            this.newStart = newStart;
+            this.newEnd = newEnd;
+        }
+
+        /** Bounds of the changed bytes in each version. */
+        final long oldStart, oldEnd, newStart, newEnd;
+    }
+
+    /** Return the Chunks of the contents of SOURCE. */
+    static Chunks chunks(Source source) {
+        try (InputStream in = source.open()) {
+            return Chunks.of(in);
+        } catch (IOException excp) {
+            throw new IllegalArgumentException(excp.getMessage());
+        }
+    }
+
+    /** Return the hunks that turn the version of a file with chunks OLD
+     *  into the one with chunks NEW, in order. */
+    static List<Hunk> hunks(Chunks old, Chunks now) {
+        long[] oldAt = offsets(old), newAt = offsets(now);
+        List<Hunk> result = new ArrayList<>();
+        for (int[] r : align(old.count(), now.count(),
+                             (i, j) -> old.fingerprint(i)
+                                       == now.fingerprint(j))) {
+            result.add(new Hunk(oldAt[r[0]], oldAt[r[1]],
+                                newAt[r[2]], newAt[r[3]]));
+        }
+        return result;
+    }
+
+    /** A test of whether element I of one sequence equals element J of
+     *  another. */
+    private interface Matcher {
+        /** Return true iff element I of the first sequence equals element
+         *  J of the second. */
+        boolean equal(int i, int j);
+    }
+
+    /** Return the changes that turn a sequence of N elements into one of
+     *  M elements, as arrays {I0, I1, J0, J1} meaning that elements
+     *  [I0, I1) of the first were replaced by [J0, J1) of the second, in
+     *  order, where SAME tells which elements are equal.  The common prefix
+     *  and suffix are set aside, and the rest aligned by a longest common
+     *  subsequence if its table has at most MAX_ALIGNMENT cells, or else
+     *  taken as one change. */
+    private static List<int[]> align(int n, int m, Matcher same) {
+        int lo = 0;
+        while (lo < n && lo < m && same.equal(lo, lo)) {
+            lo += 1;
+        }
+        int hiOld = n, hiNew = m;
+        while (hiOld > lo && hiNew > lo && same.equal(hiOld - 1, hiNew - 1)) {
+            hiOld -= 1;
+            hiNew -= 1;
+        }
+        List<int[]> result = new ArrayList<>();
+        int rows = hiOld - lo, cols = hiNew - lo;
+        if (rows == 0 && cols == 0) {
+            return result;
+        }
+        if ((long) (rows + 1) * (cols + 1) > MAX_ALIGNMENT) {
+            result.add(new int[] { lo, hiOld, lo, hiNew });
+            return result;
+        }
+        int[][] lcs = new int[rows + 1][cols + 1];
+        for (int i = rows - 1; i >= 0; i -= 1) {
+            for (int j = cols - 1; j >= 0; j -= 1) {
+                lcs[i][j] = same.equal(lo + i, lo + j) ? lcs[i + 1][j + 1] + 1
+                    : Math.max(lcs[i + 1][j], lcs[i][j + 1]);
+            }
+        }
+        int i = 0, j = 0, startOld = 0, startNew = 0;
+        while (i < rows || j < cols) {
+            if (i < rows && j < cols && same.equal(lo + i, lo + j)) {
+                if (startOld < i || startNew < j) {
+                    result.add(new int[] { lo + startOld, lo + i,
+                                           lo + startNew, lo + j });
+                }
+                i += 1;
+                j += 1;
+                startOld = i;
+                startNew = j;
+            } else if (j == cols
+                       || (i < rows && lcs[i + 1][j] >= lcs[i][j + 1])) {
+                i += 1;
+            } else {
+                j += 1;
+            }
+        }
+        if (startOld < rows || startNew < cols) {
+            result.add(new int[] { lo + startOld, hiOld,
+                                   lo + startNew, hiNew });
+        }
+        return result;
+    }
+
+    /** Append to OUT, in the format of diff -U0 (diff -u without context
+     *  lines), the differences between
+     *  OLD, the contents of the old version with chunks OLDCHUNKS, and NEW,
+     *  the contents of the new version with chunks NEWCHUNKS, labelled
+     *  OLDLABEL and NEWLABEL. */
+    static void print(StringBuilder out, String oldLabel, Source old,
+                      Chunks oldChunks, String newLabel, Source now,
+                      Chunks newChunks) {
+        List<Hunk> hunks = hunks(oldChunks, newChunks);
+        if (hunks.isEmpty()) {
+            return;
+        }
+        if (oldChunks.binary() || newChunks.binary()) {
+            out.append(String.format("Binary files %s and %s differ%n",
+                                     oldLabel, newLabel));
+            return;
+        }
+        List<Lines> oldLines = lines(old, hunks, true),
+            newLines = lines(now, hunks, false);
+        out.append(String.format("--- %s%n+++ %s%n", oldLabel, newLabel));
+        int k = 0;
+        while (k < hunks.size()) {
+            Lines a = oldLines.get(k), b = newLines.get(k);
+            for (k += 1; k < hunks.size()
+                     && (a.sharesLine(oldLines.get(k))
+                         || b.sharesLine(newLines.get(k))); k += 1) {
+                a = a.join(oldLines.get(k));
+                b = b.join(newLines.get(k));
+            }
+            printLines(out, a, b);
+        }
+    }
+
+    /** Append to OUT the changes that turn the old lines A into the new
+     *  lines B, as hunks of diff -U0. */
+    private static void printLines(StringBuilder out, Lines a, Lines b) {
+        for (int[] r : align(a.text.size(), b.text.size(),
+                             (i, j) -> a.text.get(i).equals(b.text.get(j))
+                                       && a.unterminated(i)
+                                          == b.unterminated(j))) {
+            out.append(String.format("@@ -%s +%s @@%n",
+                                     range(a.first + r[0], r[1] - r[0]),
+                                     range(b.first + r[2], r[3] - r[2])));
+            printLines(out, '-', a, r[0], r[1]);
+            printLines(out, '+', b, r[2], r[3]);
+        }
+    }
+
+    /** Append to OUT lines [FROM, TO) of LINES, each preceded by MARK, and
+     *  noting if the last has no line end. */
+    private static void printLines(StringBuilder out, char mark, Lines lines,
+                                   int from, int to) {
+        for (int i = from; i < to; i += 1) {
+            out.append(mark).append(lines.text.get(i))
+                .append(String.format("%n"));
+            if (lines.unterminated(i)) {
+                out.append(String.format(
+                    "\\ No newline at end of file%n"));
+            }
+        }
+    }
+
+    /** The lines of one version that overlap a hunk. */
+    private static class Lines {
+        /** Number of the first line (from 1), or of the line before which
+         *  the hunk falls if it has no lines. */
+        private int first;
+        /** The lines, without their line ends. */
+        private final List<String> text = new ArrayList<>();
+        /** True iff the last line ends the file without a line end. */
+        private boolean noNewline;
+
+        /** Return true iff line I has no line end. */
+        boolean unterminated(int i) {
+            return noNewline && i == text.size() - 1;
+        }
+
+        /** Return true iff my last line is also the first of NEXT, the
+         *  lines of a later hunk, as when a line is longer than a chunk. */
+        boolean sharesLine(Lines next) {
+            return !text.isEmpty() && !next.text.isEmpty()
+                && first + text.size() - 1 == next.first;
+        }
+
+        /** Return my lines followed by those of NEXT, the lines of the
+         *  following hunk, counting a line we share once. */
+        Lines join(Lines next) {
+            Lines result = new Lines();
+            result.first = first;
+            result.text.addAll(text);
+            result.text.addAll(sharesLine(next)
+                               ? next.text.subList(1, next.text.size())
+                               : next.text);
+            result.noNewline = noNewline || next.noNewline;
+            return result;
+        }
+    }
+
+    /** Return, for each of HUNKS in order, the lines of SOURCE that overlap
+     *  the hunk's bytes in the old version if OLD, else in the new. */
+    private static List<Lines> lines(Source source, List<Hunk> hunks,
+                                     boolean old) {
+        List<Lines> result = new ArrayList<>();
+        for (int k = 0; k < hunks.size(); k += 1) {
+            result.add(new Lines());
+        }
+        try (InputStream in = new BufferedInputStream(source.open())) {
+            ByteArrayOutputStream line = new ByteArrayOutputStream();
+            long lineStart = 0;
+            int lineNum = 1, k = 0;
+            for (int c = in.read(); k < hunks.size(); c = in.read()) {
+                if (c >= 0 && c != '\n') {
+                    line.write(c);
+                    continue;
+                }
+                long lineEnd = lineStart + line.size() + (c < 0 ? 0 : 1);
+                if (lineEnd == lineStart) {
+                    break;
+                }
+                while (k < hunks.size()) {
+                    Hunk h = hunks.get(k);
+                    long start = old ? h.oldStart : h.newStart,
+                        end = old ? h.oldEnd : h.newEnd;
+                    Lines lines = result.get(k);
+                    if (start >= lineEnd) {
+                        break;
+                    } else if (start == end) {
+                        lines.first = lineNum;
+                        k += 1;
+                        continue;
+                    }
+                    if (lines.text.isEmpty()) {
+                        lines.first = lineNum;
+                    }
+                    lines.text.add(line.toString(StandardCharsets.UTF_8));
+                    lines.noNewline = c < 0;
+                    if (end > lineEnd) {
+                        break;
+                    }
+                    k += 1;
+                }
+                line.reset();
+                lineStart = lineEnd;
+                lineNum += 1;
+                if (c < 0) {
+                    break;
+                }
+            }
+            for (; k < hunks.size(); k += 1) {
+                result.get(k).first = lineNum;
+            }
+        } catch (IOException excp) {
+            throw new IllegalArgumentException(excp.getMessage());
+        }
+        return result;
+    }
+
+    /** Return the range of COUNT lines starting at line FIRST, as in the
+     *  hunk headers of diff -u. */
+    private static String range(int first, int count) {
+        if (count == 0) {
+            return String.format("%d,0", first - 1);
+        }
+        return count == 1 ? Integer.toString(first)
+            : String.format("%d,%d", first, count);
+    }
+
+    /** Return the offsets of the chunks of CHUNKS, followed by its total
+     *  length. */
+    private static long[] offsets(Chunks chunks) {
+        long[] result = new long[chunks.count() + 1];
+        for (int k = 0; k < chunks.count(); k += 1) {
+            result[k + 1] = result[k] + chunks.length(k);
+        }
+        return result;
+    }
+}
@@ -0,0 +1,164 @@
+package gitlet;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Random;
+import java.util.TreeMap;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import static org.junit.Assert.*;
+
+/** Tests of the Chunks, Diff, and TreeDiff classes.
+ *  @author Brian Faun
+ */
+public class DiffTest {
+
+    /** Directory for the files each test makes, deleted after the test. */
+    @Rule
+    public TemporaryFolder temp = new TemporaryFolder();
+
+    /** Return N lines of random text from RANDOM. */
+    static String randomText(Random random, int n) {
+        StringBuilder text = new StringBuilder();
+        for (int k = 0; k < n; k += 1) {
+            int len = random.nextInt(60);
+            for (int i = 0; i < len; i += 1) {
+                text.append((char) ('a' + random.nextInt(26)));
+            }
+            text.append('\n');
+        }
+        return text.toString();
+    }
+
+    /** Return a source of TEXT. */
+    static Diff.Source source(String text) {
+        return () -> new ByteArrayInputStream(
+            text.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /** Return the Chunks of TEXT. */
+    static Chunks chunks(String text) {
+        return Diff.chunks(source(text));
+    }
+
+    @Test
+    public void testChunksResynchronize() {
+        String text = randomText(new Random(61), 2000);
+        int mid = text.indexOf('\n', text.length() / 2) + 1;
+        String edited = text.substring(0, mid) + "an inserted line\n"
+            + text.substring(mid);
+        Chunks a = chunks(text), b = chunks(edited);
+        assertEquals(text.length(), a.size());
+        assertTrue(a.count() > 50);
+        List<Diff.Hunk> hunks = Diff.hunks(a, b);
+        assertEquals(1, hunks.size());
+        Diff.Hunk h = hunks.get(0);
+        assertTrue(h.oldStart <= mid && h.newEnd >= mid + 17);
+        assertTrue(h.oldEnd - h.oldStart < 4 * Chunks.MAX_CHUNK);
+        assertTrue(a.similarity(b) >= 90);
+        assertTrue(Diff.hunks(a, chunks(text)).isEmpty());
+    }
+
+    @Test
+    public void testPrint() {
+        String text = randomText(new Random(62), 500);
+        String[] lines = text.split("\n", -1);
+        lines[10] = "changed";
+        lines[400] = "also changed";
+        String edited = String.join("\n", lines);
+        StringBuilder out = new StringBuilder();
+        Diff.print(out, "a/f", source(text), chunks(text),
+                   "b/f", source(edited), chunks(edited));
+        String nl = String.format("%n");
+        String expected = "--- a/f" + nl + "+++ b/f" + nl
+            + "@@ -11 +11 @@" + nl + "-" + text.split("\n")[10] + nl
+            + "+changed" + nl
+            + "@@ -401 +401 @@" + nl + "-" + text.split("\n")[400] + nl
+            + "+also changed" + nl;
+        assertEquals(expected, out.toString());
+
+        out = new StringBuilder();
+        Diff.print(out, "/dev/null", source(""), chunks(""),
+                   "b/g", source("x\ny\n"), chunks("x\ny\n"));
+        assertEquals("--- /dev/null" + nl + "+++ b/g" + nl + "@@ -0,0 +1,2 @@"
+                     + nl + "+x" + nl + "+y" + nl, out.toString());
+    }
+
+    @Test
+    public void testLongLine() {
+        Random random = new Random(64);
+        char[] line = new char[20000];
+        for (int i = 0; i < line.length; i += 1) {
+            line[i] = (char) ('a' + random.nextInt(26));
+        }
+        String text = "first\n" + new String(line) + "\nlast\n";
+        line[100] = '*';
+        line[19900] = '*';
+        String edited = "first\n" + new String(line) + "\nlast\n";
+        assertEquals(2, Diff.hunks(chunks(text), chunks(edited)).size());
+        StringBuilder out = new StringBuilder();
+        Diff.print(out, "a/f", source(text), chunks(text),
+                   "b/f", source(edited), chunks(edited));
+        String nl = String.format("%n");
+        assertEquals("--- a/f" + nl + "+++ b/f" + nl + "@@ -2 +2 @@" + nl
+                     + "-" + text.split("\n")[1] + nl
+                     + "+" + new String(line) + nl, out.toString());
+    }
+
+    @Test
+    public void testNoNewline() {
+        String nl = String.format("%n");
+        String none = "\\ No newline at end of file" + nl;
+        StringBuilder out = new StringBuilder();
+        Diff.print(out, "a/f", source("a\nb"), chunks("a\nb"),
+                   "b/f", source("a\nb\n"), chunks("a\nb\n"));
+        assertEquals("--- a/f" + nl + "+++ b/f" + nl + "@@ -2 +2 @@" + nl
+                     + "-b" + nl + none + "+b" + nl, out.toString());
+        out = new StringBuilder();
+        Diff.print(out, "a/f", source("a\nb\n"), chunks("a\nb\n"),
+                   "b/f", source("a\nc"), chunks("a\nc"));
+        assertEquals("--- a/f" + nl + "+++ b/f" + nl + "@@ -2 +2 @@" + nl
+                     + "-b" + nl + "+c" + nl + none, out.toString());
+    }
+
+    @Test
+    public void testTreeDiff() throws IOException {
+        ObjectStore store =
+            new ObjectStore(new File(temp.newFolder(), "objects"));
+        String text = randomText(new Random(63), 300);
+        String same = store.put(ObjectStore.BLOB, "same".getBytes());
+        String moved = store.put(ObjectStore.BLOB, "moved".getBytes());
+        String big = store.put(ObjectStore.BLOB, text.getBytes());
+        String bigger =
+            store.put(ObjectStore.BLOB, (text + "one more\n").getBytes());
+        String other = store.put(ObjectStore.BLOB, "other".getBytes());
+        TreeMap<String, String> before = new TreeMap<>(), after =
+            new TreeMap<>();
+        before.put("same.txt", same);
+        before.put("old.txt", moved);
+        before.put("big.txt", big);
+        before.put("gone.txt", other);
+        after.put("same.txt", same);
+        after.put("new.txt", moved);
+        after.put("big2.txt", bigger);
+        after.put("fresh.txt", same);
+
+        TreeDiff diff = new TreeDiff(before, after);
+        assertTrue(diff.modified().isEmpty());
+        assertEquals(3, diff.removed().size());
+        diff.findRenames(store);
+        assertEquals("old.txt", diff.renamed().get("new.txt"));
+        assertEquals(100, diff.similarity("new.txt"));
+        assertEquals("big.txt", diff.renamed().get("big2.txt"));
+        assertTrue(diff.similarity("big2.txt") >= TreeDiff.MIN_SIMILARITY);
+        assertEquals("[gone.txt]", diff.removed().toString());
+        assertEquals("[fresh.txt]", diff.added().toString());
+        assertTrue(new TreeDiff(before, before).isEmpty());
+    }
+
+}
@@ -1,25 +1,625 @@
 package gitlet;
 import java.io.*;
+import java.nio.file.Files;
 import java.util.*;
 
-/** Driver for gitlet.
+import static gitlet.Utils.*;
+
+/** Driver for gitlet.  The repository in the current directory is kept
+ *  in .gitlet: blobs and commits in an ObjectStore under .gitlet/objects,
+ *  the head commit of each branch in .gitlet/branches/NAME, the name of
+ *  the current branch in .gitlet/HEAD, the staging area as an Index
+ *  in .gitlet/index, and the shape of the history as a CommitGraph in
+ *  .gitlet/commit-graph and .gitlet/commit-graph-tail.
  * @author Brian Faun
  */
 public class Driver {
 
+    /** The working directory. */
+    static final File CWD = new File(System.getProperty("user.dir"));
+    /** The repository directory. */
+    static final File GITLET = join(CWD, ".gitlet");
+    /** Directory of the object store. */
+    static final File OBJECTS = join(GITLET, "objects");
+    /** Directory of branch heads. */
+    static final File BRANCHES = join(GITLET, "branches");
+    /** File naming the current branch. */
+    static final File HEAD = join(GITLET, "HEAD");
+    /** File holding the staging index. */
+    static final File INDEX = join(GITLET, "index");
+    /** Main file of the commit graph. */
+    static final File COMMIT_GRAPH = join(GITLET, "commit-graph");
+    /** File of commits added to the commit graph since its main file was
+     *  written. */
+    static final File COMMIT_GRAPH_TAIL = join(GITLET, "commit-graph-tail");
+
+    /** Name of the initial branch. */
+    static final String DEFAULT_BRANCH = "master";
+
     /** New Driver. */
     public Driver() {
+        _objects = new ObjectStore(OBJECTS);
+        _files = new FileOps(_objects);
+    }
 
+    /** Return true iff the current directory holds a repository. */
+    static boolean initialized() {
+        return GITLET.isDirectory();
     }
 
     /** New Gitlet. */
     public void init() {
-        File git = new File(".gitlet");
+        File git = GITLET;
         if (git.mkdir()) {
-
+            _objects.create();
+            BRANCHES.mkdir();
+            String initial =
+                _objects.putObject(ObjectStore.COMMIT, Commit.initial());
+            writeContents(join(BRANCHES, DEFAULT_BRANCH), initial);
+            graph().add(initial, null, null, Commit.initial().timestamp());
+            writeContents(HEAD, DEFAULT_BRANCH);
+            Index index = new Index();
+            index.reset(Commit.initial().blobs(), CWD);
+            index.write(INDEX);
         } else {
             System.out.println("A gitlet version-control "
                     + "system already exists in the current directory.");
         }
     }
+
+    /** Stage the current contents of file NAME.  The file is read only
+     *  if the index cannot vouch that it is unchanged. */
+    public void add(String name) {
+        File file = join(CWD, name);
+        if (!file.isFile()) {
+            throw error("File does not exist.");
+        }
+        Index index = Index.read(INDEX);
+        if (!index.isFresh(name, file)) {
+            index.put(name, _objects.putFile(file), file);
+        }
+        index.write(INDEX);
+    }
+
+    /** Unstage file NAME if it is staged for addition, and if it is
+     *  tracked by the head commit, stage it for removal and delete it. */
+    public void rm(String name) {
+        Index index = Index.read(INDEX);
+        String tracked = headCommit().blob(name);
+        if (tracked == null && index.blob(name) == null) {
+            throw error("No reason to remove the file.");
+        }
+        index.remove(name);
+        if (tracked != null) {
+            restrictedDelete(join(CWD, name));
+        }
+        index.write(INDEX);
+    }
+
+    /** Commit the staged changes with log message MESSAGE.  Since the
+     *  index holds the hash of every file to be tracked, no working file
+     *  is read. */
+    public void commit(String message) {
+        if (message.isEmpty()) {
+            throw error("Please enter a commit message.");
+        }
+        Index index = Index.read(INDEX);
+        String parent = headId();
+        TreeMap<String, String> blobs = index.blobs();
+        if (blobs.equals(readCommit(parent).blobs())) {
+            throw error("No changes added to the commit.");
+        }
+        makeCommit(message, parent, null, blobs);
+    }
+
+    /** Record a commit of BLOBS with message MESSAGE and parents PARENT
+     *  and SECONDPARENT (null if none), and make it the head of the
+     *  current branch. */
+    private void makeCommit(String message, String parent,
+                            String secondParent,
+                            TreeMap<String, String> blobs) {
+        CommitGraph graph = graph();
+        Commit commit =
+            new Commit(message, System.currentTimeMillis(), parent,
+                       secondParent, blobs);
+        String id = _objects.putObject(ObjectStore.COMMIT, commit);
+        graph.add(id, parent, secondParent, commit.timestamp());
+        writeContents(join(BRANCHES, currentBranch()), id);
+    }
+
+    /** Print the branches, the staged changes, the changes to tracked
+     *  files that are not staged, and the untracked files.  Only working
+     *  files whose size or modification time differ from those in the
+     *  index are read, in parallel; those found unchanged have their index
+     *  entries refreshed so that they need not be read next time. */
+    public void status() {
+        Index index = Index.read(INDEX);
+        TreeMap<String, String> head = headCommit().blobs();
+        StringBuilder out = new StringBuilder();
+        out.append(String.format("=== Branches ===%n"));
+        String current = currentBranch();
+        for (String branch : plainFilenamesIn(BRANCHES)) {
+            out.append(branch.equals(current) ? "*" : "").append(branch)
+                .append(String.format("%n"));
+        }
+        TreeDiff staged = new TreeDiff(head, index.blobs());
+        TreeSet<String> additions = new TreeSet<>(staged.added());
+        additions.addAll(staged.modified());
+        out.append(String.format("%n=== Staged Files ===%n"));
+        for (String name : additions) {
+            out.append(String.format("%s%n", name));
+        }
+        out.append(String.format("%n=== Removed Files ===%n"));
+        for (String name : staged.removed()) {
+            out.append(String.format("%s%n", name));
+        }
+        out.append(String.format("%n=== Modifications Not Staged For "
+                                 + "Commit ===%n"));
+        TreeMap<String, File> stale = new TreeMap<>();
+        for (String name : index.names()) {
+            File file = join(CWD, name);
+            if (file.isFile() && !index.isFresh(name, file)) {
+                stale.put(name, file);
+            }
+        }
+        TreeMap<String, String> hashes = _files.hashFiles(stale);
+        for (String name : index.names()) {
+            File file = join(CWD, name);
+            String blob = hashes.get(name);
+            if (!file.isFile()) {
+                out.append(String.format("%s (deleted)%n", name));
+            } else if (blob == null) {
+                continue;
+            } else if (blob.equals(index.blob(name))) {
+                index.put(name, blob, file);
+            } else {
+                out.append(String.format("%s (modified)%n", name));
+            }
+        }
+        out.append(String.format("%n=== Untracked Files ===%n"));
+        for (String name : plainFilenamesIn(CWD)) {
+            if (index.blob(name) == null) {
+                out.append(String.format("%s%n", name));
+            }
+        }
+        out.append(String.format("%n"));
+        System.out.print(out);
+        index.write(INDEX);
+    }
+
+    /** Print, in the format of diff -U0, the differences between the
+     *  index and the working files if COMMITS is empty, or else between
+     *  the two commits named by COMMITS (each a branch name or a commit id
+     *  or its prefix), pairing removed and added files as renames.  Trees
+     *  are compared by hash, so only files that differ are read, and those
+     *  as streams (see Diff); working files are read only if the index
+     *  cannot vouch that they are unchanged. */
+    public void diff(String... commits) {
+        StringBuilder out = new StringBuilder();
+        if (commits.length == 0) {
+            Index index = Index.read(INDEX);
+            TreeMap<String, String> staged = index.blobs();
+            TreeMap<String, String> working = new TreeMap<>(staged);
+            TreeMap<String, File> stale = new TreeMap<>();
+            for (String name : staged.keySet()) {
+                File file = join(CWD, name);
+                if (!file.isFile()) {
+                    working.remove(name);
+                } else if (!index.isFresh(name, file)) {
+                    stale.put(name, file);
+                }
+            }
+            working.putAll(_files.hashFiles(stale));
+            TreeDiff changes = new TreeDiff(staged, working);
+            for (String name : stale.keySet()) {
+                if (!changes.modified().contains(name)) {
+                    index.put(name, working.get(name), stale.get(name));
+                }
+            }
+            TreeSet<String> names = new TreeSet<>(changes.modified());
+            names.addAll(changes.removed());
+            for (String name : names) {
+                File file = join(CWD, name);
+                printDiff(out, name, staged.get(name),
+                          working.containsKey(name) ? name : null,
+                          () -> Files.newInputStream(file.toPath()));
+            }
+            index.write(INDEX);
+        } else {
+            String fromId = resolveRef(commits[0]),
+                toId = resolveRef(commits[1]);
+            TreeMap<String, String> from = readCommit(fromId).blobs(),
+                to = readCommit(toId).blobs();
+            TreeDiff changes = new TreeDiff(from, to);
+            changes.findRenames(_objects);
+            TreeSet<String> names = new TreeSet<>(changes.modified());
+            names.addAll(changes.added());
+            names.addAll(changes.removed());
+            names.addAll(changes.renamed().keySet());
+            for (String name : names) {
+                String oldName =
+                    changes.renamed().getOrDefault(name,
+                                                   from.containsKey(name)
+                                                   ? name : null);
+                String blob = to.get(name);
+                if (changes.renamed().containsKey(name)) {
+                    out.append(String.format("diff --gitlet a/%s b/%s%n"
+                                             + "similarity index %d%%%n"
+                                             + "rename from %s%n"
+                                             + "rename to %s%n",
+                                             oldName, name,
+                                             changes.similarity(name),
+                                             oldName, name));
+                    printHunks(out, oldName, from.get(oldName), name,
+                               blobSource(blob));
+                } else {
+                    printDiff(out, oldName,
+                              oldName == null ? null : from.get(oldName),
+                              blob == null ? null : name, blobSource(blob));
+                }
+            }
+        }
+        System.out.print(out);
+    }
+
+    /** Append to OUT the differences between the file OLDNAME with blob
+     *  OLDBLOB and file NEWNAME with contents NOW, with a header.  Either
+     *  name may be null for a file that is absent. */
+    private void printDiff(StringBuilder out, String oldName, String oldBlob,
+                           String newName, Diff.Source now) {
+        String name = oldName == null ? newName : oldName;
+        out.append(String.format("diff --gitlet a/%s b/%s%n", name,
+                                 newName == null ? name : newName));
+        if (oldName == null) {
+            out.append(String.format("new file%n"));
+        } else if (newName == null) {
+            out.append(String.format("deleted file%n"));
+        }
+        printHunks(out, oldName, oldBlob, newName, now);
+    }
+
+    /** Append to OUT the hunks turning the file OLDNAME with blob OLDBLOB
+     *  into file NEWNAME with contents NOW.  Either name may be null for a
+     *  file that is absent. */
+    private void printHunks(StringBuilder out, String oldName,
+                            String oldBlob, String newName,
+                            Diff.Source now) {
+        Diff.Source old = blobSource(oldName == null ? null : oldBlob);
+        if (newName == null) {
+            now = blobSource(null);
+        }
+        Diff.print(out, oldName == null ? "/dev/null" : "a/" + oldName, old,
+                   Diff.chunks(old),
+                   newName == null ? "/dev/null" : "b/" + newName, now,
+                   Diff.chunks(now));
+    }
+
+    /** Return a source of the contents of the blob with hash ID, or of
+     *  empty contents if ID is null. */
+    private Diff.Source blobSource(String id) {
+        if (id == null) {
+            return () -> new ByteArrayInputStream(new byte[0]);
+        }
+        return () -> _objects.open(id, ObjectStore.BLOB);
+    }
+
+    /** Return the id of the head of the branch named NAME, if there is
+     *  one, and otherwise of the commit whose id is, or starts with,
+     *  NAME. */
+    private String resolveRef(String name) {
+        File ref = join(BRANCHES, name);
+        return ref.isFile() ? readContentsAsString(ref) : resolveCommit(name);
+    }
+
+    /** Print the history of the head commit, following first parents.
+     *  The history is walked in the commit graph; commits are read only to
+     *  print them. */
+    public void log() {
+        CommitGraph graph = graph();
+        StringBuilder out = new StringBuilder();
+        for (int node = graph.node(headId()); node >= 0;
+             node = graph.parent(node)) {
+            String id = graph.id(node);
+            out.append(readCommit(id).logEntry(id))
+                .append(String.format("%n"));
+        }
+        System.out.print(out);
+    }
+
+    /** Print every commit in the commit graph, in no particular order. */
+    public void globalLog() {
+        CommitGraph graph = graph();
+        StringBuilder out = new StringBuilder();
+        for (int node = 0, n = graph.size(); node < n; node += 1) {
+            String id = graph.id(node);
+            out.append(readCommit(id).logEntry(id))
+                .append(String.format("%n"));
+        }
+        System.out.print(out);
+    }
+
+    /** Create a branch named NAME at the head commit. */
+    public void branch(String name) {
+        File ref = join(BRANCHES, name);
+        if (ref.exists()) {
+            throw error("A branch with that name already exists.");
+        }
+        writeContents(ref, headId());
+    }
+
+    /** Restore file NAME to its contents in the head commit. */
+    public void fileCheckout(String name) {
+        checkout(headId(), name);
+    }
+
+    /** Restore file NAME to its contents in the commit whose id is, or
+     *  starts with, COMMITID. */
+    public void checkout(String commitId, String name) {
+        String blob = readCommit(resolveCommit(commitId)).blob(name);
+        if (blob == null) {
+            throw error("File does not exist in that commit.");
+        }
+        _objects.copyTo(blob, join(CWD, name));
+    }
+
+    /** Make BRANCH the current branch, replacing the files tracked by the
+     *  current head with those of BRANCH's head. */
+    public void branchCheckout(String branch) {
+        File ref = join(BRANCHES, branch);
+        if (!ref.isFile()) {
+            throw error("No such branch exists.");
+        }
+        if (branch.equals(currentBranch())) {
+            throw error("No need to checkout the current branch.");
+        }
+        checkoutCommit(readContentsAsString(ref));
+        writeContents(HEAD, branch);
+    }
+
+    /** Merge the head of BRANCH into the current branch, from their latest
+     *  common ancestor, which is found in the commit graph without reading
+     *  any commits. */
+    public void merge(String branch) {
+        Index index = Index.read(INDEX);
+        String headId = headId();
+        TreeMap<String, String> head = readCommit(headId).blobs();
+        if (!index.blobs().equals(head)) {
+            throw error("You have uncommitted changes.");
+        }
+        File ref = join(BRANCHES, branch);
+        if (!ref.isFile()) {
+            throw error("A branch with that name does not exist.");
+        }
+        if (branch.equals(currentBranch())) {
+            throw error("Cannot merge a branch with itself.");
+        }
+        String otherId = readContentsAsString(ref);
+        CommitGraph graph = graph();
+        int headNode = graph.node(headId), otherNode = graph.node(otherId);
+        if (graph.isAncestor(otherNode, headNode)) {
+            message("Given branch is an ancestor of the current branch.");
+            return;
+        }
+        if (graph.isAncestor(headNode, otherNode)) {
+            checkoutCommit(otherId);
+            writeContents(join(BRANCHES, currentBranch()), otherId);
+            message("Current branch fast-forwarded.");
+            return;
+        }
+        String splitId = graph.id(graph.mergeBase(headNode, otherNode));
+        TreeMap<String, String> split = readCommit(splitId).blobs();
+        TreeMap<String, String> other = readCommit(otherId).blobs();
+        TreeSet<String> names = new TreeSet<>(split.keySet());
+        names.addAll(head.keySet());
+        names.addAll(other.keySet());
+        TreeMap<String, String> merged = new TreeMap<>();
+        boolean conflict = false;
+        for (String name : names) {
+            String s = split.get(name), h = head.get(name),
+                o = other.get(name), result;
+            if (Objects.equals(h, o) || Objects.equals(s, o)) {
+                result = h;
+            } else if (Objects.equals(s, h)) {
+                result = o;
+            } else {
+                conflict = true;
+                result = _objects.put(ObjectStore.BLOB,
+                                      conflictContents(h, o));
+            }
+            if (result == null) {
+                continue;
+            }
+            if (h == null && join(CWD, name).exists()) {
+                throw error("There is an untracked file in the way; "
+                            + "delete it, or add and commit it first.");
+            }
+            merged.put(name, result);
+        }
+        TreeMap<String, String> changed = new TreeMap<>();
+        for (Map.Entry<String, String> entry : merged.entrySet()) {
+            if (!entry.getValue().equals(head.get(entry.getKey()))) {
+                changed.put(entry.getKey(), entry.getValue());
+            }
+        }
+        _files.copyAll(changed, CWD);
+        for (Map.Entry<String, String> entry : changed.entrySet()) {
+            index.put(entry.getKey(), entry.getValue(),
+                      join(CWD, entry.getKey()));
+        }
+        for (String name : head.keySet()) {
+            if (!merged.containsKey(name)) {
+                restrictedDelete(join(CWD, name));
+                index.remove(name);
+            }
+        }
+        index.write(INDEX);
+        makeCommit(String.format("Merged %s into %s.", branch,
+                                 currentBranch()),
+                   headId, otherId, merged);
+        if (conflict) {
+            message("Encountered a merge conflict.");
+        }
+    }
+
+    /** Return the contents of a file in conflict between the blobs with
+     *  hashes CURRENT and GIVEN, either of which may be null for an absent
+     *  file. */
+    private byte[] conflictContents(String current, String given) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        out.writeBytes("<<<<<<< HEAD\n".getBytes());
+        if (current != null) {
+            out.writeBytes(_objects.contents(current));
+        }
+        out.writeBytes("=======\n".getBytes());
+        if (given != null) {
+            out.writeBytes(_objects.contents(given));
+        }
+        out.writeBytes(">>>>>>>\n".getBytes());
+        return out.toByteArray();
+    }
+
+    /** Replace the files tracked by the head commit with those of the
+     *  commit with id ID, and make the index match it.  Refuses to
+     *  overwrite untracked files.  Files are written in parallel. */
+    private void checkoutCommit(String id) {
+        TreeMap<String, String> current = headCommit().blobs();
+        TreeMap<String, String> target = readCommit(id).blobs();
+        for (String name : target.keySet()) {
+            if (!current.containsKey(name) && join(CWD, name).exists()) {
+                throw error("There is an untracked file in the way; "
+                            + "delete it, or add and commit it first.");
+            }
+        }
+        _files.copyAll(target, CWD);
+        for (String name : current.keySet()) {
+            if (!target.containsKey(name)) {
+                restrictedDelete(join(CWD, name));
+            }
+        }
+        Index index = Index.read(INDEX);
+        index.reset(target, CWD);
+        index.write(INDEX);
+    }
+
+    /** Pack all loose objects, storing each version of a file as a delta
+     *  against the version in the previous commit that changed it where
+     *  that saves space. */
+    public void gc() {
+        HashMap<String, String> bases = new HashMap<>();
+        HashSet<String> visited = new HashSet<>();
+        ArrayDeque<String> queue = new ArrayDeque<>();
+        for (String branch : plainFilenamesIn(BRANCHES)) {
+            queue.add(readContentsAsString(join(BRANCHES, branch)));
+        }
+        while (!queue.isEmpty()) {
+            String id = queue.remove();
+            if (!visited.add(id)) {
+                continue;
+            }
+            Commit commit = readCommit(id);
+            if (commit.parent() == null) {
+                continue;
+            }
+            Commit parent = readCommit(commit.parent());
+            for (Map.Entry<String, String> entry
+                     : commit.blobs().entrySet()) {
+                String old = parent.blob(entry.getKey());
+                if (old != null && !old.equals(entry.getValue())) {
+                    bases.putIfAbsent(entry.getValue(), old);
+                }
+            }
+            queue.add(commit.parent());
+            if (commit.secondParent() != null) {
+                queue.add(commit.secondParent());
+            }
+        }
+        _objects.repack(bases);
+        graph().rewrite();
+    }
+
+    /** Return the name of the current branch. */
+    String currentBranch() {
+        return readContentsAsString(HEAD);
+    }
+
+    /** Return the id of the head commit. */
+    String headId() {
+        return readContentsAsString(join(BRANCHES, currentBranch()));
+    }
+
+    /** Return the head commit. */
+    Commit headCommit() {
+        return readCommit(headId());
+    }
+
+    /** Return the commit graph, first adding to it any commits reachable
+     *  from branch heads that it lacks (all of them, in a repository made
+     *  before it was kept), parents before children. */
+    CommitGraph graph() {
+        if (_graph == null) {
+            _graph = new CommitGraph(COMMIT_GRAPH, COMMIT_GRAPH_TAIL);
+            if (!BRANCHES.isDirectory()) {
+                return _graph;
+            }
+            ArrayDeque<String> stack = new ArrayDeque<>();
+            for (String branch : plainFilenamesIn(BRANCHES)) {
+                stack.push(readContentsAsString(join(BRANCHES, branch)));
+            }
+            HashMap<String, Commit> pending = new HashMap<>();
+            while (!stack.isEmpty()) {
+                String id = stack.peek();
+                if (_graph.contains(id)) {
+                    stack.pop();
+                    continue;
+                }
+                Commit commit = pending.get(id);
+                if (commit == null) {
+                    commit = readCommit(id);
+                    pending.put(id, commit);
+                    for (String p : new String[] { commit.secondParent(),
+                                                   commit.parent() }) {
+                        if (p != null && !_graph.contains(p)) {
+                            stack.push(p);
+                        }
+                    }
+                } else {
+                    stack.pop();
+                    _graph.add(id, commit.parent(), commit.secondParent(),
+                               commit.timestamp());
+                    pending.remove(id);
+                }
+            }
+        }
+        return _graph;
+    }
+
+    /** Return the commit with id ID. */
+    Commit readCommit(String id) {
+        return _objects.getObject(id, ObjectStore.COMMIT, Commit::decode);
+    }
+
+    /** Return the id of the unique commit whose id is, or starts with,
+     *  PREFIX. */
+    String resolveCommit(String prefix) {
+        String found = null;
+        for (String id : _objects.find(prefix)) {
+            if (_objects.type(id) == ObjectStore.COMMIT) {
+                if (found != null) {
+                    throw error("Ambiguous commit id.");
+                }
+                found = id;
+            }
+        }
+        if (found == null) {
+            throw error("No commit with that id exists.");
+        }
+        return found;
+    }
+
+    /** The object store of this repository. */
+    private final ObjectStore _objects;
+    /** Operations on working files. */
+    private final FileOps _files;
+    /** The commit graph of this repository, or null if not yet opened. */
+    private CommitGraph _graph;
 }
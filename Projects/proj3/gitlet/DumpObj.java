@@ -1,43 +1,32 @@
 package gitlet;
 
-import java.io.File;
-
 /** A debugging class whose main program may be invoked as follows:
- *      java gitlet.DumpObj FILE...
- *  where each FILE is a file produced by Utils.writeObject (or any file
- *  containing a serialized object).  This will simply read FILE,
- *  deserialize it, and call the dump method on the resulting Object.
- *  The object must implement the gitlet.Dumpable interface for this
- *  to work.  For example, you might define your class like this:
+ *      java gitlet.DumpObj ID...
+ *  in a directory containing a Gitlet repository, where each ID is the
+ *  id of a commit, or a unique prefix of one.  This will simply read
+ *  the commit from the repository's object store, decode it, and call the
+ *  dump method on the result.  Since encoded objects (see Codec) do not
+ *  record their classes, the object must be a commit; other Dumpable
+ *  classes may be added here with their own decoders.  A class's dump
+ *  method should print useful information from its objects, for example
  *
- *        import java.io.Serializable;
- *        import java.util.TreeMap;
- *        class MyClass implements Serializeable, Dumpable {
- *            ...
- *            @Override
- *            public void dump() {
- *               System.out.printf("size: %d%nmapping: %s%n", _size, _mapping);
- *            }
- *            ...
- *            int _size;
- *            TreeMap<String, String> _mapping = new TreeMap<>();
+ *        @Override
+ *        public void dump() {
+ *           System.out.printf("size: %d%nmapping: %s%n", _size, _mapping);
  *        }
  *
- *  As illustrated, your dump method should print useful information from
- *  objects of your class.
  *  @author P. N. Hilfinger
  */
 public class DumpObj {
 
-    /** Deserialize and apply dump to the contents of each of the files
-     *  in FILES. */
-    public static void main(String... files) {
-        for (String fileName : files) {
-            Dumpable obj = Utils.readObject(new File(fileName),
-                                            Dumpable.class);
+    /** Decode and apply dump to each of the commits whose ids are, or
+     *  start with, the elements of IDS. */
+    public static void main(String... ids) {
+        Driver gitlet = new Driver();
+        for (String id : ids) {
+            Dumpable obj = gitlet.readCommit(gitlet.resolveCommit(id));
             obj.dump();
             System.out.println("---");
         }
     }
 }
-
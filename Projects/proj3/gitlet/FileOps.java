@@ -0,0 +1,129 @@
+package gitlet;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BiFunction;
+
+/** Operations on many working files at once, spread over a bounded pool of
+ *  threads.  Each file is handled by one ObjectStore operation, which
+ *  streams it through a fixed-size buffer, so memory use is bounded by the
+ *  number of threads rather than the size of the files.  Since each result
+ *  depends only on its own file and the results are gathered by name, the
+ *  outcome is the same as doing the files one at a time.
+ *
+ *  The pool's queue is bounded too: when it is full, the thread submitting
+ *  work runs the next file itself, so that a large tree never has more
+ *  than a few files' worth of tasks outstanding.
+ *  @author Brian Faun
+ */
+class FileOps {
+
+    /** Largest number of threads used. */
+    static final int MAX_THREADS = 8;
+
+    /** Fewest files worth handing to the pool; smaller batches are done
+     *  on the calling thread. */
+    static final int MIN_PARALLEL = 4;
+
+    /** Operations on files using the objects in STORE. */
+    FileOps(ObjectStore store) {
+        _store = store;
+    }
+
+    /** Return the mapping of the names in FILES, a mapping of names to
+     *  files, to the hashes the files' contents would have as blobs. */
+    TreeMap<String, String> hashFiles(Map<String, File> files) {
+        return forEach(files, (name, file) -> _store.hashFile(file));
+    }
+
+    /** Write the contents of each blob in BLOBS, a mapping of file names
+     *  to hashes, to the file of that name in directory DIR. */
+    void copyAll(Map<String, String> blobs, File dir) {
+        TreeMap<String, File> files = new TreeMap<>();
+        for (String name : blobs.keySet()) {
+            files.put(name, new File(dir, name));
+        }
+        forEach(files, (name, file) -> {
+                _store.copyTo(blobs.get(name), file);
+                return null;
+            });
+    }
+
+    /** Return the mapping of each name in FILES, a mapping of names to
+     *  files, to the result of OP on the name and its file.  Any exception
+     *  thrown by OP is rethrown, after all other files have been
+     *  handled. */
+    private TreeMap<String, String> forEach(Map<String, File> files,
+                                            BiFunction<String, File,
+                                                       String> op) {
+        TreeMap<String, String> result = new TreeMap<>();
+        if (files.size() < MIN_PARALLEL) {
+            for (Map.Entry<String, File> e : files.entrySet()) {
+                result.put(e.getKey(), op.apply(e.getKey(), e.getValue()));
+            }
+            return result;
+        }
+        List<String> names = new ArrayList<>();
+        List<Future<String>> futures = new ArrayList<>();
+        for (Map.Entry<String, File> e : files.entrySet()) {
+            String name = e.getKey();
+            File file = e.getValue();
+            Callable<String> task = () -> op.apply(name, file);
+            names.add(name);
+            futures.add(pool().submit(task));
+        }
+        RuntimeException failure = null;
+        for (int i = 0; i < futures.size(); i += 1) {
+            try {
+                result.put(names.get(i), futures.get(i).get());
+            } catch (ExecutionException excp) {
+                if (failure == null) {
+                    failure = excp.getCause() instanceof RuntimeException
+                        ? (RuntimeException) excp.getCause()
+                        : new IllegalArgumentException(excp.getCause());
+                }
+            } catch (InterruptedException excp) {
+                throw new IllegalStateException(excp);
+            }
+        }
+        if (failure != null) {
+            throw failure;
+        }
+        return result;
+    }
+
+    /** Return the shared pool of worker threads, creating it on first
+     *  use.  Its threads are daemons, so that they do not keep the program
+     *  running. */
+    private static synchronized ThreadPoolExecutor pool() {
+        if (_pool == null) {
+            int threads =
+                Math.min(MAX_THREADS,
+                         Runtime.getRuntime().availableProcessors());
+            _pool = new ThreadPoolExecutor(
+                threads, threads, 0, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(2 * threads),
+                runnable -> {
+                    Thread thread = new Thread(runnable, "gitlet-files");
+                    thread.setDaemon(true);
+                    return thread;
+                },
+                new ThreadPoolExecutor.CallerRunsPolicy());
+        }
+        return _pool;
+    }
+
+    /** The object store holding the blobs. */
+    private final ObjectStore _store;
+    /** The shared worker pool, or null if not yet created. */
+    private static ThreadPoolExecutor _pool;
+}
@@ -0,0 +1,80 @@
+package gitlet;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Random;
+import java.util.TreeMap;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import static org.junit.Assert.*;
+
+/** Tests of the FileOps class.
+ *  @author Brian Faun
+ */
+public class FileOpsTest {
+
+    /** Directory for the files each test makes, deleted after the test. */
+    @Rule
+    public TemporaryFolder temp = new TemporaryFolder();
+
+    /** Number of files to handle at once. */
+    static final int FILES = 50;
+
+    /** Return FILES files of random contents in DIR, by name, one of them
+     *  several buffers long. */
+    static TreeMap<String, File> makeFiles(File dir) {
+        Random random = new Random(61);
+        TreeMap<String, File> files = new TreeMap<>();
+        for (int k = 0; k < FILES; k += 1) {
+            String name = "f" + k + ".txt";
+            File file = new File(dir, name);
+            int size = k == 0 ? 5 << 20 : random.nextInt(1000);
+            Utils.writeContents(file, PackTest.randomBytes(random, size));
+            files.put(name, file);
+        }
+        return files;
+    }
+
+    @Test
+    public void testSameAsSequential() throws IOException {
+        File dir = temp.newFolder();
+        File work = new File(dir, "work");
+        work.mkdir();
+        ObjectStore store = new ObjectStore(new File(dir, "objects"));
+        FileOps ops = new FileOps(store);
+        TreeMap<String, File> files = makeFiles(work);
+
+        TreeMap<String, String> hashes = ops.hashFiles(files);
+        assertEquals(files.keySet(), hashes.keySet());
+        for (String name : files.keySet()) {
+            File file = files.get(name);
+            assertEquals(store.hashFile(file), hashes.get(name));
+            assertEquals(Utils.sha1(new byte[] { ObjectStore.BLOB },
+                                    Utils.readContents(file)),
+                         hashes.get(name));
+            store.putFile(file);
+        }
+
+        File copy = new File(dir, "copy");
+        copy.mkdir();
+        ops.copyAll(hashes, copy);
+        for (String name : files.keySet()) {
+            assertTrue(Arrays.equals(Utils.readContents(files.get(name)),
+                                     Utils.readContents(new File(copy,
+                                                                 name))));
+        }
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testFailure() throws IOException {
+        File dir = temp.newFolder();
+        FileOps ops = new FileOps(new ObjectStore(new File(dir, "objects")));
+        TreeMap<String, File> files = makeFiles(dir);
+        files.put("missing.txt", new File(dir, "missing.txt"));
+        ops.hashFiles(files);
+    }
+
+}
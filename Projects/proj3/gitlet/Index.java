@@ -0,0 +1,225 @@
+package gitlet;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.TimeUnit;
+
+/** The staging index: the files that the next commit will track, each
+ *  with the hash of its staged contents and the size and modification
+ *  time its working file had when that hash was computed or last
+ *  confirmed.  Files staged for addition are those whose staged hash
+ *  differs from the head commit's; files staged for removal are those
+ *  tracked by the head commit but absent here.
+ *
+ *  A working file whose size and modification time still match its entry
+ *  is assumed unchanged, and is not read again.  To be safe against a
+ *  change made in the same clock tick as the hash was recorded, an entry
+ *  is trusted only if its modification time is earlier than that of the
+ *  index file itself.
+ *
+ *  The index file holds MAGIC, VERSION, and the number of entries, then for
+ *  each entry, in name order, its name (as for DataOutput.writeUTF), 20-byte
+ *  binary hash, size, and modification time in nanoseconds (-1 if
+ *  unknown).  It is replaced atomically by writing a temporary file and
+ *  renaming it.
+ *  @author Brian Faun
+ */
+class Index {
+
+    /** First int of an index file. */
+    static final int MAGIC = 0x47494e58;
+
+    /** Index format version. */
+    static final int VERSION = 1;
+
+    /** An empty index. */
+    Index() {
+        _written = Long.MIN_VALUE;
+    }
+
+    /** Return the index saved in FILE, or an empty index if FILE does not
+     *  exist. */
+    static Index read(File file) {
+        Index index = new Index();
+        if (!file.isFile()) {
+            return index;
+        }
+        try (DataInputStream in = new DataInputStream(
+                 new BufferedInputStream(Files.newInputStream(
+                     file.toPath())))) {
+            if (in.readInt() != MAGIC || in.readInt() != VERSION) {
+                throw new IllegalArgumentException("bad index file");
+            }
+            byte[] hash = new byte[Pack.HASH_BYTES];
+            for (int n = in.readInt(); n > 0; n -= 1) {
+                String name = in.readUTF();
+                in.readFully(hash);
+                long size = in.readLong(), mtime = in.readLong();
+                index._entries.put(name, new Entry(ObjectStore.hex(hash),
+                                                   size, mtime));
+            }
+            index._written = modificationTime(file);
+        } catch (IOException excp) {
+            throw new IllegalArgumentException(excp.getMessage());
+        }
+        return index;
+    }
+
+    /** Save me in FILE, if I have changed since read. */
+    void write(File file) {
+        if (!_changed) {
+            return;
+        }
+        Path temp = null;
+        try {
+            temp = Files.createTempFile(file.getParentFile().toPath(),
+                                        "index", null);
+            try (DataOutputStream out = new DataOutputStream(
+                     new BufferedOutputStream(
+                         Files.newOutputStream(temp)))) {
+                out.writeInt(MAGIC);
+                out.writeInt(VERSION);
+                out.writeInt(_entries.size());
+                for (Map.Entry<String, Entry> e : _entries.entrySet()) {
+                    Entry entry = e.getValue();
+                    out.writeUTF(e.getKey());
+                    out.write(Pack.toBytes(entry._blob));
+                    out.writeLong(entry._size);
+                    out.writeLong(entry._mtime);
+                }
+            }
+            Files.move(temp, file.toPath(), StandardCopyOption.ATOMIC_MOVE,
+                       StandardCopyOption.REPLACE_EXISTING);
+            temp = null;
+            _written = modificationTime(file);
+            _changed = false;
+        } catch (IOException excp) {
+            throw new IllegalArgumentException(excp.getMessage());
+        } finally {
+            if (temp != null) {
+                temp.toFile().delete();
+            }
+        }
+    }
+
+    /** Return the staged hash of file NAME, or null if NAME is not
+     *  staged. */
+    String blob(String name) {
+        Entry entry = _entries.get(name);
+        return entry == null ? null : entry._blob;
+    }
+
+    /** Return the names of all staged files. */
+    Set<String> names() {
+        return _entries.keySet();
+    }
+
+    /** Return the staged files mapped to their hashes. */
+    TreeMap<String, String> blobs() {
+        TreeMap<String, String> result = new TreeMap<>();
+        for (Map.Entry<String, Entry> e : _entries.entrySet()) {
+            result.put(e.getKey(), e.getValue()._blob);
+        }
+        return result;
+    }
+
+    /** Stage file NAME with hash BLOB, recording the current size and
+     *  modification time of FILE, its working copy (unknown if FILE is
+     *  null). */
+    void put(String name, String blob, File file) {
+        long size = -1, mtime = -1;
+        if (file != null) {
+            try {
+                BasicFileAttributes attrs = attributes(file);
+                size = attrs.size();
+                mtime = attrs.lastModifiedTime().to(TimeUnit.NANOSECONDS);
+            } catch (IOException excp) {
+                size = mtime = -1;
+            }
+        }
+        _entries.put(name, new Entry(blob, size, mtime));
+        _changed = true;
+    }
+
+    /** Unstage file NAME. */
+    void remove(String name) {
+        if (_entries.remove(name) != null) {
+            _changed = true;
+        }
+    }
+
+    /** Replace my contents with BLOBS, a mapping of file names to hashes,
+     *  whose working files are in directory DIR. */
+    void reset(Map<String, String> blobs, File dir) {
+        _entries.clear();
+        for (Map.Entry<String, String> e : blobs.entrySet()) {
+            put(e.getKey(), e.getValue(), new File(dir, e.getKey()));
+        }
+        _changed = true;
+    }
+
+    /** Return true iff FILE, the working copy of staged file NAME, can be
+     *  assumed to still have NAME's staged contents, because its size and
+     *  modification time are as recorded, without reading it. */
+    boolean isFresh(String name, File file) {
+        Entry entry = _entries.get(name);
+        if (entry == null || entry._mtime < 0 || entry._mtime >= _written) {
+            return false;
+        }
+        try {
+            BasicFileAttributes attrs = attributes(file);
+            return attrs.size() == entry._size
+                && attrs.lastModifiedTime().to(TimeUnit.NANOSECONDS)
+                   == entry._mtime;
+        } catch (IOException excp) {
+            return false;
+        }
+    }
+
+    /** Return the attributes of FILE. */
+    private static BasicFileAttributes attributes(File file)
+        throws IOException {
+        return Files.readAttributes(file.toPath(), BasicFileAttributes.class);
+    }
+
+    /** Return the modification time of FILE in nanoseconds. */
+    private static long modificationTime(File file) throws IOException {
+        return attributes(file).lastModifiedTime().to(TimeUnit.NANOSECONDS);
+    }
+
+    /** An index entry. */
+    private static class Entry {
+        /** An entry for contents with hash BLOB, whose working file had
+         *  SIZE bytes and modification time MTIME. */
+        Entry(String blob, long size, long mtime) {
+            _blob = blob;
+            _size = size;
+            _mtime = mtime;
+        }
+
+        /** Staged hash. */
+        private final String _blob;
+        /** Recorded size and modification time (nanoseconds) of the
+         *  working file, or -1 if unknown. */
+        private final long _size, _mtime;
+    }
+
+    /** Entries by file name. */
+    private final TreeMap<String, Entry> _entries = new TreeMap<>();
+    /** Modification time of the index file when last read or written, in
+     *  nanoseconds. */
+    private long _written;
+    /** True iff I have changed since last read or written. */
+    private boolean _changed;
+}
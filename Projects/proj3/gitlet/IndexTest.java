@@ -0,0 +1,66 @@
+package gitlet;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.TreeMap;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import static org.junit.Assert.*;
+
+/** Tests of the Index class.
+ *  @author Brian Faun
+ */
+public class IndexTest {
+
+    /** Directory for the files each test makes, deleted after the test. */
+    @Rule
+    public TemporaryFolder temp = new TemporaryFolder();
+
+    /** A hash to stage. */
+    static final String HASH = "0123456789abcdef0123456789abcdef01234567";
+
+    @Test
+    public void testWriteRead() throws IOException {
+        File dir = temp.newFolder();
+        File indexFile = new File(dir, "index");
+        File wug = new File(dir, "wug.txt");
+        Utils.writeContents(wug, "wug");
+        wug.setLastModified(System.currentTimeMillis() - 10000);
+        Index index = new Index();
+        index.put("wug.txt", HASH, wug);
+        index.put("gone.txt", HASH, null);
+        index.write(indexFile);
+
+        Index copy = Index.read(indexFile);
+        TreeMap<String, String> expected = new TreeMap<>();
+        expected.put("gone.txt", HASH);
+        expected.put("wug.txt", HASH);
+        assertEquals(expected, copy.blobs());
+        assertTrue(copy.isFresh("wug.txt", wug));
+        assertFalse(copy.isFresh("gone.txt", new File(dir, "gone.txt")));
+        assertFalse(copy.isFresh("other.txt", wug));
+
+        Utils.writeContents(wug, "not a wug");
+        assertFalse(copy.isFresh("wug.txt", wug));
+        copy.remove("gone.txt");
+        copy.write(indexFile);
+        assertEquals(null, Index.read(indexFile).blob("gone.txt"));
+    }
+
+    @Test
+    public void testRacyEntry() throws IOException {
+        File dir = temp.newFolder();
+        File indexFile = new File(dir, "index");
+        File wug = new File(dir, "wug.txt");
+        Utils.writeContents(wug, "wug");
+        Index index = new Index();
+        index.put("wug.txt", HASH, wug);
+        index.write(indexFile);
+        wug.setLastModified(indexFile.lastModified() + 10000);
+        index.put("wug.txt", HASH, wug);
+        assertFalse(index.isFresh("wug.txt", wug));
+    }
+
+}
@@ -1,5 +1,7 @@
 package gitlet;
 
+import java.util.Arrays;
+
 /** Driver class for Gitlet, the tiny stupid version-control system.
  *  @author Brian Faun
  */
@@ -8,41 +10,93 @@ public class Main {
     /** Usage: java gitlet.Main ARGS, where ARGS contains
      *  <COMMAND> <OPERAND> .... */
     public static void main(String... args) {
-        // FILL THIS IN
-        Driver gitlet = new Driver();
+        try {
+            run(args);
+        } catch (GitletException excp) {
+            Utils.message("%s", excp.getMessage());
+        }
+        System.exit(0);
+    }
+
+    /** Perform the command given by ARGS. */
+    private static void run(String... args) {
         if (args.length == 0) {
-            System.err.println("Please enter a command.");
+            throw Utils.error("Please enter a command.");
+        }
+        if (!args[0].equals("init") && !Driver.initialized()) {
+            throw Utils.error("Not in an initialized Gitlet directory.");
+        }
+        Driver gitlet = new Driver();
+        switch (args[0]) {
+        case "init":
+            operands(args, 1);
+            gitlet.init();
+            return;
+        case "add":
+            operands(args, 2);
+            gitlet.add(args[1]);
+            return;
+        case "rm":
+            operands(args, 2);
+            gitlet.rm(args[1]);
+            return;
+        case "commit":
+            if (args.length == 1) {
+                throw Utils.error("Please enter a commit message.");
+            }
+            operands(args, 2);
+            gitlet.commit(args[1]);
             return;
+        case "checkout":
+            if (args.length == 3 && args[1].equals("--")) {
+                gitlet.fileCheckout(args[2]);
+            } else if (args.length == 4 && args[2].equals("--")) {
+                gitlet.checkout(args[1], args[3]);
+            } else if (args.length == 2) {
+                gitlet.branchCheckout(args[1]);
+            } else {
+                throw Utils.error("Incorrect operands.");
+            }
+            return;
+        case "log":
+            operands(args, 1);
+            gitlet.log();
+            return;
+        case "global-log":
+            operands(args, 1);
+            gitlet.globalLog();
+            return;
+        case "branch":
+            operands(args, 2);
+            gitlet.branch(args[1]);
+            return;
+        case "merge":
+            operands(args, 2);
+            gitlet.merge(args[1]);
+            return;
+        case "diff":
+            if (args.length != 1 && args.length != 3) {
+                throw Utils.error("Incorrect operands.");
+            }
+            gitlet.diff(Arrays.copyOfRange(args, 1, args.length));
+            return;
+        case "status":
+            operands(args, 1);
+            gitlet.status();
+            return;
+        case "gc":
+            operands(args, 1);
+            gitlet.gc();
+            return;
+        default:
+            throw Utils.error("No command with that name exists.");
         }
-        switch (args[0].toLowerCase()) {
-            case "init":
-                gitlet.init();
-                return;
-            case "add":
-                gitlet.add(args[1]);
-                return;
-            case "commit":
-                try {
-                    gitlet.commit(args[1]);
-                } catch (ArrayIndexOutOfBoundsException e) {
-                    System.err.println("Please enter a commit message.");
-                }
-                return;
-            case "checkout":
-                if (args.length == 3) {
-                    gitlet.fileCheckout(args[2]);
-                } else if (args.length == 4) {
-                    if (args[2].equals("--")) {
-                        gitlet.checkout(args[1], args[3]);
-                    } else {
-                        System.out.println("Incorrect operands."); return;
-                    }
-                } else if (args.length == 2) {
-                    gitlet.branchCheckout(args[1]);
-                }
-                return;
-            case "log":
-                gitlet.log(); return;
+    }
 
+    /** Check that ARGS has length N. */
+    private static void operands(String[] args, int n) {
+        if (args.length != n) {
+            throw Utils.error("Incorrect operands.");
+        }
     }
 }
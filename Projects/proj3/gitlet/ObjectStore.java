@@ -0,0 +1,371 @@
+package gitlet;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.file.FileAlreadyExistsException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.security.DigestOutputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.InflaterInputStream;
+
+import static gitlet.Utils.*;
+
+/** A content-addressed store of blobs and commits.  Each object is stored
+ *  once, in a file named by the SHA-1 hash of its type code followed by its
+ *  contents.  The file for hash H is DIR/H[0..1]/H[2..], so that no
+ *  directory holds more than a small fraction of the objects, and contains
+ *  the type code and contents, deflate-compressed.  Objects are written to
+ *  a temporary file and then renamed into place, so that a reader never
+ *  sees a partially written object, and are read as streams, so that
+ *  neither reading nor writing holds a whole object in memory.
+ *
+ *  Loose objects may be gathered into packs (see Pack) by repack, which
+ *  stores similar blobs as deltas.  Packs live in DIR/pack, and are
+ *  consulted when an object is not found loose.
+ *  @author Brian Faun
+ */
+class ObjectStore {
+
+    /** Type codes of stored objects. */
+    static final int BLOB = 1, COMMIT = 2;
+
+    /** Length of the directory part of an object's file name. */
+    private static final int FANOUT = 2;
+
+    /** Size of the buffers used to copy object contents. */
+    private static final int BUFFER_SIZE = 1 << 16;
+
+    /** A store kept in directory DIR. */
+    ObjectStore(File dir) {
+        _dir = dir;
+    }
+
+    /** Create my directory, if it does not already exist. */
+    void create() {
+        _dir.mkdirs();
+    }
+
+    /** Return the file holding the object with hash ID. */
+    File file(String id) {
+        return join(_dir, id.substring(0, FANOUT), id.substring(FANOUT));
+    }
+
+    /** Return true iff the object with hash ID is present. */
+    boolean contains(String id) {
+        return isLoose(id) || packFor(id) != null;
+    }
+
+    /** Return true iff the object with hash ID is present, and not in a
+     *  pack. */
+    boolean isLoose(String id) {
+        return id.length() == UID_LENGTH && file(id).isFile();
+    }
+
+    /** Store CONTENTS as an object of type TYPE (BLOB or COMMIT), if it
+     *  is not already present, and return its hash. */
+    String put(int type, byte[] contents) {
+        return put(type, new ByteArrayInputStream(contents));
+    }
+
+    /** Store the contents of FILE as a blob, if not already present, and
+     *  return its hash. */
+    String putFile(File file) {
+        try (InputStream in = Files.newInputStream(file.toPath())) {
+            return put(BLOB, in);
+        } catch (IOException excp) {
+            throw new IllegalArgumentException(excp.getMessage());
+        }
+    }
+
+    /** Return the hash the contents of FILE would have as a blob, without
+     *  storing them. */
+    String hashFile(File file) {
+        try (FileChannel in = FileChannel.open(file.toPath(),
+                                               StandardOpenOption.READ)) {
+            MessageDigest md = MessageDigest.getInstance("SHA-1");
+            md.update((byte) BLOB);
+            ByteBuffer buf = ByteBuffer.allocateDirect(BUFFER_SIZE);
+            while (in.read(buf) >= 0) {
+                buf.flip();
+                md.update(buf);
+                buf.clear();
+            }
+            return hex(md.digest());
+        } catch (IOException excp) {
+            throw new IllegalArgumentException(excp.getMessage());
+        } catch (NoSuchAlgorithmException excp) {
+            throw new IllegalArgumentException(
+                "System does not support SHA-1");
+        }
+    }
+
+    /** Store OBJ, encoded, as an object of type TYPE, if not already
+     *  present, and return its hash. */
+    String putObject(int type, Codec.Encodable obj) {
+        return put(type, Codec.encode(obj));
+    }
+
+    /** Store the remaining contents of IN as an object of type TYPE, if
+     *  not already present, and return its hash.  The contents are
+     *  hashed and compressed in a single pass into a temporary file,
+     *  which is then renamed to its permanent name, or discarded if an
+     *  object with that hash already exists. */
+    private String put(int type, InputStream in) {
+        create();
+        Path temp = null;
+        try {
+            temp = Files.createTempFile(_dir.toPath(), "tmp", null);
+            MessageDigest md = MessageDigest.getInstance("SHA-1");
+            try (OutputStream out =
+                 new DigestOutputStream(
+                     new DeflaterOutputStream(
+                         Files.newOutputStream(temp)), md)) {
+                out.write(type);
+                byte[] buf = new byte[BUFFER_SIZE];
+                for (int n = in.read(buf); n >= 0; n = in.read(buf)) {
+                    out.write(buf, 0, n);
+                }
+            }
+            String id = hex(md.digest());
+            File target = file(id);
+            if (contains(id)) {
+                Files.delete(temp);
+            } else {
+                target.getParentFile().mkdir();
+                try {
+                    Files.move(temp, target.toPath(),
+                               StandardCopyOption.ATOMIC_MOVE);
+                } catch (FileAlreadyExistsException excp) {
+                    Files.delete(temp);
+                }
+            }
+            temp = null;
+            return id;
+        } catch (IOException excp) {
+            throw new IllegalArgumentException(excp.getMessage());
+        } catch (NoSuchAlgorithmException excp) {
+            throw new IllegalArgumentException(
+                "System does not support SHA-1");
+        } finally {
+            if (temp != null) {
+                temp.toFile().delete();
+            }
+        }
+    }
+
+    /** Return a stream of the contents of the object with hash ID, which
+     *  must have type TYPE.  Throws GitletException if there is no such
+     *  object. */
+    InputStream open(String id, int type) {
+        if (!contains(id)) {
+            throw error("No object with that id exists.");
+        }
+        Pack pack = packFor(id);
+        if (pack != null) {
+            if (pack.type(id) != type) {
+                throw error("Object %s has the wrong type.", id);
+            }
+            return new BufferedInputStream(pack.open(id), BUFFER_SIZE);
+        }
+        try {
+            InputStream in =
+                new BufferedInputStream(
+                    new InflaterInputStream(
+                        Files.newInputStream(file(id).toPath())),
+                    BUFFER_SIZE);
+            if (in.read() != type) {
+                in.close();
+                throw error("Object %s has the wrong type.", id);
+            }
+            return in;
+        } catch (IOException excp) {
+            throw new IllegalArgumentException(excp.getMessage());
+        }
+    }
+
+    /** Return the type code of the object with hash ID, or 0 if there is
+     *  no such object. */
+    int type(String id) {
+        if (!isLoose(id)) {
+            Pack pack = packFor(id);
+            return pack == null ? 0 : pack.type(id);
+        }
+        try (InputStream in =
+             new InflaterInputStream(
+                 Files.newInputStream(file(id).toPath()))) {
+            return in.read();
+        } catch (IOException excp) {
+            throw new IllegalArgumentException(excp.getMessage());
+        }
+    }
+
+    /** Return the object of type TYPE with hash ID, as reconstructed from
+     *  its encoding by DECODER. */
+    <T> T getObject(String id, int type, Codec.Decoder<T> decoder) {
+        try (InputStream in = open(id, type)) {
+            return Codec.decode(in.readAllBytes(), decoder);
+        } catch (IOException excp) {
+            throw new IllegalArgumentException(excp.getMessage());
+        }
+    }
+
+    /** Return the contents of the blob with hash ID. */
+    byte[] contents(String id) {
+        try (InputStream in = open(id, BLOB)) {
+            return in.readAllBytes();
+        } catch (IOException excp) {
+            throw new IllegalArgumentException(excp.getMessage());
+        }
+    }
+
+    /** Write the contents of the blob with hash ID to FILE, creating or
+     *  overwriting it as needed.  The contents are moved from the
+     *  decompressing stream to the file by FileChannel.transferFrom, a
+     *  buffer at a time. */
+    void copyTo(String id, File file) {
+        if (file.isDirectory()) {
+            throw new IllegalArgumentException("cannot overwrite directory");
+        }
+        try (ReadableByteChannel in = Channels.newChannel(open(id, BLOB));
+             FileChannel out =
+             FileChannel.open(file.toPath(), StandardOpenOption.WRITE,
+                              StandardOpenOption.CREATE,
+                              StandardOpenOption.TRUNCATE_EXISTING)) {
+            long size = 0;
+            for (long n = out.transferFrom(in, size, BUFFER_SIZE); n > 0;
+                 n = out.transferFrom(in, size, BUFFER_SIZE)) {
+                size += n;
+            }
+        } catch (IOException excp) {
+            throw new IllegalArgumentException(excp.getMessage());
+        }
+    }
+
+    /** Return the hashes of all stored objects whose hashes start with
+     *  PREFIX, which must be at least two characters long. */
+    List<String> find(String prefix) {
+        ArrayList<String> result = new ArrayList<>();
+        if (prefix.length() < FANOUT || prefix.length() > UID_LENGTH
+            || !prefix.matches("[0-9a-f]+")) {
+            return result;
+        }
+        for (Pack pack : packs()) {
+            pack.find(prefix, result);
+        }
+        String dir = prefix.substring(0, FANOUT),
+            rest = prefix.substring(FANOUT);
+        List<String> names = plainFilenamesIn(join(_dir, dir));
+        if (names != null) {
+            for (String name : names) {
+                if (name.startsWith(rest)) {
+                    result.add(dir + name);
+                }
+            }
+        }
+        return result;
+    }
+
+    /** Gather all loose objects into a new pack, storing each blob B
+     *  with an entry in BASES as a delta against the blob BASES.get(B)
+     *  where worthwhile (see Pack.write), and delete them.  Returns the
+     *  number of objects packed. */
+    int repack(Map<String, String> bases) {
+        ArrayList<String> loose = new ArrayList<>();
+        String[] dirs = _dir.list();
+        if (dirs != null) {
+            for (String dir : dirs) {
+                if (dir.length() != FANOUT) {
+                    continue;
+                }
+                List<String> names = plainFilenamesIn(join(_dir, dir));
+                for (String name : names) {
+                    loose.add(dir + name);
+                }
+            }
+        }
+        if (loose.isEmpty()) {
+            return 0;
+        }
+        Pack pack = Pack.write(join(_dir, PACK_DIR), this, loose, bases,
+                               MAX_DELTA_CHAIN);
+        packs().add(pack);
+        for (String id : loose) {
+            File file = file(id);
+            file.delete();
+            file.getParentFile().delete();
+        }
+        return loose.size();
+    }
+
+    /** Return the pack containing the object with hash ID, or null if
+     *  there is none. */
+    private Pack packFor(String id) {
+        for (Pack pack : packs()) {
+            if (pack.contains(id)) {
+                return pack;
+            }
+        }
+        return null;
+    }
+
+    /** Return my packs, finding them on first use. */
+    private synchronized List<Pack> packs() {
+        if (_packs == null) {
+            _packs = new ArrayList<>();
+            File dir = join(_dir, PACK_DIR);
+            List<String> names = plainFilenamesIn(dir);
+            if (names != null) {
+                for (String name : names) {
+                    if (name.endsWith(".idx")) {
+                        String base =
+                            name.substring(0, name.length() - ".idx".length());
+                        _packs.add(new Pack(join(dir, name),
+                                            join(dir, base + ".pack")));
+                    }
+                }
+            }
+        }
+        return _packs;
+    }
+
+    /** Return the lowercase hexadecimal numeral for BYTES. */
+    static String hex(byte[] bytes) {
+        char[] result = new char[2 * bytes.length];
+        for (int i = 0; i < bytes.length; i += 1) {
+            result[2 * i] = HEX_DIGITS[(bytes[i] >> 4) & 0xf];
+            result[2 * i + 1] = HEX_DIGITS[bytes[i] & 0xf];
+        }
+        return new String(result);
+    }
+
+    /** Hexadecimal digits, by value. */
+    private static final char[] HEX_DIGITS = "0123456789abcdef".toCharArray();
+
+    /** Name of the subdirectory holding packs. */
+    static final String PACK_DIR = "pack";
+
+    /** Longest chain of deltas made by repack. */
+    static final int MAX_DELTA_CHAIN = 16;
+
+    /** Directory holding the objects. */
+    private final File _dir;
+
+    /** Packs in _dir/PACK_DIR, or null if not yet listed. */
+    private List<Pack> _packs;
+}
@@ -0,0 +1,74 @@
+package gitlet;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.TreeMap;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import static org.junit.Assert.*;
+
+/** Tests of the ObjectStore class.
+ *  @author Brian Faun
+ */
+public class ObjectStoreTest {
+
+    /** Directory for the files each test makes, deleted after the test. */
+    @Rule
+    public TemporaryFolder temp = new TemporaryFolder();
+
+    @Test
+    public void testPutOpen() throws IOException {
+        ObjectStore store =
+            new ObjectStore(new File(temp.newFolder(), "objects"));
+        byte[] data = "hello, world\n".getBytes(StandardCharsets.UTF_8);
+        String id = store.put(ObjectStore.BLOB, data);
+        assertEquals(Utils.UID_LENGTH, id.length());
+        assertEquals(id, store.put(ObjectStore.BLOB, data));
+        assertTrue(store.contains(id));
+        assertEquals(id.substring(0, 2),
+                     store.file(id).getParentFile().getName());
+        assertEquals(ObjectStore.BLOB, store.type(id));
+        try (InputStream in = store.open(id, ObjectStore.BLOB)) {
+            assertArrayEquals(data, in.readAllBytes());
+        }
+        assertNotEquals(id, store.put(ObjectStore.COMMIT, data));
+    }
+
+    @Test
+    public void testPutFileCopy() throws IOException {
+        File dir = temp.newFolder();
+        ObjectStore store = new ObjectStore(new File(dir, "objects"));
+        byte[] data = new byte[200000];
+        for (int i = 0; i < data.length; i += 1) {
+            data[i] = (byte) (i * 31 / 7);
+        }
+        File src = new File(dir, "src"), dst = new File(dir, "dst");
+        Utils.writeContents(src, data);
+        String id = store.putFile(src);
+        assertEquals(id, store.put(ObjectStore.BLOB, data));
+        store.copyTo(id, dst);
+        assertArrayEquals(data, Utils.readContents(dst));
+        assertTrue(store.file(id).length() < data.length);
+    }
+
+    @Test
+    public void testObjectsAndFind() throws IOException {
+        ObjectStore store =
+            new ObjectStore(new File(temp.newFolder(), "objects"));
+        TreeMap<String, String> blobs = new TreeMap<>();
+        blobs.put("wug.txt", IndexTest.HASH);
+        Commit commit = new Commit("msg", 17, null, null, blobs);
+        String id = store.putObject(ObjectStore.COMMIT, commit);
+        Commit copy = store.getObject(id, ObjectStore.COMMIT, Commit::decode);
+        assertEquals("msg", copy.message());
+        assertEquals(blobs, copy.blobs());
+        assertEquals(1, store.find(id.substring(0, 6)).size());
+        assertEquals(id, store.find(id.substring(0, 6)).get(0));
+        assertEquals(0, store.find("zz").size());
+    }
+
+}
@@ -0,0 +1,457 @@
+package gitlet;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.InflaterInputStream;
+
+import static gitlet.Utils.*;
+import static java.nio.file.StandardOpenOption.*;
+
+/** A pack: many objects of an ObjectStore in a single file, NAME.pack,
+ *  with an index, NAME.idx.  Some blobs are stored as deltas (see Delta)
+ *  against other objects in the same pack.
+ *
+ *  Each entry of the pack file consists of a kind byte (an ObjectStore
+ *  type code, or DELTA), then, for deltas, the 20-byte hash of the base
+ *  and the type code of the object; then the length of the data that
+ *  follows as an int; then the deflate-compressed contents or delta.
+ *
+ *  The index starts with IDX_MAGIC, IDX_VERSION, and the number of objects
+ *  N, followed by a fan-out table of 256 ints, whose entry B is the number
+ *  of objects whose hashes have a first byte <= B; then the N 20-byte
+ *  hashes in increasing order; then the N corresponding offsets of the
+ *  entries in the pack as longs.  The index and pack are memory-mapped
+ *  when first used, and lookups are binary searches within the range
+ *  given by the fan-out table, so that opening a pack reads nothing.
+ *  @author Brian Faun
+ */
+class Pack {
+
+    /** Kind byte of delta entries. */
+    static final int DELTA = 3;
+
+    /** First int of an index file. */
+    static final int IDX_MAGIC = 0x47494458;
+
+    /** Index format version. */
+    static final int IDX_VERSION = 1;
+
+    /** Length of a binary hash. */
+    static final int HASH_BYTES = UID_LENGTH / 2;
+
+    /** Size of the fan-out table. */
+    private static final int FANOUT_SIZE = 256;
+
+    /** Offset of the fan-out table in the index. */
+    private static final int FANOUT_OFFSET = 3 * Integer.BYTES;
+
+    /** Offset of the hashes in the index. */
+    private static final int HASHES_OFFSET =
+        FANOUT_OFFSET + FANOUT_SIZE * Integer.BYTES;
+
+    /** Deltas are kept only if at most this fraction of their target's
+     *  size. */
+    static final double MAX_DELTA_RATIO = 0.5;
+
+    /** The pack whose index is the file INDEX, with file PACK. */
+    Pack(File index, File pack) {
+        _indexFile = index;
+        _packFile = pack;
+    }
+
+    /** Return the file holding my objects. */
+    File packFile() {
+        return _packFile;
+    }
+
+    /** Return true iff I contain the object with hash ID. */
+    boolean contains(String id) {
+        return position(id) >= 0;
+    }
+
+    /** Return the type code of the object with hash ID, or 0 if I do not
+     *  contain it. */
+    int type(String id) {
+        int k = position(id);
+        if (k < 0) {
+            return 0;
+        }
+        ByteBuffer pack = pack();
+        int at = (int) offset(k);
+        int kind = pack.get(at);
+        return kind == DELTA ? pack.get(at + 1 + HASH_BYTES) : kind;
+    }
+
+    /** Return a stream of the contents of the object with hash ID, which
+     *  I must contain.  Objects stored whole are inflated as they are
+     *  read; deltas are applied in memory. */
+    InputStream open(String id) {
+        int k = position(id);
+        assert k >= 0;
+        ByteBuffer pack = pack();
+        int at = (int) offset(k);
+        if (pack.get(at) == DELTA) {
+            return new ByteArrayInputStream(read(k));
+        }
+        int len = pack.getInt(at + 1);
+        return new InflaterInputStream(
+            new BufferInputStream(slice(pack, at + 1 + Integer.BYTES, len)));
+    }
+
+    /** Add to RESULT the hashes of all my objects that start with PREFIX,
+     *  which has at least two characters. */
+    void find(String prefix, List<String> result) {
+        int first = Integer.parseInt(prefix.substring(0, 2), 16);
+        ByteBuffer idx = index();
+        int lo = first == 0 ? 0
+            : idx.getInt(FANOUT_OFFSET + (first - 1) * Integer.BYTES);
+        int hi = idx.getInt(FANOUT_OFFSET + first * Integer.BYTES);
+        for (int k = lo; k < hi; k += 1) {
+            String id = hashAt(k);
+            if (id.startsWith(prefix)) {
+                result.add(id);
+            }
+        }
+    }
+
+    /** Return the number of objects I contain. */
+    int size() {
+        return index().getInt(2 * Integer.BYTES);
+    }
+
+    /** Return the contents of my K-th object (in hash order). */
+    private byte[] read(int k) {
+        ByteBuffer pack = pack();
+        int at = (int) offset(k);
+        if (pack.get(at) != DELTA) {
+            return inflate(pack, at + 1);
+        }
+        byte[] base = new byte[HASH_BYTES];
+        slice(pack, at + 1, HASH_BYTES).get(base);
+        int b = position(base);
+        if (b < 0) {
+            throw new IllegalArgumentException("missing delta base");
+        }
+        return Delta.apply(read(b), inflate(pack, at + 2 + HASH_BYTES));
+    }
+
+    /** Return the inflated contents of the length-prefixed data at AT in
+     *  PACK. */
+    private static byte[] inflate(ByteBuffer pack, int at) {
+        int len = pack.getInt(at);
+        try (InputStream in = new InflaterInputStream(
+                 new BufferInputStream(slice(pack, at + Integer.BYTES,
+                                             len)))) {
+            return in.readAllBytes();
+        } catch (IOException excp) {
+            throw new IllegalArgumentException(excp.getMessage());
+        }
+    }
+
+    /** Return the position of the object with hash ID in my index, or -1
+     *  if absent. */
+    private int position(String id) {
+        if (id.length() != UID_LENGTH) {
+            return -1;
+        }
+        return position(toBytes(id));
+    }
+
+    /** Return the position of the object with binary hash HASH in my
+     *  index, or -1 if absent. */
+    private int position(byte[] hash) {
+        ByteBuffer idx = index();
+        int first = hash[0] & 0xff;
+        int lo = first == 0 ? 0
+            : idx.getInt(FANOUT_OFFSET + (first - 1) * Integer.BYTES);
+        int hi = idx.getInt(FANOUT_OFFSET + first * Integer.BYTES) - 1;
+        while (lo <= hi) {
+            int mid = (lo + hi) >>> 1;
+            int c = compareHash(idx, HASHES_OFFSET + mid * HASH_BYTES, hash);
+            if (c < 0) {
+                lo = mid + 1;
+            } else if (c > 0) {
+                hi = mid - 1;
+            } else {
+                return mid;
+            }
+        }
+        return -1;
+    }
+
+    /** Return the hash of my K-th object as a hexadecimal numeral. */
+    private String hashAt(int k) {
+        byte[] hash = new byte[HASH_BYTES];
+        slice(index(), HASHES_OFFSET + k * HASH_BYTES, HASH_BYTES).get(hash);
+        return ObjectStore.hex(hash);
+    }
+
+    /** Return the offset in the pack of my K-th object. */
+    private long offset(int k) {
+        return index().getLong(HASHES_OFFSET + size() * HASH_BYTES
+                               + k * Long.BYTES);
+    }
+
+    /** Return the result of comparing the hash at AT in BUF with HASH,
+     *  as unsigned bytes. */
+    private static int compareHash(ByteBuffer buf, int at, byte[] hash) {
+        for (int i = 0; i < HASH_BYTES; i += 1) {
+            int c = (buf.get(at + i) & 0xff) - (hash[i] & 0xff);
+            if (c != 0) {
+                return c;
+            }
+        }
+        return 0;
+    }
+
+    /** Return my index, mapping it on first use. */
+    private synchronized ByteBuffer index() {
+        if (_index == null) {
+            _index = map(_indexFile);
+            if (_index.getInt(0) != IDX_MAGIC
+                || _index.getInt(Integer.BYTES) != IDX_VERSION) {
+                throw new IllegalArgumentException("bad pack index: "
+                                                   + _indexFile);
+            }
+        }
+        return _index;
+    }
+
+    /** Return my pack file's contents, mapping it on first use. */
+    private synchronized ByteBuffer pack() {
+        if (_pack == null) {
+            _pack = map(_packFile);
+        }
+        return _pack;
+    }
+
+    /** Return a buffer sharing the LEN bytes of BUF at AT, with its own
+     *  position, so that BUF may be shared between threads. */
+    private static ByteBuffer slice(ByteBuffer buf, int at, int len) {
+        ByteBuffer result = buf.duplicate();
+        result.position(at).limit(at + len);
+        return result;
+    }
+
+    /** Return the contents of FILE, mapped read-only. */
+    private static ByteBuffer map(File file) {
+        try (FileChannel channel = FileChannel.open(file.toPath(), READ)) {
+            return channel.map(FileChannel.MapMode.READ_ONLY, 0,
+                               channel.size());
+        } catch (IOException excp) {
+            throw new IllegalArgumentException(excp.getMessage());
+        }
+    }
+
+    /** Return the 20-byte binary form of the hexadecimal hash ID. */
+    static byte[] toBytes(String id) {
+        byte[] hash = new byte[HASH_BYTES];
+        for (int i = 0; i < HASH_BYTES; i += 1) {
+            int hi = Character.digit(id.charAt(2 * i), 16),
+                lo = Character.digit(id.charAt(2 * i + 1), 16);
+            if (hi < 0 || lo < 0) {
+                throw new NumberFormatException("bad hash: " + id);
+            }
+            hash[i] = (byte) (hi << 4 | lo);
+        }
+        return hash;
+    }
+
+    /** Write a pack containing the objects of STORE with hashes IDS into
+     *  directory DIR, returning it.  Each blob B with a base BASES.get(B)
+     *  also among IDS is stored as a delta against it if that saves
+     *  enough space and the chain of deltas leading to B would be no
+     *  longer than MAXCHAIN.  Entries are written bases first, and a
+     *  delta is made only against an entry already written, so that there
+     *  are no cycles of deltas. */
+    static Pack write(File dir, ObjectStore store, List<String> ids,
+                      Map<String, String> bases, int maxChain) {
+        String[] sorted = ids.toArray(new String[0]);
+        Arrays.sort(sorted);
+        HashMap<String, Long> offsets = new HashMap<>();
+        HashMap<String, Integer> depths = new HashMap<>();
+        dir.mkdirs();
+        Path temp = null;
+        try {
+            temp = Files.createTempFile(dir.toPath(), "tmp", null);
+            try (DataOutputStream out = new DataOutputStream(
+                     new BufferedOutputStream(Files.newOutputStream(temp)))) {
+                for (String id : writeOrder(sorted, bases)) {
+                    offsets.put(id, (long) out.size());
+                    int type = store.type(id);
+                    byte[] data = readAll(store, id, type);
+                    String base = bases.get(id);
+                    byte[] delta = null;
+                    if (type == ObjectStore.BLOB && base != null
+                        && depths.containsKey(base)
+                        && depths.get(base) < maxChain) {
+                        delta = Delta.create(readAll(store, base,
+                                                     ObjectStore.BLOB),
+                                             data);
+                        if (delta.length > data.length * MAX_DELTA_RATIO) {
+                            delta = null;
+                        }
+                    }
+                    if (delta == null) {
+                        depths.put(id, 0);
+                        out.write(type);
+                        writeCompressed(out, data);
+                    } else {
+                        depths.put(id, depths.get(base) + 1);
+                        out.write(DELTA);
+                        out.write(toBytes(base));
+                        out.write(type);
+                        writeCompressed(out, delta);
+                    }
+                }
+            }
+            String name = "pack-" + sha1((Object[]) sorted);
+            File pack = join(dir, name + ".pack"),
+                index = join(dir, name + ".idx");
+            Files.move(temp, pack.toPath(), StandardCopyOption.ATOMIC_MOVE,
+                       StandardCopyOption.REPLACE_EXISTING);
+            temp = Files.createTempFile(dir.toPath(), "tmp", null);
+            long[] sortedOffsets = new long[sorted.length];
+            for (int k = 0; k < sorted.length; k += 1) {
+                sortedOffsets[k] = offsets.get(sorted[k]);
+            }
+            writeIndex(temp, sorted, sortedOffsets);
+            Files.move(temp, index.toPath(), StandardCopyOption.ATOMIC_MOVE,
+                       StandardCopyOption.REPLACE_EXISTING);
+            temp = null;
+            return new Pack(index, pack);
+        } catch (IOException excp) {
+            throw new IllegalArgumentException(excp.getMessage());
+        } finally {
+            if (temp != null) {
+                temp.toFile().delete();
+            }
+        }
+    }
+
+    /** Return IDS ordered so that, where possible, BASES.get(X) precedes
+     *  X for each X in IDS.  Where the bases form a cycle, the member of
+     *  the cycle reached first is put first. */
+    private static List<String> writeOrder(String[] ids,
+                                           Map<String, String> bases) {
+        HashSet<String> members = new HashSet<>(Arrays.asList(ids));
+        HashSet<String> placed = new HashSet<>();
+        LinkedHashSet<String> path = new LinkedHashSet<>();
+        ArrayList<String> order = new ArrayList<>();
+        for (String id : ids) {
+            for (String x = id; x != null && members.contains(x)
+                     && !placed.contains(x) && path.add(x); ) {
+                x = bases.get(x);
+            }
+            ArrayList<String> chain = new ArrayList<>(path);
+            for (int i = chain.size() - 1; i >= 0; i -= 1) {
+                order.add(chain.get(i));
+                placed.add(chain.get(i));
+            }
+            path.clear();
+        }
+        return order;
+    }
+
+    /** Return the whole contents of the object ID of type TYPE in
+     *  STORE. */
+    private static byte[] readAll(ObjectStore store, String id, int type) {
+        try (InputStream in = store.open(id, type)) {
+            return in.readAllBytes();
+        } catch (IOException excp) {
+            throw new IllegalArgumentException(excp.getMessage());
+        }
+    }
+
+    /** Write DATA to OUT, compressed and preceded by its compressed
+     *  length. */
+    private static void writeCompressed(DataOutputStream out, byte[] data)
+        throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (DeflaterOutputStream deflater =
+             new DeflaterOutputStream(bytes,
+                                      new Deflater(Deflater.BEST_COMPRESSION))) {
+            deflater.write(data);
+        }
+        out.writeInt(bytes.size());
+        bytes.writeTo(out);
+    }
+
+    /** Write to FILE an index of objects with hashes SORTED, in increasing
+     *  order, at OFFSETS. */
+    private static void writeIndex(Path file, String[] sorted,
+                                   long[] offsets) throws IOException {
+        int[] fanout = new int[FANOUT_SIZE];
+        for (String id : sorted) {
+            fanout[Integer.parseInt(id.substring(0, 2), 16)] += 1;
+        }
+        try (DataOutputStream out = new DataOutputStream(
+                 new BufferedOutputStream(Files.newOutputStream(file)))) {
+            out.writeInt(IDX_MAGIC);
+            out.writeInt(IDX_VERSION);
+            out.writeInt(sorted.length);
+            int total = 0;
+            for (int count : fanout) {
+                total += count;
+                out.writeInt(total);
+            }
+            for (String id : sorted) {
+                out.write(toBytes(id));
+            }
+            for (long offset : offsets) {
+                out.writeLong(offset);
+            }
+        }
+    }
+
+    /** An InputStream reading the remaining contents of a ByteBuffer. */
+    private static class BufferInputStream extends InputStream {
+
+        /** A stream reading BUF. */
+        BufferInputStream(ByteBuffer buf) {
+            _buf = buf;
+        }
+
+        @Override
+        public int read() {
+            return _buf.hasRemaining() ? _buf.get() & 0xff : -1;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) {
+            if (!_buf.hasRemaining()) {
+                return -1;
+            }
+            len = Math.min(len, _buf.remaining());
+            _buf.get(b, off, len);
+            return len;
+        }
+
+        /** The buffer being read. */
+        private final ByteBuffer _buf;
+    }
+
+    /** Index and pack files. */
+    private final File _indexFile, _packFile;
+    /** Mapped index and pack files, or null if not yet mapped. */
+    private ByteBuffer _index, _pack;
+}
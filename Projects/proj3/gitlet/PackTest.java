@@ -0,0 +1,129 @@
+package gitlet;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Random;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import static org.junit.Assert.*;
+
+/** Tests of the Delta and Pack classes.
+ *  @author Brian Faun
+ */
+public class PackTest {
+
+    /** Directory for the files each test makes, deleted after the test. */
+    @Rule
+    public TemporaryFolder temp = new TemporaryFolder();
+
+    /** Return N pseudo-random bytes from RANDOM. */
+    static byte[] randomBytes(Random random, int n) {
+        byte[] data = new byte[n];
+        random.nextBytes(data);
+        return data;
+    }
+
+    /** Return a copy of DATA with a few bytes changed, inserted, and
+     *  deleted at positions chosen by RANDOM. */
+    static byte[] edit(Random random, byte[] data) {
+        ArrayList<Byte> result = new ArrayList<>();
+        for (byte b : data) {
+            result.add(b);
+        }
+        for (int k = 0; k < 5; k += 1) {
+            int i = random.nextInt(result.size());
+            switch (k % 3) {
+            case 0:
+                result.set(i, (byte) (result.get(i) + 1));
+                break;
+            case 1:
+                result.add(i, (byte) k);
+                break;
+            default:
+                result.remove(i);
+                break;
+            }
+        }
+        byte[] edited = new byte[result.size()];
+        for (int i = 0; i < edited.length; i += 1) {
+            edited[i] = result.get(i);
+        }
+        return edited;
+    }
+
+    /** Return the contents of object ID of type TYPE in STORE. */
+    static byte[] read(ObjectStore store, String id, int type)
+        throws IOException {
+        try (InputStream in = store.open(id, type)) {
+            return in.readAllBytes();
+        }
+    }
+
+    @Test
+    public void testDelta() {
+        Random random = new Random(61);
+        byte[] base = randomBytes(random, 10000);
+        byte[] target = edit(random, base);
+        byte[] delta = Delta.create(base, target);
+        assertTrue(delta.length < 500);
+        assertArrayEquals(target, Delta.apply(base, delta));
+        byte[] unrelated = randomBytes(random, 100);
+        assertArrayEquals(unrelated,
+                          Delta.apply(base, Delta.create(base, unrelated)));
+        assertArrayEquals(new byte[0],
+                          Delta.apply(base, Delta.create(base, new byte[0])));
+        assertArrayEquals(base,
+                          Delta.apply(new byte[0],
+                                      Delta.create(new byte[0], base)));
+    }
+
+    @Test
+    public void testRepack() throws IOException {
+        ObjectStore store =
+            new ObjectStore(new File(temp.newFolder(), "objects"));
+        Random random = new Random(17);
+        byte[][] versions = new byte[6][];
+        String[] ids = new String[versions.length];
+        HashMap<String, String> bases = new HashMap<>();
+        versions[0] = randomBytes(random, 50000);
+        ids[0] = store.put(ObjectStore.BLOB, versions[0]);
+        for (int i = 1; i < versions.length; i += 1) {
+            versions[i] = edit(random, versions[i - 1]);
+            ids[i] = store.put(ObjectStore.BLOB, versions[i]);
+            bases.put(ids[i], ids[i - 1]);
+        }
+        bases.put(ids[0], ids[versions.length - 1]);
+        String commit = store.put(ObjectStore.COMMIT, versions[0]);
+
+        assertEquals(versions.length + 1, store.repack(bases));
+        assertEquals(0, store.repack(bases));
+        File[] packs = new File(store.file(ids[0]).getParentFile()
+                                .getParentFile(), ObjectStore.PACK_DIR)
+            .listFiles((dir, name) -> name.endsWith(".pack"));
+        assertEquals(1, packs.length);
+        assertTrue(packs[0].length() < 3 * versions[0].length);
+
+        ObjectStore reopened =
+            new ObjectStore(store.file(ids[0]).getParentFile()
+                            .getParentFile());
+        for (int i = 0; i < versions.length; i += 1) {
+            assertFalse(reopened.isLoose(ids[i]));
+            assertTrue(reopened.contains(ids[i]));
+            assertEquals(ObjectStore.BLOB, reopened.type(ids[i]));
+            assertArrayEquals(versions[i],
+                              read(reopened, ids[i], ObjectStore.BLOB));
+        }
+        assertEquals(ObjectStore.COMMIT, reopened.type(commit));
+        assertArrayEquals(versions[0],
+                          read(reopened, commit, ObjectStore.COMMIT));
+        assertEquals(commit, reopened.find(commit.substring(0, 5)).get(0));
+        assertEquals(ids[2], reopened.put(ObjectStore.BLOB, versions[2]));
+        assertFalse(reopened.isLoose(ids[2]));
+    }
+
+}
@@ -0,0 +1,151 @@
+package gitlet;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.TreeSet;
+
+/** The differences between two trees, each a mapping of file names to the
+ *  hashes of their contents.  Since equal hashes mean equal contents, the
+ *  trees are compared by hash alone, and no file is read: the cost is
+ *  proportional to the number of files, and reading is left for the files
+ *  that differ.
+ *
+ *  Renames are found, on request, among the files removed and added:
+ *  first those with identical contents, paired by hash, and then those
+ *  whose contents share at least MIN_SIMILARITY percent of their bytes, as
+ *  measured by their Chunks.
+ *  @author Brian Faun
+ */
+class TreeDiff {
+
+    /** Least similarity, as a percentage, for a removed and an added file
+     *  to be taken as a rename. */
+    static final int MIN_SIMILARITY = 50;
+
+    /** Largest number of removed-added pairs whose similarity is
+     *  measured; with more, only identical renames are found. */
+    static final int MAX_RENAME_PAIRS = 10000;
+
+    /** The differences from tree BEFORE to tree AFTER. */
+    TreeDiff(Map<String, String> before, Map<String, String> after) {
+        _before = before;
+        _after = after;
+        for (Map.Entry<String, String> e : before.entrySet()) {
+            String now = after.get(e.getKey());
+            if (now == null) {
+                _removed.add(e.getKey());
+            } else if (!now.equals(e.getValue())) {
+                _modified.add(e.getKey());
+            }
+        }
+        for (String name : after.keySet()) {
+            if (!before.containsKey(name)) {
+                _added.add(name);
+            }
+        }
+    }
+
+    /** Pair removed files with added files as renames, reading the blobs
+     *  of unpaired files from STORE to compare their contents. */
+    void findRenames(ObjectStore store) {
+        HashMap<String, String> removedByHash = new HashMap<>();
+        for (String name : _removed) {
+            removedByHash.putIfAbsent(_before.get(name), name);
+        }
+        for (Iterator<String> i = _added.iterator(); i.hasNext(); ) {
+            String name = i.next();
+            String from = removedByHash.remove(_after.get(name));
+            if (from != null) {
+                rename(from, name, 100);
+                i.remove();
+            }
+        }
+        if (_removed.isEmpty() || _added.isEmpty()
+            || (long) _removed.size() * _added.size() > MAX_RENAME_PAIRS) {
+            return;
+        }
+        HashMap<String, Chunks> chunks = new HashMap<>();
+        for (String name : _removed) {
+            chunks.put(name, blobChunks(store, _before.get(name)));
+        }
+        for (String name : _added) {
+            chunks.put(name, blobChunks(store, _after.get(name)));
+        }
+        List<String> added = new ArrayList<>(_added);
+        for (String to : added) {
+            String best = null;
+            int bestScore = MIN_SIMILARITY - 1;
+            for (String from : _removed) {
+                int score = chunks.get(from).similarity(chunks.get(to));
+                if (score > bestScore) {
+                    best = from;
+                    bestScore = score;
+                }
+            }
+            if (best != null) {
+                rename(best, to, bestScore);
+                _added.remove(to);
+            }
+        }
+    }
+
+    /** Return the names of files in the second tree only, in order. */
+    TreeSet<String> added() {
+        return _added;
+    }
+
+    /** Return the names of files in the first tree only, in order. */
+    TreeSet<String> removed() {
+        return _removed;
+    }
+
+    /** Return the names of files in both trees with different contents, in
+     *  order. */
+    TreeSet<String> modified() {
+        return _modified;
+    }
+
+    /** Return the renamed files, as a mapping of new names to old. */
+    TreeMap<String, String> renamed() {
+        return _renamed;
+    }
+
+    /** Return the similarity, as a percentage, of the renamed file whose
+     *  new name is NAME to its old version. */
+    int similarity(String name) {
+        return _similarity.get(name);
+    }
+
+    /** Return true iff the trees are the same. */
+    boolean isEmpty() {
+        return _added.isEmpty() && _removed.isEmpty() && _modified.isEmpty()
+            && _renamed.isEmpty();
+    }
+
+    /** Record that file FROM was renamed to TO, with SIMILARITY percent of
+     *  its contents unchanged. */
+    private void rename(String from, String to, int similarity) {
+        _removed.remove(from);
+        _renamed.put(to, from);
+        _similarity.put(to, similarity);
+    }
+
+    /** Return the Chunks of the blob with hash ID in STORE. */
+    private static Chunks blobChunks(ObjectStore store, String id) {
+        return Diff.chunks(() -> store.open(id, ObjectStore.BLOB));
+    }
+
+    /** The trees compared. */
+    private final Map<String, String> _before, _after;
+    /** Names of added, removed, and modified files. */
+    private final TreeSet<String> _added = new TreeSet<>(),
+        _removed = new TreeSet<>(), _modified = new TreeSet<>();
+    /** Renamed files: new names mapped to old. */
+    private final TreeMap<String, String> _renamed = new TreeMap<>();
+    /** Similarities of renamed files, by new name. */
+    private final HashMap<String, Integer> _similarity = new HashMap<>();
+}